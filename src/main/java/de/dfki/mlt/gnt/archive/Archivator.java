@@ -2,15 +2,22 @@ package de.dfki.mlt.gnt.archive;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -18,14 +25,22 @@ import de.dfki.mlt.gnt.config.ConfigKeys;
 import de.dfki.mlt.gnt.config.GlobalConfig;
 
 /**
- *
+ * Packs the files of a model into a zip archive and reads the entries of a model archive.
+ * <p>
+ * The archive is opened once, when the first entry is read, so that loading a model does not
+ * scan the archive again for each entry.
  *
  * @author Günter Neumann, DFKI
  */
-public class Archivator {
+public class Archivator implements Closeable {
 
   private String archiveName;
   private List<Path> filesToPack = new ArrayList<>();
+  // the names of all entries, null if the archive is not opened yet
+  private List<String> entryNames;
+  // either the archive in the file system or the folder with the extracted classpath archive
+  private ZipFile zipFile;
+  private Path extractedFolder;
 
 
   public Archivator(String archiveName) {
@@ -52,21 +67,171 @@ public class Archivator {
   }
 
 
+  /**
+   * Adds all files in the given folder and its sub folders to the files to pack.
+   * @param folder
+   * @throws IOException
+   */
+  public void addFilesToPack(Path folder)
+      throws IOException {
+
+    Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+
+      @Override
+      public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+
+        if (!attrs.isDirectory()) {
+          System.out.println(" add to archive: " + path);
+          getFilesToPack().add(path);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+
+  /**
+   * @param entry
+   * @return a stream of the given entry of the archive
+   * @throws IOException
+   *           if the archive or the entry do not exist
+   */
   public InputStream getInputStream(String entry)
       throws IOException {
 
+    open();
+    if (null != this.zipFile) {
+      ZipEntry zipEntry = this.zipFile.getEntry(entry);
+      if (null != zipEntry) {
+        return this.zipFile.getInputStream(zipEntry);
+      }
+    } else {
+      Path extractedEntry = this.extractedFolder.resolve(entry).normalize();
+      if (extractedEntry.startsWith(this.extractedFolder) && Files.isRegularFile(extractedEntry)) {
+        return Files.newInputStream(extractedEntry);
+      }
+    }
+    throw new IOException(String.format("\"%s\" not found in archive", entry));
+  }
+
+
+  /**
+   * @return the names of all entries of the archive
+   * @throws IOException
+   */
+  public List<String> getEntryNames()
+      throws IOException {
+
+    open();
+    return Collections.unmodifiableList(this.entryNames);
+  }
+
+
+  // Reads the central directory of the archive once. An archive in the file system is read via
+  // ZipFile, which finds each entry directly. An archive in the classpath can only be read as
+  // a stream, so all its entries are extracted once to a temporary folder.
+  private synchronized void open()
+      throws IOException {
+
+    if (null != this.entryNames) {
+      return;
+    }
+    List<String> names = new ArrayList<>();
     InputStream in = this.getClass().getClassLoader().getResourceAsStream(this.archiveName);
-    // if can't be loaded from classpath, try to load it from the file system
-    if (null == in) {
-      in = Files.newInputStream(Paths.get(this.archiveName));
+    if (null != in) {
+      this.extractedFolder = Files.createTempDirectory("gnt-archive");
+      // files are deleted on exit in reverse order of registration, so the folder comes last
+      this.extractedFolder.toFile().deleteOnExit();
+      try (ZipInputStream zin = new ZipInputStream(in)) {
+        for (ZipEntry e; (e = zin.getNextEntry()) != null;) {
+          if (e.isDirectory()) {
+            continue;
+          }
+          Path target = this.extractedFolder.resolve(e.getName()).normalize();
+          if (!target.startsWith(this.extractedFolder)) {
+            throw new IOException(String.format("invalid archive entry \"%s\"", e.getName()));
+          }
+          createFolders(target.getParent());
+          Files.copy(zin, target);
+          target.toFile().deleteOnExit();
+          names.add(e.getName());
+        }
+      }
+    } else {
+      // if can't be loaded from classpath, load it from the file system
+      this.zipFile = new ZipFile(Paths.get(this.archiveName).toFile());
+      for (Enumeration<? extends ZipEntry> entries = this.zipFile.entries();
+          entries.hasMoreElements();) {
+        names.add(entries.nextElement().getName());
+      }
+    }
+    this.entryNames = names;
+  }
+
+
+  // Creates the given folder in the extracted folder and all missing folders above it. Each
+  // created folder is registered for deletion on exit before the files and folders within it.
+  private void createFolders(Path folder)
+      throws IOException {
+
+    if (Files.exists(folder)) {
+      return;
+    }
+    createFolders(folder.getParent());
+    Files.createDirectory(folder);
+    folder.toFile().deleteOnExit();
+  }
+
+
+  // Deletes the given folder and all its content, if it exists.
+  private static void deleteFolder(Path folder)
+      throws IOException {
+
+    if (!Files.exists(folder)) {
+      return;
     }
-    ZipInputStream zin = new ZipInputStream(in);
-    for (ZipEntry e; (e = zin.getNextEntry()) != null;) {
-      if (e.getName().equals(entry)) {
-        return zin;
+    Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+
+      @Override
+      public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+
+        Files.delete(path);
+        return FileVisitResult.CONTINUE;
+      }
+
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+
+        if (null != exc) {
+          throw exc;
+        }
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
       }
+    });
+  }
+
+
+  /**
+   * Closes the archive and deletes the folder with the extracted classpath archive; the archive
+   * is opened again when the next entry is read.
+   * @throws IOException
+   */
+  @Override
+  public synchronized void close()
+      throws IOException {
+
+    this.entryNames = null;
+    if (null != this.zipFile) {
+      this.zipFile.close();
+      this.zipFile = null;
+    }
+    if (null != this.extractedFolder) {
+      Path folder = this.extractedFolder;
+      this.extractedFolder = null;
+      deleteFolder(folder);
     }
-    throw new IOException(String.format("\"%s\" not found in archive", entry));
   }
 
 
@@ -76,6 +241,8 @@ public class Archivator {
    */
   public void pack() throws IOException {
 
+    // a previously opened version of the archive is outdated
+    close();
     OutputStream dest =
         Files.newOutputStream(
             GlobalConfig.getPath(ConfigKeys.MODEL_OUTPUT_FOLDER).resolve(this.archiveName));
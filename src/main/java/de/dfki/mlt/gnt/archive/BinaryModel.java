@@ -0,0 +1,672 @@
+package de.dfki.mlt.gnt.archive;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration2.ex.ConfigurationException;
+
+import de.bwaldvogel.liblinear.Linear;
+import de.bwaldvogel.liblinear.Model;
+import de.dfki.mlt.gnt.config.ConfigKeys;
+import de.dfki.mlt.gnt.config.GlobalConfig;
+import de.dfki.mlt.gnt.config.ModelConfig;
+import de.dfki.mlt.gnt.data.ModelShards;
+import de.dfki.mlt.gnt.features.SparseWordVectors;
+import de.dfki.mlt.gnt.features.WordDistributedFeatureFactory;
+
+/**
+ * A compiled GNT model in a single binary file, which is memory mapped instead of parsed.
+ * <p>
+ * Loading a model from a zip archive means to inflate and parse the text files of the archive,
+ * above all the context vectors of the vocabulary and the weights of the liblinear model. In a
+ * binary model, these are stored as little-endian int and double sections, which are mapped
+ * via {@link FileChannel#map(FileChannel.MapMode, long, long)} and used as they are. So loading
+ * takes only the time to build the (small) string maps, and all JVMs using the same model file
+ * share the mapped pages in the page cache of the operating system.
+ * <p>
+ * The file has the following layout, all numbers are little-endian:
+ * <pre>
+ * {@code
+ * int     magic number "GNTB"
+ * int     format version
+ * int     number of sections n
+ * n times the directory entry of a section:
+ *   int   length of the section name, followed by the UTF-8 bytes of the name
+ *   int   section type: 1 = bytes, 2 = string table, 3 = ints, 4 = doubles
+ *   long  start of the section in the file, always a multiple of 8
+ *   long  length of the section in bytes
+ * the sections:
+ *   bytes         the unchanged content of a file of the archive
+ *   string table  int count, int[count + 1] start of each string in the UTF-8 data, UTF-8 data
+ *   ints          int values
+ *   doubles       double values
+ * }
+ * </pre>
+ * Each file of the zip archive with one entry per line (indicator words, vocabulary, suffixes,
+ * shapes, clusters, label set, word set) becomes a string table of the same name, the model
+ * configuration is kept as bytes. The context vectors become the int and double sections of
+ * their compressed sparse row representation, see {@link SparseWordVectors}, and the liblinear
+ * model becomes a string table with the header lines and a double section with the weights.
+ * <p>
+ * A single section must be smaller than 2 GB, which is the limit of a mapped buffer.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class BinaryModel {
+
+  public static final String FILE_EXTENSION = ".bin";
+
+  private static final int MAGIC = 0x42544E47;
+  private static final int VERSION = 1;
+
+  private static final int BYTES = 1;
+  private static final int STRINGS = 2;
+  private static final int INTS = 3;
+  private static final int DOUBLES = 4;
+
+  private Path path;
+  private Map<String, Section> sections = new LinkedHashMap<>();
+
+
+  private BinaryModel(Path path) {
+
+    this.path = path;
+  }
+
+
+  /**
+   * @param modelName
+   *          a model name as given on the command line
+   * @return true if the model name denotes a binary model
+   */
+  public static boolean isBinaryModel(String modelName) {
+
+    return modelName.endsWith(FILE_EXTENSION);
+  }
+
+
+  /**
+   * Opens the given binary model. Only the directory of the sections is read, the sections are
+   * mapped when they are requested.
+   *
+   * @param path
+   * @return the binary model
+   * @throws IOException
+   *           if the file is not a binary model
+   */
+  public static BinaryModel open(Path path)
+      throws IOException {
+
+    BinaryModel binaryModel = new BinaryModel(path);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = channel.map(
+          FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      if ((header.remaining() < 12) || (header.getInt() != MAGIC)) {
+        throw new IOException(String.format("\"%s\" is not a binary GNT model", path));
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException(String.format(
+            "\"%s\" has unsupported format version %d", path, version));
+      }
+      int sectionCnt = header.getInt();
+      for (int i = 0; i < sectionCnt; i++) {
+        byte[] name = new byte[header.getInt()];
+        header.get(name);
+        Section section = new Section(header.getInt(), header.getLong(), header.getLong());
+        binaryModel.sections.put(new String(name, StandardCharsets.UTF_8), section);
+      }
+    }
+    return binaryModel;
+  }
+
+
+  public Path getPath() {
+
+    return this.path;
+  }
+
+
+  public boolean contains(String sectionName) {
+
+    return this.sections.containsKey(sectionName);
+  }
+
+
+  /**
+   * @param sectionName
+   * @return a stream of the bytes of the given section
+   * @throws IOException
+   */
+  public InputStream getInputStream(String sectionName)
+      throws IOException {
+
+    ByteBuffer buffer = map(sectionName, BYTES);
+    byte[] content = new byte[buffer.remaining()];
+    buffer.get(content);
+    return new ByteArrayInputStream(content);
+  }
+
+
+  /**
+   * @param sectionName
+   * @return the strings of the given string table, e.g., the lines of an archive file
+   * @throws IOException
+   */
+  public String[] getStrings(String sectionName)
+      throws IOException {
+
+    ByteBuffer buffer = map(sectionName, STRINGS);
+    int count = buffer.getInt();
+    IntBuffer starts = buffer.asIntBuffer();
+    int dataStart = 4 * (count + 2);
+    String[] strings = new String[count];
+    byte[] bytes = new byte[0];
+    for (int i = 0; i < count; i++) {
+      int start = starts.get(i);
+      int length = starts.get(i + 1) - start;
+      if (bytes.length < length) {
+        bytes = new byte[Math.max(length, 2 * bytes.length)];
+      }
+      buffer.position(dataStart + start);
+      buffer.get(bytes, 0, length);
+      strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+    return strings;
+  }
+
+
+  /**
+   * @param sectionName
+   * @return a read-only view of the mapped ints of the given section
+   * @throws IOException
+   */
+  public IntBuffer getInts(String sectionName)
+      throws IOException {
+
+    return map(sectionName, INTS).asIntBuffer();
+  }
+
+
+  /**
+   * @param sectionName
+   * @return a read-only view of the mapped doubles of the given section
+   * @throws IOException
+   */
+  public DoubleBuffer getDoubles(String sectionName)
+      throws IOException {
+
+    return map(sectionName, DOUBLES).asDoubleBuffer();
+  }
+
+
+  private ByteBuffer map(String sectionName, int type)
+      throws IOException {
+
+    Section section = this.sections.get(sectionName);
+    if (null == section) {
+      throw new IOException(String.format("\"%s\" not found in binary model", sectionName));
+    }
+    if (section.type != type) {
+      throw new IOException(String.format("\"%s\" has wrong section type", sectionName));
+    }
+    // the mapping stays valid after the channel is closed
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+      ByteBuffer buffer =
+          channel.map(FileChannel.MapMode.READ_ONLY, section.offset, section.length);
+      return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+
+
+  /**
+   * @param modelName
+   * @return the name of the section with the header lines of the liblinear model
+   */
+  public static String getModelHeaderName(String modelName) {
+
+    return modelName + ".header";
+  }
+
+
+  /**
+   * @param modelName
+   * @return the name of the section with the weights of the liblinear model
+   */
+  public static String getModelWeightsName(String modelName) {
+
+    return modelName + ".weights";
+  }
+
+
+  /**
+   * @param contextFileName
+   * @param side
+   *          left or right
+   * @param array
+   *          offsets, columns or weights
+   * @return the name of the section with the given array of the context vectors
+   */
+  public static String getContextVectorsName(String contextFileName, String side, String array) {
+
+    return contextFileName + "." + side + "." + array;
+  }
+
+
+  /**
+   * Converts a zip model archive to a binary model. The context vectors and the liblinear model
+   * are read with the same code as when loading the archive, so the binary model has exactly
+   * the same weights.
+   *
+   * @param modelArchiveName
+   *          model archive, to be loaded from file system or classpath
+   * @param targetPath
+   *          the binary model file to create
+   * @throws IOException
+   * @throws ConfigurationException
+   */
+  public static void convert(String modelArchiveName, Path targetPath)
+      throws IOException, ConfigurationException {
+
+    System.out.println("Convert model archive " + modelArchiveName + " to " + targetPath);
+    try (Archivator archivator = new Archivator(modelArchiveName)) {
+      ModelConfig modelConfig;
+      try (InputStream in = archivator.getInputStream(GlobalConfig.MODEL_CONFIG_FILE)) {
+        modelConfig = ModelConfig.create(in);
+      }
+      int dim = modelConfig.getInt(ConfigKeys.DIM);
+      String contextFileName = "vocContext" + dim + ".txt";
+      // the liblinear model files, with the model name of each; several for a sharded model
+      Map<String, String> modelFileNames = new HashMap<>();
+      // the same for the compressed models of a compressed archive
+      Map<String, String> compressedFileNames = new HashMap<>();
+      for (String oneModelName : getModelNames(archivator, modelConfig)) {
+        modelFileNames.put(oneModelName + ".txt", oneModelName);
+        compressedFileNames.put(oneModelName + CompressedModel.FILE_EXTENSION, oneModelName);
+      }
+
+      Writer writer = new Writer();
+      for (String oneEntry : archivator.getEntryNames()) {
+        System.out.println("Convert " + oneEntry);
+        if (oneEntry.equals(GlobalConfig.MODEL_CONFIG_FILE)) {
+          writer.addBytes(oneEntry, readBytes(archivator, oneEntry));
+        } else if (oneEntry.equals(contextFileName)) {
+          WordDistributedFeatureFactory factory = new WordDistributedFeatureFactory();
+          factory.readDistributedWordFeaturesSparse(archivator, dim);
+          addContextVectors(writer, contextFileName, "left", factory.getLeftVectors());
+          addContextVectors(writer, contextFileName, "right", factory.getRightVectors());
+        } else if (modelFileNames.containsKey(oneEntry)) {
+          addModel(writer, archivator, oneEntry, modelFileNames.get(oneEntry));
+        } else if (compressedFileNames.containsKey(oneEntry)) {
+          addCompressedModel(writer, archivator, oneEntry, compressedFileNames.get(oneEntry));
+        } else {
+          writer.addStrings(oneEntry, readLines(archivator, oneEntry));
+        }
+      }
+      writer.write(targetPath);
+    }
+    System.out.println("... done");
+  }
+
+
+  /**
+   * @param archivator
+   *          a model archive
+   * @param modelConfig
+   *          the model config of the archive
+   * @return the names of the liblinear models of the archive; several for a sharded model
+   * @throws IOException
+   */
+  static List<String> getModelNames(Archivator archivator, ModelConfig modelConfig)
+      throws IOException {
+
+    List<String> modelNames = new ArrayList<>();
+    if (ModelShards.isSharded(modelConfig)) {
+      ModelShards modelShards = ModelShards.read(archivator);
+      for (int shard = 0; shard < modelShards.getShardCnt(); shard++) {
+        modelNames.add(modelShards.getShardModelName(modelConfig.getModelName(), shard));
+      }
+    } else {
+      modelNames.add(modelConfig.getModelName());
+    }
+    return modelNames;
+  }
+
+
+  private static void addContextVectors(
+      Writer writer, String contextFileName, String side, SparseWordVectors vectors) {
+
+    writer.addInts(getContextVectorsName(contextFileName, side, "offsets"), vectors.getOffsets());
+    writer.addInts(getContextVectorsName(contextFileName, side, "columns"), vectors.getColumns());
+    writer.addDoubles(
+        getContextVectorsName(contextFileName, side, "weights"), vectors.getWeights());
+  }
+
+
+  // the header lines of the liblinear model are kept as they are, up to the line "w"
+  private static void addModel(
+      Writer writer, Archivator archivator, String modelFileName, String modelName)
+      throws IOException {
+
+    List<String> header = new ArrayList<>();
+    for (String oneLine : readLines(archivator, modelFileName)) {
+      if (oneLine.equals("w")) {
+        break;
+      }
+      header.add(oneLine);
+    }
+    Model model;
+    try (InputStream in = archivator.getInputStream(modelFileName)) {
+      model = Linear.loadModel(new InputStreamReader(in, "UTF-8"));
+    }
+    writer.addStrings(getModelHeaderName(modelName), header);
+    writer.addDoubles(
+        getModelWeightsName(modelName), DoubleBuffer.wrap(model.getFeatureWeights()));
+  }
+
+
+  // a binary model has no compressed weights, so the weights of a compressed model are expanded
+  private static void addCompressedModel(
+      Writer writer, Archivator archivator, String compressedFileName, String modelName)
+      throws IOException {
+
+    CompressedModel compressed;
+    try (InputStream in = archivator.getInputStream(compressedFileName)) {
+      compressed = CompressedModel.read(in);
+    }
+    writer.addStrings(getModelHeaderName(modelName), compressed.getHeaderLines());
+    writer.addDoubles(
+        getModelWeightsName(modelName), DoubleBuffer.wrap(compressed.toDenseWeights()));
+  }
+
+
+  private static byte[] readBytes(Archivator archivator, String entry)
+      throws IOException {
+
+    try (InputStream in = archivator.getInputStream(entry)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] data = new byte[20480];
+      int count;
+      while ((count = in.read(data)) != -1) {
+        out.write(data, 0, count);
+      }
+      return out.toByteArray();
+    }
+  }
+
+
+  private static List<String> readLines(Archivator archivator, String entry)
+      throws IOException {
+
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader in = new BufferedReader(
+        new InputStreamReader(archivator.getInputStream(entry), "UTF-8"))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+
+
+  private static class Section {
+
+    private int type;
+    private long offset;
+    private long length;
+
+
+    Section(int type, long offset, long length) {
+
+      this.type = type;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+
+  /**
+   * Collects the sections of a binary model and writes them to a file.
+   */
+  private static class Writer {
+
+    private List<String> names = new ArrayList<>();
+    private List<Integer> types = new ArrayList<>();
+    private List<Object> contents = new ArrayList<>();
+
+
+    void addBytes(String name, byte[] content) {
+
+      add(name, BYTES, content);
+    }
+
+
+    void addStrings(String name, List<String> strings) {
+
+      byte[][] content = new byte[strings.size()][];
+      for (int i = 0; i < strings.size(); i++) {
+        content[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+      }
+      add(name, STRINGS, content);
+    }
+
+
+    void addInts(String name, IntBuffer content) {
+
+      add(name, INTS, content.duplicate());
+    }
+
+
+    void addDoubles(String name, DoubleBuffer content) {
+
+      add(name, DOUBLES, content.duplicate());
+    }
+
+
+    private void add(String name, int type, Object content) {
+
+      this.names.add(name);
+      this.types.add(type);
+      this.contents.add(content);
+    }
+
+
+    void write(Path targetPath)
+        throws IOException {
+
+      // header and directory
+      ByteArrayOutputStream directory = new ByteArrayOutputStream();
+      long[] lengths = new long[this.names.size()];
+      int directorySize = 12;
+      for (int i = 0; i < this.names.size(); i++) {
+        lengths[i] = getLength(this.types.get(i), this.contents.get(i));
+        directorySize += 4 + this.names.get(i).getBytes(StandardCharsets.UTF_8).length + 20;
+      }
+      ByteBuffer header = ByteBuffer.allocate(directorySize).order(ByteOrder.LITTLE_ENDIAN);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.putInt(this.names.size());
+      long offset = align(directorySize);
+      for (int i = 0; i < this.names.size(); i++) {
+        byte[] name = this.names.get(i).getBytes(StandardCharsets.UTF_8);
+        header.putInt(name.length);
+        header.put(name);
+        header.putInt(this.types.get(i));
+        header.putLong(offset);
+        header.putLong(lengths[i]);
+        offset = align(offset + lengths[i]);
+      }
+      header.flip();
+
+      try (FileChannel channel = FileChannel.open(targetPath, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        SectionOutput out = new SectionOutput(channel);
+        out.put(header);
+        for (int i = 0; i < this.names.size(); i++) {
+          out.pad();
+          writeContent(out, this.types.get(i), this.contents.get(i));
+        }
+        out.flush();
+      }
+    }
+
+
+    private static long getLength(int type, Object content) {
+
+      switch (type) {
+        case BYTES:
+          return ((byte[])content).length;
+        case STRINGS:
+          byte[][] strings = (byte[][])content;
+          long length = 4L * (strings.length + 2);
+          for (byte[] oneString : strings) {
+            length += oneString.length;
+          }
+          return length;
+        case INTS:
+          return 4L * ((IntBuffer)content).remaining();
+        default:
+          return 8L * ((DoubleBuffer)content).remaining();
+      }
+    }
+
+
+    private static void writeContent(SectionOutput out, int type, Object content)
+        throws IOException {
+
+      switch (type) {
+        case BYTES:
+          out.put(ByteBuffer.wrap((byte[])content));
+          break;
+        case STRINGS:
+          byte[][] strings = (byte[][])content;
+          out.putInt(strings.length);
+          int start = 0;
+          out.putInt(start);
+          for (byte[] oneString : strings) {
+            start += oneString.length;
+            out.putInt(start);
+          }
+          for (byte[] oneString : strings) {
+            out.put(ByteBuffer.wrap(oneString));
+          }
+          break;
+        case INTS:
+          IntBuffer ints = (IntBuffer)content;
+          while (ints.hasRemaining()) {
+            out.putInt(ints.get());
+          }
+          break;
+        default:
+          DoubleBuffer doubles = (DoubleBuffer)content;
+          while (doubles.hasRemaining()) {
+            out.putDouble(doubles.get());
+          }
+          break;
+      }
+    }
+
+
+    private static long align(long offset) {
+
+      return (offset + 7) & ~7L;
+    }
+  }
+
+
+  /**
+   * Writes little-endian numbers to a channel through a buffer.
+   */
+  private static class SectionOutput {
+
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private long position = 0;
+
+
+    SectionOutput(FileChannel channel) {
+
+      this.channel = channel;
+    }
+
+
+    void putInt(int value)
+        throws IOException {
+
+      ensureRemaining(4);
+      this.buffer.putInt(value);
+      this.position += 4;
+    }
+
+
+    void putDouble(double value)
+        throws IOException {
+
+      ensureRemaining(8);
+      this.buffer.putDouble(value);
+      this.position += 8;
+    }
+
+
+    void put(ByteBuffer source)
+        throws IOException {
+
+      flush();
+      this.position += source.remaining();
+      while (source.hasRemaining()) {
+        this.channel.write(source);
+      }
+    }
+
+
+    // pads with zeros up to the next multiple of 8
+    void pad()
+        throws IOException {
+
+      while ((this.position % 8) != 0) {
+        ensureRemaining(1);
+        this.buffer.put((byte)0);
+        this.position++;
+      }
+    }
+
+
+    void flush()
+        throws IOException {
+
+      this.buffer.flip();
+      while (this.buffer.hasRemaining()) {
+        this.channel.write(this.buffer);
+      }
+      this.buffer.clear();
+    }
+
+
+    private void ensureRemaining(int size)
+        throws IOException {
+
+      if (this.buffer.remaining() < size) {
+        flush();
+      }
+    }
+  }
+}
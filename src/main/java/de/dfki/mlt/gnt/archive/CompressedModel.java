@@ -0,0 +1,444 @@
+package de.dfki.mlt.gnt.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.configuration2.ex.ConfigurationException;
+
+import de.bwaldvogel.liblinear.Linear;
+import de.bwaldvogel.liblinear.Model;
+import de.dfki.mlt.gnt.config.GlobalConfig;
+import de.dfki.mlt.gnt.config.ModelConfig;
+
+/**
+ * The weights of a liblinear model without the weight rows that are all zero, optionally
+ * quantized to 8 or 16 bit integers.
+ * <p>
+ * Most features of a window never fire with most labels, so many weight rows of a trained model
+ * are all zero. Only the other rows are kept, in the same feature-major layout as in liblinear,
+ * together with the feature index of each kept row; the tagger maps a feature index to its row
+ * with a table, see {@link de.dfki.mlt.gnt.tagger.GNPredictor}. If the weights are quantized,
+ * each weight of class c is stored as round(w / scale_c) with a scale per class, so that the
+ * largest absolute weight of the class becomes the largest integer value. The rows that are all
+ * zero after quantization are dropped as well.
+ * <p>
+ * A compressed model replaces the liblinear model file modelName.txt in a model archive by the
+ * entry modelName.compressed with the following layout, all numbers are big-endian:
+ * <pre>
+ * {@code
+ * int       magic number "GNTC"
+ * int       format version
+ * int       number of classes nrClass, followed by int[nrClass] the labels
+ * int       number of features of the model, without bias
+ * double    bias, negative if no bias is used
+ * int       number of weights per row nrW
+ * int       bits of the quantized weights, 0 if the weights are not quantized
+ * double[nrW]  the scale of each class, only if the weights are quantized
+ * int       number of kept rows n, followed by int[n] the feature index of each row, ascending
+ * n * nrW weights as double, byte or short
+ * }
+ * </pre>
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class CompressedModel {
+
+  public static final String FILE_EXTENSION = ".compressed";
+
+  private static final int MAGIC = 0x434E5447;
+  private static final int VERSION = 1;
+
+  private int[] labels;
+  private int nrFeature;
+  private double bias;
+  private int nrW;
+  private int bits;
+  private double[] scales;
+  // the feature index of each kept row
+  private int[] featureIndices;
+  // the weights of the kept rows, only one of the arrays is used, depending on bits
+  private double[] doubleWeights;
+  private byte[] byteWeights;
+  private short[] shortWeights;
+
+
+  private CompressedModel() {
+
+  }
+
+
+  /**
+   * Compresses the weights of the given model.
+   *
+   * @param model
+   *          a liblinear classification model
+   * @param bits
+   *          0 to keep the weights as double, 8 or 16 to quantize them
+   * @return the compressed model
+   */
+  public static CompressedModel compress(Model model, int bits) {
+
+    if ((bits != 0) && (bits != 8) && (bits != 16)) {
+      throw new IllegalArgumentException(
+          " Message from GNT: quantization bits must be 0, 8 or 16: " + bits);
+    }
+    CompressedModel compressed = new CompressedModel();
+    compressed.labels = model.getLabels().clone();
+    compressed.nrFeature = model.getNrFeature();
+    compressed.bias = model.getBias();
+    compressed.bits = bits;
+    double[] weights = model.getFeatureWeights();
+    int rowCnt = (model.getBias() >= 0) ? model.getNrFeature() + 1 : model.getNrFeature();
+    int nrW = weights.length / rowCnt;
+    compressed.nrW = nrW;
+
+    // the largest integer value is used for the largest absolute weight of each class
+    if (bits > 0) {
+      double maxValue = (bits == 8) ? Byte.MAX_VALUE : Short.MAX_VALUE;
+      compressed.scales = new double[nrW];
+      for (int i = 0; i < weights.length; i++) {
+        compressed.scales[i % nrW] = Math.max(compressed.scales[i % nrW], Math.abs(weights[i]));
+      }
+      for (int i = 0; i < nrW; i++) {
+        compressed.scales[i] = (compressed.scales[i] > 0) ? compressed.scales[i] / maxValue : 1;
+      }
+    }
+
+    // keep the rows with at least one non-zero (quantized) weight
+    List<Integer> keptRows = new ArrayList<>();
+    for (int row = 0; row < rowCnt; row++) {
+      for (int i = row * nrW; i < (row + 1) * nrW; i++) {
+        if (compressed.quantize(weights[i], i % nrW) != 0) {
+          keptRows.add(row);
+          break;
+        }
+      }
+    }
+    compressed.featureIndices = new int[keptRows.size()];
+    switch (bits) {
+      case 8:
+        compressed.byteWeights = new byte[keptRows.size() * nrW];
+        break;
+      case 16:
+        compressed.shortWeights = new short[keptRows.size() * nrW];
+        break;
+      default:
+        compressed.doubleWeights = new double[keptRows.size() * nrW];
+        break;
+    }
+    for (int k = 0; k < keptRows.size(); k++) {
+      int row = keptRows.get(k);
+      compressed.featureIndices[k] = row + 1;
+      for (int i = 0; i < nrW; i++) {
+        double value = compressed.quantize(weights[row * nrW + i], i);
+        if (null != compressed.byteWeights) {
+          compressed.byteWeights[k * nrW + i] = (byte)value;
+        } else if (null != compressed.shortWeights) {
+          compressed.shortWeights[k * nrW + i] = (short)value;
+        } else {
+          compressed.doubleWeights[k * nrW + i] = value;
+        }
+      }
+    }
+    return compressed;
+  }
+
+
+  // the weight as stored, i.e., the rounded multiple of the scale of the class if quantized
+  private double quantize(double weight, int classIndex) {
+
+    return (this.bits > 0) ? Math.round(weight / this.scales[classIndex]) : weight;
+  }
+
+
+  public int[] getLabels() {
+
+    return this.labels;
+  }
+
+
+  public int getNrFeature() {
+
+    return this.nrFeature;
+  }
+
+
+  public double getBias() {
+
+    return this.bias;
+  }
+
+
+  public int getNrW() {
+
+    return this.nrW;
+  }
+
+
+  /**
+   * @return 0 if the weights are double, else 8 or 16
+   */
+  public int getBits() {
+
+    return this.bits;
+  }
+
+
+  /**
+   * @return the scale of each class, null if the weights are not quantized
+   */
+  public double[] getScales() {
+
+    return this.scales;
+  }
+
+
+  /**
+   * @return the feature index of each kept row in ascending order
+   */
+  public int[] getFeatureIndices() {
+
+    return this.featureIndices;
+  }
+
+
+  public double[] getDoubleWeights() {
+
+    return this.doubleWeights;
+  }
+
+
+  public byte[] getByteWeights() {
+
+    return this.byteWeights;
+  }
+
+
+  public short[] getShortWeights() {
+
+    return this.shortWeights;
+  }
+
+
+  /**
+   * @return the weights of all rows in the same layout as in liblinear, with pruned rows as
+   *         zero and quantized weights multiplied by their scale
+   */
+  public double[] toDenseWeights() {
+
+    int rowCnt = (this.bias >= 0) ? this.nrFeature + 1 : this.nrFeature;
+    double[] weights = new double[rowCnt * this.nrW];
+    for (int k = 0; k < this.featureIndices.length; k++) {
+      int rowStart = (this.featureIndices[k] - 1) * this.nrW;
+      for (int i = 0; i < this.nrW; i++) {
+        int position = k * this.nrW + i;
+        if (null != this.byteWeights) {
+          weights[rowStart + i] = this.byteWeights[position] * this.scales[i];
+        } else if (null != this.shortWeights) {
+          weights[rowStart + i] = this.shortWeights[position] * this.scales[i];
+        } else {
+          weights[rowStart + i] = this.doubleWeights[position];
+        }
+      }
+    }
+    return weights;
+  }
+
+
+  /**
+   * @return the header lines of a liblinear model file with the labels, the number of features
+   *         and the bias of this model, as used for a {@link BinaryModel}
+   */
+  public List<String> getHeaderLines() {
+
+    List<String> header = new ArrayList<>();
+    header.add("nr_class " + this.labels.length);
+    StringBuilder labelLine = new StringBuilder("label");
+    for (int oneLabel : this.labels) {
+      labelLine.append(' ').append(oneLabel);
+    }
+    header.add(labelLine.toString());
+    header.add("nr_feature " + this.nrFeature);
+    header.add("bias " + this.bias);
+    return header;
+  }
+
+
+  /**
+   * Writes the compressed model to the given stream, which is not closed.
+   *
+   * @param out
+   * @throws IOException
+   */
+  public void write(OutputStream out)
+      throws IOException {
+
+    DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+    dataOut.writeInt(MAGIC);
+    dataOut.writeInt(VERSION);
+    dataOut.writeInt(this.labels.length);
+    for (int oneLabel : this.labels) {
+      dataOut.writeInt(oneLabel);
+    }
+    dataOut.writeInt(this.nrFeature);
+    dataOut.writeDouble(this.bias);
+    dataOut.writeInt(this.nrW);
+    dataOut.writeInt(this.bits);
+    if (this.bits > 0) {
+      for (double oneScale : this.scales) {
+        dataOut.writeDouble(oneScale);
+      }
+    }
+    dataOut.writeInt(this.featureIndices.length);
+    for (int oneFeatureIndex : this.featureIndices) {
+      dataOut.writeInt(oneFeatureIndex);
+    }
+    if (null != this.byteWeights) {
+      dataOut.write(this.byteWeights);
+    } else if (null != this.shortWeights) {
+      for (short oneWeight : this.shortWeights) {
+        dataOut.writeShort(oneWeight);
+      }
+    } else {
+      for (double oneWeight : this.doubleWeights) {
+        dataOut.writeDouble(oneWeight);
+      }
+    }
+    dataOut.flush();
+  }
+
+
+  /**
+   * Reads a compressed model from the given stream.
+   *
+   * @param in
+   * @return the compressed model
+   * @throws IOException
+   *           if the stream does not contain a compressed model
+   */
+  public static CompressedModel read(InputStream in)
+      throws IOException {
+
+    DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+    if (dataIn.readInt() != MAGIC) {
+      throw new IOException("not a compressed GNT model");
+    }
+    int version = dataIn.readInt();
+    if (version != VERSION) {
+      throw new IOException("unsupported format version of compressed model: " + version);
+    }
+    CompressedModel compressed = new CompressedModel();
+    compressed.labels = new int[dataIn.readInt()];
+    for (int i = 0; i < compressed.labels.length; i++) {
+      compressed.labels[i] = dataIn.readInt();
+    }
+    compressed.nrFeature = dataIn.readInt();
+    compressed.bias = dataIn.readDouble();
+    compressed.nrW = dataIn.readInt();
+    compressed.bits = dataIn.readInt();
+    if (compressed.bits > 0) {
+      compressed.scales = new double[compressed.nrW];
+      for (int i = 0; i < compressed.nrW; i++) {
+        compressed.scales[i] = dataIn.readDouble();
+      }
+    }
+    compressed.featureIndices = new int[dataIn.readInt()];
+    for (int i = 0; i < compressed.featureIndices.length; i++) {
+      compressed.featureIndices[i] = dataIn.readInt();
+    }
+    int weightCnt = compressed.featureIndices.length * compressed.nrW;
+    switch (compressed.bits) {
+      case 8:
+        compressed.byteWeights = new byte[weightCnt];
+        dataIn.readFully(compressed.byteWeights);
+        break;
+      case 16:
+        compressed.shortWeights = new short[weightCnt];
+        for (int i = 0; i < weightCnt; i++) {
+          compressed.shortWeights[i] = dataIn.readShort();
+        }
+        break;
+      default:
+        compressed.doubleWeights = new double[weightCnt];
+        for (int i = 0; i < weightCnt; i++) {
+          compressed.doubleWeights[i] = dataIn.readDouble();
+        }
+        break;
+    }
+    return compressed;
+  }
+
+
+  /**
+   * Copies a model archive to a new archive, in which each liblinear model file is replaced by
+   * its compressed model. All other entries are copied unchanged.
+   *
+   * @param modelArchiveName
+   *          model archive, to be loaded from file system or classpath
+   * @param targetPath
+   *          the compressed model archive to create
+   * @param bits
+   *          0 to keep the weights as double, 8 or 16 to quantize them
+   * @throws IOException
+   * @throws ConfigurationException
+   */
+  public static void compressArchive(String modelArchiveName, Path targetPath, int bits)
+      throws IOException, ConfigurationException {
+
+    System.out.println("Compress model archive " + modelArchiveName + " to " + targetPath
+        + " with quantization bits: " + bits);
+    try (Archivator archivator = new Archivator(modelArchiveName);
+        ZipOutputStream zipOut = new ZipOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(targetPath)))) {
+      ModelConfig modelConfig;
+      try (InputStream in = archivator.getInputStream(GlobalConfig.MODEL_CONFIG_FILE)) {
+        modelConfig = ModelConfig.create(in);
+      }
+      List<String> modelNames = BinaryModel.getModelNames(archivator, modelConfig);
+      for (String oneEntry : archivator.getEntryNames()) {
+        String modelName = oneEntry.endsWith(".txt")
+            ? oneEntry.substring(0, oneEntry.length() - ".txt".length()) : null;
+        if (modelNames.contains(modelName)) {
+          Model model;
+          try (InputStream in = archivator.getInputStream(oneEntry)) {
+            model = Linear.loadModel(new InputStreamReader(in, "UTF-8"));
+          }
+          CompressedModel compressed = compress(model, bits);
+          ByteArrayOutputStream content = new ByteArrayOutputStream();
+          compressed.write(content);
+          System.out.println(String.format(
+              "Compress %s: kept rows %d of %d, bytes %d instead of %d as dense doubles",
+              oneEntry, compressed.featureIndices.length,
+              model.getFeatureWeights().length / compressed.nrW,
+              content.size(), model.getFeatureWeights().length * 8L));
+          zipOut.putNextEntry(new ZipEntry(modelName + FILE_EXTENSION));
+          content.writeTo(zipOut);
+        } else {
+          zipOut.putNextEntry(new ZipEntry(oneEntry));
+          try (InputStream in = archivator.getInputStream(oneEntry)) {
+            byte[] data = new byte[20480];
+            int count;
+            while ((count = in.read(data)) != -1) {
+              zipOut.write(data, 0, count);
+            }
+          }
+        }
+        zipOut.closeEntry();
+      }
+    }
+    System.out.println("... done");
+  }
+}
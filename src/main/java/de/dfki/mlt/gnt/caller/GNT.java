@@ -1,6 +1,9 @@
 package de.dfki.mlt.gnt.caller;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +18,10 @@ import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.dfki.mlt.gnt.archive.BinaryModel;
+import de.dfki.mlt.gnt.archive.CompressedModel;
+import de.dfki.mlt.gnt.config.CorpusConfig;
+import de.dfki.mlt.gnt.corpus.ConllEvaluator;
 import de.dfki.mlt.gnt.tagger.GNTagger;
 
 /**
@@ -30,6 +37,9 @@ public final class GNT {
 
   private static final String IN_ENCODE_DEFAULT = "ISO-8859-1";
   private static final String OUT_ENCODE_DEFAULT = "UTF-8";
+  private static final String THREADS_DEFAULT = "1";
+  private static final String FOLDS_DEFAULT = "10";
+  private static final String BITS_DEFAULT = "8";
 
 
   private GNT() {
@@ -57,6 +67,54 @@ public final class GNT {
   }
 
 
+  /**
+   * Searches the model parameters with the highest accuracy on the dev files of an annotated
+   * corpus, writes a leaderboard and the archive of the best model.
+   *
+   * @param modelConfigName
+   *          model configuration file name, with the values to search
+   * @param corpusConfigName
+   *          corpus configuration file name
+   * @param threads
+   *          number of models trained in parallel
+   */
+  public static void search(String modelConfigName, String corpusConfigName, int threads) {
+
+    try {
+      TrainTagger gntTrainer = new TrainTagger();
+      gntTrainer.search(modelConfigName, corpusConfigName, threads);
+    } catch (IOException | ConfigurationException e) {
+      logger.error(e.getLocalizedMessage(), e);
+    }
+  }
+
+
+  /**
+   * Estimates the accuracy of a model configuration by k-fold cross-validation on the training
+   * files of an annotated corpus.
+   *
+   * @param modelConfigName
+   *          model configuration file name
+   * @param corpusConfigName
+   *          corpus configuration file name
+   * @param folds
+   *          number of folds
+   * @param threads
+   *          number of folds trained in parallel; for solvers using random numbers, only the
+   *          tagging of the folds runs in parallel
+   */
+  public static void crossValidate(
+      String modelConfigName, String corpusConfigName, int folds, int threads) {
+
+    try {
+      TrainTagger gntTrainer = new TrainTagger();
+      gntTrainer.crossValidate(modelConfigName, corpusConfigName, folds, threads);
+    } catch (IOException | ConfigurationException e) {
+      logger.error(e.getLocalizedMessage(), e);
+    }
+  }
+
+
   /**
    * Evaluates a tagger model against an annotated corpus.
    *
@@ -67,8 +125,7 @@ public final class GNT {
    */
   public static void eval(String modelArchiveName, String corpusConfigName) {
 
-    try {
-      GNTagger tagger = new GNTagger(modelArchiveName);
+    try (GNTagger tagger = new GNTagger(modelArchiveName)) {
       tagger.eval(corpusConfigName);
     } catch (IOException | ConfigurationException e) {
       logger.error(e.getLocalizedMessage(), e);
@@ -92,9 +149,90 @@ public final class GNT {
       String modelArchiveName, String inputFolderName,
       String inputEncodingName, String outputEncodingName) {
 
+    tag(modelArchiveName, inputFolderName, inputEncodingName, outputEncodingName, 1);
+  }
+
+
+  /**
+   * Tags all files in a folder using a tagger model and the given number of worker threads.
+   *
+   * @param modelArchiveName
+   *         modelArchive, to be loaded from file system or classpath
+   * @param inputFolderName
+   *         input folder name of files to tag
+   * @param inputEncodingName
+   *         input files encoding name
+   * @param outputEncodingName
+   *         output files encoding name
+   * @param threads
+   *         number of files tagged in parallel
+   */
+  public static void tag(
+      String modelArchiveName, String inputFolderName,
+      String inputEncodingName, String outputEncodingName, int threads) {
+
+    try (GNTagger tagger = new GNTagger(modelArchiveName)) {
+      tagger.tagFolder(inputFolderName, inputEncodingName, outputEncodingName, threads);
+    } catch (IOException | ConfigurationException e) {
+      logger.error(e.getLocalizedMessage(), e);
+    }
+  }
+
+
+  /**
+   * Converts a zip model archive to a binary model that is memory mapped when loaded.
+   *
+   * @param modelArchiveName
+   *          model archive, to be loaded from file system or classpath
+   * @param binaryModelName
+   *          binary model file name, should have the extension .bin
+   */
+  public static void convert(String modelArchiveName, String binaryModelName) {
+
     try {
-      GNTagger tagger = new GNTagger(modelArchiveName);
-      tagger.tagFolder(inputFolderName, inputEncodingName, outputEncodingName);
+      BinaryModel.convert(modelArchiveName, Paths.get(binaryModelName));
+    } catch (IOException | ConfigurationException e) {
+      logger.error(e.getLocalizedMessage(), e);
+    }
+  }
+
+
+  /**
+   * Compresses the liblinear models of a model archive and reports the accuracy of the original
+   * and the compressed model on the dev files of an annotated corpus.
+   *
+   * @param modelArchiveName
+   *          model archive, to be loaded from file system or classpath
+   * @param compressedArchiveName
+   *          compressed model archive file name
+   * @param bits
+   *          0 to keep the weights as double, 8 or 16 to quantize them
+   * @param corpusConfigName
+   *          corpus configuration file name
+   */
+  public static void compress(
+      String modelArchiveName, String compressedArchiveName, int bits, String corpusConfigName) {
+
+    try {
+      Path compressedPath = Paths.get(compressedArchiveName);
+      CompressedModel.compressArchive(modelArchiveName, compressedPath, bits);
+      CorpusConfig corpusConfig = CorpusConfig.create(corpusConfigName);
+      ConllEvaluator original;
+      try (GNTagger tagger = new GNTagger(modelArchiveName)) {
+        original = tagger.evalDev(corpusConfig);
+      }
+      ConllEvaluator compressed;
+      try (GNTagger tagger = new GNTagger(compressedArchiveName)) {
+        compressed = tagger.evalDev(corpusConfig);
+      }
+      if (Files.exists(Paths.get(modelArchiveName))) {
+        System.out.println(String.format("Archive size original: %d compressed: %d bytes",
+            Files.size(Paths.get(modelArchiveName)), Files.size(compressedPath)));
+      }
+      System.out.println(String.format(
+          "Dev accuracy original: %.2f%% compressed: %.2f%% delta: %.2f%%",
+          original.getAcc() * 100, compressed.getAcc() * 100,
+          (compressed.getAcc() - original.getAcc()) * 100));
     } catch (IOException | ConfigurationException e) {
       logger.error(e.getLocalizedMessage(), e);
     }
@@ -123,8 +261,12 @@ public final class GNT {
    * GNT can
    * <p><ul>
    * <li> train a tagger model from an annotated corpus
+   * <li> search the model parameters with the highest accuracy on the dev files
+   * <li> estimate the accuracy of a model configuration by cross-validation
    * <li> evaluate a tagger model against an annotated corpus
    * <li> tag files using a tagger model
+   * <li> convert a tagger model archive to a binary model
+   * <li> compress the weights of a tagger model archive
    * </ul><p>
    * GNT options for train mode:
    * <pre>
@@ -134,6 +276,28 @@ public final class GNT {
    * -corpusConfig <file>   corpus config file
    * }</pre>
    *
+   * GNT options for search mode:
+   * <pre>
+   * {@code
+   * -search                run in search mode
+   * -modelConfig <file>    model config file, with search.c, search.eps, search.solver.type,
+   *                        search.window.size and search.random.samples
+   * -corpusConfig <file>   corpus config file, with dev files
+   * -threads <number>      number of models trained in parallel, optional, default: 1
+   * }</pre>
+   *
+   * GNT options for crossvalidate mode:
+   * <pre>
+   * {@code
+   * -crossvalidate         run in cross-validation mode
+   * -modelConfig <file>    model config file
+   * -corpusConfig <file>   corpus config file
+   * -folds <number>        number of folds, optional, default: 10
+   * -threads <number>      number of folds trained in parallel, optional, default: 1;
+   *                        solvers using random numbers, e.g. MCSVM_CS, train the folds one
+   *                        after the other and only tag them in parallel
+   * }</pre>
+   *
    * GNT options for eval mode:
    * <pre>
    * {@code
@@ -150,6 +314,26 @@ public final class GNT {
    * -input <folder>         input folder
    * -inEncode <encoding>    input encoding, optional, default: ISO-8859-1
    * -outEncode <encoding>   output encoding, optional, default: UTF-8
+   * -threads <number>       number of files tagged in parallel, optional, default: 1
+   * }</pre>
+   *
+   * GNT options for convert mode:
+   * <pre>
+   * {@code
+   * -convert               run in convert mode
+   * -model <file>          model archive, to be loaded from file system or classpath
+   * -output <file>         binary model file, with extension .bin
+   * }</pre>
+   *
+   * GNT options for compress mode:
+   * <pre>
+   * {@code
+   * -compress              run in compress mode
+   * -model <file>          model archive, to be loaded from file system or classpath
+   * -output <file>         compressed model archive file
+   * -bits <number>         bits of the quantized weights, 8, 16 or 0 for no quantization,
+   *                        optional, default: 8
+   * -corpusConfig <file>   corpus config file, with dev files for comparing the accuracy
    * }</pre>
    *
    * @param args
@@ -159,8 +343,12 @@ public final class GNT {
 
     List<Options> optionsList = new ArrayList<>();
     optionsList.add(createTrainOptions());
+    optionsList.add(createSearchOptions());
+    optionsList.add(createCrossValidateOptions());
     optionsList.add(createEvalOptions());
     optionsList.add(createTagOptions());
+    optionsList.add(createConvertOptions());
+    optionsList.add(createCompressOptions());
 
     CommandLine cmd = parseArguments(args, optionsList);
     if (null == cmd) {
@@ -174,6 +362,19 @@ public final class GNT {
             cmd.getOptionValue("modelConfig"),
             cmd.getOptionValue("corpusConfig"));
         break;
+      case "search":
+        search(
+            cmd.getOptionValue("modelConfig"),
+            cmd.getOptionValue("corpusConfig"),
+            Integer.parseInt(cmd.getOptionValue("threads", THREADS_DEFAULT)));
+        break;
+      case "crossvalidate":
+        crossValidate(
+            cmd.getOptionValue("modelConfig"),
+            cmd.getOptionValue("corpusConfig"),
+            Integer.parseInt(cmd.getOptionValue("folds", FOLDS_DEFAULT)),
+            Integer.parseInt(cmd.getOptionValue("threads", THREADS_DEFAULT)));
+        break;
       case "eval":
         eval(
             cmd.getOptionValue("model"),
@@ -184,7 +385,20 @@ public final class GNT {
             cmd.getOptionValue("model"),
             cmd.getOptionValue("input"),
             cmd.getOptionValue("inEncode", IN_ENCODE_DEFAULT),
-            cmd.getOptionValue("outEncode", OUT_ENCODE_DEFAULT));
+            cmd.getOptionValue("outEncode", OUT_ENCODE_DEFAULT),
+            Integer.parseInt(cmd.getOptionValue("threads", THREADS_DEFAULT)));
+        break;
+      case "convert":
+        convert(
+            cmd.getOptionValue("model"),
+            cmd.getOptionValue("output"));
+        break;
+      case "compress":
+        compress(
+            cmd.getOptionValue("model"),
+            cmd.getOptionValue("output"),
+            Integer.parseInt(cmd.getOptionValue("bits", BITS_DEFAULT)),
+            cmd.getOptionValue("corpusConfig"));
         break;
       default:
         logger.error(String.format("unkown mode '%s'", mode));
@@ -215,6 +429,72 @@ public final class GNT {
   }
 
 
+  private static Options createSearchOptions() {
+
+    Options searchOptions = new Options();
+
+    Option modeOption = new Option("search", false, "run in search mode");
+    modeOption.setRequired(true);
+    searchOptions.addOption(modeOption);
+
+    Option modelConfigOption = new Option(
+        "modelConfig", true, "model config file with the values to search");
+    modelConfigOption.setRequired(true);
+    modelConfigOption.setArgName("file");
+    searchOptions.addOption(modelConfigOption);
+
+    Option corpusConfigOption = new Option("corpusConfig", true, "corpus config file");
+    corpusConfigOption.setRequired(true);
+    corpusConfigOption.setArgName("file");
+    searchOptions.addOption(corpusConfigOption);
+
+    Option threadsOption = new Option("threads", true,
+        String.format("number of models trained in parallel (optional, default: %s)",
+            THREADS_DEFAULT));
+    threadsOption.setRequired(false);
+    threadsOption.setArgName("number");
+    searchOptions.addOption(threadsOption);
+
+    return searchOptions;
+  }
+
+
+  private static Options createCrossValidateOptions() {
+
+    Options crossValidateOptions = new Options();
+
+    Option modeOption = new Option("crossvalidate", false, "run in cross-validation mode");
+    modeOption.setRequired(true);
+    crossValidateOptions.addOption(modeOption);
+
+    Option modelConfigOption = new Option("modelConfig", true, "model config file");
+    modelConfigOption.setRequired(true);
+    modelConfigOption.setArgName("file");
+    crossValidateOptions.addOption(modelConfigOption);
+
+    Option corpusConfigOption = new Option("corpusConfig", true, "corpus config file");
+    corpusConfigOption.setRequired(true);
+    corpusConfigOption.setArgName("file");
+    crossValidateOptions.addOption(corpusConfigOption);
+
+    Option foldsOption = new Option("folds", true,
+        String.format("number of folds (optional, default: %s)", FOLDS_DEFAULT));
+    foldsOption.setRequired(false);
+    foldsOption.setArgName("number");
+    crossValidateOptions.addOption(foldsOption);
+
+    Option threadsOption = new Option("threads", true,
+        String.format("number of folds trained in parallel; solvers using random numbers, "
+            + "e.g. MCSVM_CS, only tag the folds in parallel (optional, default: %s)",
+            THREADS_DEFAULT));
+    threadsOption.setRequired(false);
+    threadsOption.setArgName("number");
+    crossValidateOptions.addOption(threadsOption);
+
+    return crossValidateOptions;
+  }
+
+
   private static Options createEvalOptions() {
 
     Options evalOptions = new Options();
@@ -270,10 +550,75 @@ public final class GNT {
     outputEncodingOption.setArgName("encoding");
     tagOptions.addOption(outputEncodingOption);
 
+    Option threadsOption = new Option("threads", true,
+        String.format("number of files tagged in parallel (optional, default: %s)",
+            THREADS_DEFAULT));
+    threadsOption.setRequired(false);
+    threadsOption.setArgName("number");
+    tagOptions.addOption(threadsOption);
+
     return tagOptions;
   }
 
 
+  private static Options createConvertOptions() {
+
+    Options convertOptions = new Options();
+
+    Option modeOption = new Option("convert", false, "run in convert mode");
+    modeOption.setRequired(true);
+    convertOptions.addOption(modeOption);
+
+    Option modelOption = new Option(
+        "model", true, "model archive, to be loaded from classpath or file system");
+    modelOption.setRequired(true);
+    modelOption.setArgName("file");
+    convertOptions.addOption(modelOption);
+
+    Option outputOption = new Option("output", true, "binary model file");
+    outputOption.setRequired(true);
+    outputOption.setArgName("file");
+    convertOptions.addOption(outputOption);
+
+    return convertOptions;
+  }
+
+
+  private static Options createCompressOptions() {
+
+    Options compressOptions = new Options();
+
+    Option modeOption = new Option("compress", false, "run in compress mode");
+    modeOption.setRequired(true);
+    compressOptions.addOption(modeOption);
+
+    Option modelOption = new Option(
+        "model", true, "model archive, to be loaded from classpath or file system");
+    modelOption.setRequired(true);
+    modelOption.setArgName("file");
+    compressOptions.addOption(modelOption);
+
+    Option outputOption = new Option("output", true, "compressed model archive file");
+    outputOption.setRequired(true);
+    outputOption.setArgName("file");
+    compressOptions.addOption(outputOption);
+
+    Option bitsOption = new Option("bits", true,
+        String.format("bits of the quantized weights, 8, 16 or 0 for no quantization "
+            + "(optional, default: %s)", BITS_DEFAULT));
+    bitsOption.setRequired(false);
+    bitsOption.setArgName("number");
+    compressOptions.addOption(bitsOption);
+
+    Option corpusConfigOption = new Option("corpusConfig", true, "corpus config file");
+    corpusConfigOption.setRequired(true);
+    corpusConfigOption.setArgName("file");
+    compressOptions.addOption(corpusConfigOption);
+
+    return compressOptions;
+  }
+
+
   private static CommandLine parseArguments(String[] args, List<Options> optionsList) {
 
     CommandLineParser parser = new DefaultParser();
@@ -297,8 +642,12 @@ public final class GNT {
       System.out.format(
           "GNT can%n"
               + "- train a tagger model from an annotated corpus%n"
+              + "- search the model parameters with the highest accuracy%n"
+              + "- estimate the accuracy of a model configuration by cross-validation%n"
               + "- evaluate a tagger model against an annotated corpus%n"
-              + "- tag files using a tagger model%n%n");
+              + "- tag files using a tagger model%n"
+              + "- convert a tagger model archive to a binary model%n"
+              + "- compress the weights of a tagger model archive%n%n");
       HelpFormatter formatter = new HelpFormatter();
       formatter.setOptionComparator(null);
       for (Options oneOptions : optionsList) {
@@ -12,7 +12,9 @@ import org.apache.commons.configuration2.ex.ConfigurationException;
 import de.dfki.mlt.gnt.config.CorpusConfig;
 import de.dfki.mlt.gnt.config.GlobalConfig;
 import de.dfki.mlt.gnt.config.ModelConfig;
+import de.dfki.mlt.gnt.trainer.CrossValidation;
 import de.dfki.mlt.gnt.trainer.GNTrainer;
+import de.dfki.mlt.gnt.trainer.HyperparameterSearch;
 
 /**
  *
@@ -60,6 +62,50 @@ public class TrainTagger {
   }
 
 
+  /**
+   * Searches the parameters of the model with the highest accuracy on the dev files, see
+   * {@link HyperparameterSearch}.
+   * @param modelConfigFileName
+   * @param corpusConfigFileName
+   * @param threads
+   *          the number of candidates trained at the same time
+   * @throws IOException
+   * @throws ConfigurationException
+   */
+  public void search(String modelConfigFileName, String corpusConfigFileName, int threads)
+      throws IOException, ConfigurationException {
+
+    GlobalConfig.getNewModelBuildFolder();
+
+    ModelConfig modelConfig = ModelConfig.create(modelConfigFileName);
+    CorpusConfig corpusConfig = CorpusConfig.create(corpusConfigFileName);
+    new HyperparameterSearch(modelConfig, corpusConfig, threads).search();
+  }
+
+
+  /**
+   * Estimates the accuracy of the model config by cross-validation on the training files, see
+   * {@link CrossValidation}.
+   * @param modelConfigFileName
+   * @param corpusConfigFileName
+   * @param folds
+   * @param threads
+   *          the number of folds trained at the same time
+   * @throws IOException
+   * @throws ConfigurationException
+   */
+  public void crossValidate(
+      String modelConfigFileName, String corpusConfigFileName, int folds, int threads)
+      throws IOException, ConfigurationException {
+
+    GlobalConfig.getNewModelBuildFolder();
+
+    ModelConfig modelConfig = ModelConfig.create(modelConfigFileName);
+    CorpusConfig corpusConfig = CorpusConfig.create(corpusConfigFileName);
+    new CrossValidation(modelConfig, corpusConfig, folds, threads).crossValidate();
+  }
+
+
   private static void copyConfigFile(InputStream in) {
 
     //Path sourceFile = new File(configFileName).toPath();
@@ -13,6 +13,13 @@ public final class ConfigKeys {
   public static final String DEBUG = "debug";
   public static final String MODEL_BUILD_FOLDER = "model.build.folder";
   public static final String MODEL_OUTPUT_FOLDER = "model.output.folder";
+  public static final String TAGGER_THREADS = "tagger.threads";
+  public static final String TAGGER_BATCH_SIZE = "tagger.batch.size";
+  public static final String TAGGER_MAX_BATCHES = "tagger.max.batches";
+  public static final String TRAINER_STREAMING = "trainer.streaming";
+  public static final String TRAINER_THREADS = "trainer.threads";
+  public static final String TRAINER_SOLVER_THREADS = "trainer.solver.threads";
+  public static final String TRAINER_SHARE_FEATURE_VALUES = "trainer.share.feature.values";
 
   // common config keys
   public static final String TAGGER_NAME = "tagger.name";
@@ -34,6 +41,17 @@ public final class ConfigKeys {
       "word.suffix.feature.factory.ngram";
   public static final String WORD_SUFFIX_FEATURE_FACTORY_NGRAM_SIZE =
       "word.suffix.feature.factory.ngram.size";
+  public static final String FEATURE_HASH_BITS = "feature.hash.bits";
+  public static final String SHARD_MIN_SIZE = "shard.min.size";
+  public static final String PERCEPTRON_EPOCHS = "perceptron.epochs";
+  public static final String WARM_START_MODEL = "warm.start.model";
+  public static final String SGD_EPOCHS = "sgd.epochs";
+  public static final String SGD_LEARNING_RATE = "sgd.learning.rate";
+  public static final String SEARCH_SOLVER_TYPE = "search.solver.type";
+  public static final String SEARCH_C = "search.c";
+  public static final String SEARCH_EPS = "search.eps";
+  public static final String SEARCH_WINDOW_SIZE = "search.window.size";
+  public static final String SEARCH_RANDOM_SAMPLES = "search.random.samples";
 
   // corpus config keys
   public static final String WORD_FORM_INDEX = "word.form.index";
@@ -146,6 +146,21 @@ public final class GlobalConfig {
   }
 
 
+  /**
+   * Convenience method to retrieve int values from config.
+   *
+   * @param key
+   *          the config key
+   * @param defaultValue
+   *          the value to use if the key is not set
+   * @return the key value
+   */
+  public static int getInt(String key, int defaultValue) {
+
+    return getInstance().getInt(key, defaultValue);
+  }
+
+
   /**
    * Convenience method to retrieve boolean values from config.
    *
@@ -159,6 +174,21 @@ public final class GlobalConfig {
   }
 
 
+  /**
+   * Convenience method to retrieve boolean values from config.
+   *
+   * @param key
+   *          the config key
+   * @param defaultValue
+   *          the value to use if the key is not set
+   * @return the key value
+   */
+  public static boolean getBoolean(String key, boolean defaultValue) {
+
+    return getInstance().getBoolean(key, defaultValue);
+  }
+
+
   /**
    * Convenience method to retrieve double values from config.
    *
@@ -23,6 +23,9 @@ import de.dfki.mlt.gnt.data.Data;
  * <li> a file with extension .errs of all wrong tag-pairs gold-tag predicted-tag together with
  *      ist frequency
  * <li> a file with extension .iob containing just the words and their predicetd tags
+ * <p>
+ * Alternatively, the tokens can be counted in memory with {@link #addToken(String, String,
+ * String)}, without writing an eval file, see {@link #computeAccuracy()}.
  *
  * @author Günter Neumann, DFKI
  */
@@ -35,6 +38,12 @@ public class ConllEvaluator {
 
   private Set<String> wordSet;
 
+  // token counts of the in-memory evaluation
+  private int tokenCnt = 0;
+  private int correctCnt = 0;
+  private int oovCnt = 0;
+  private int correctOOVCnt = 0;
+
 
   public ConllEvaluator(Set<String> wordSet) {
 
@@ -60,6 +69,39 @@ public class ConllEvaluator {
   }
 
 
+  /**
+   * Counts a tagged token for the in-memory evaluation.
+   *
+   * @param word
+   * @param goldTag
+   * @param predictedTag
+   */
+  public void addToken(String word, String goldTag, String predictedTag) {
+
+    this.tokenCnt++;
+    boolean correct = predictedTag.equals(goldTag);
+    if (correct) {
+      this.correctCnt++;
+    }
+    if (!this.wordSet.contains(word)) {
+      this.oovCnt++;
+      if (correct) {
+        this.correctOOVCnt++;
+      }
+    }
+  }
+
+
+  /**
+   * Computes the accuracies from the tokens counted so far with
+   * {@link #addToken(String, String, String)}.
+   */
+  public void computeAccuracy() {
+
+    setAccuracy(this.tokenCnt, this.correctCnt, this.oovCnt, this.correctOOVCnt);
+  }
+
+
   public void computeAccuracy(Path evalPath, boolean debug) throws IOException {
 
     BufferedReader conllReader = Files.newBufferedReader(evalPath, StandardCharsets.UTF_8);
@@ -153,17 +195,12 @@ public class ConllEvaluator {
       iobWriter.close();
     }
 
-    // accuracy for all words of test file
-    this.acc = (double)correctPosCnt / (double)goldPosCnt;
-    // accuracy for all out of vocabulary words of test file
-    this.accOOV = (double)correctOOVCnt / (double)goldOOVCnt;
-    // accuracy for known vocabulary words of test file
-    int correctKnownWords = (goldPosCnt - goldOOVCnt);
-    int correctFoundKnownWords = (correctPosCnt - correctOOVCnt);
-    this.accInV = (double)correctFoundKnownWords / (double)correctKnownWords;
+    setAccuracy(goldPosCnt, correctPosCnt, goldOOVCnt, correctOOVCnt);
 
     DecimalFormat formatter = new DecimalFormat("#0.00");
 
+    int correctKnownWords = (goldPosCnt - goldOOVCnt);
+    int correctFoundKnownWords = (correctPosCnt - correctOOVCnt);
     System.out.println("All pos: " + goldPosCnt + " Correct: " + correctPosCnt + " Accuracy: "
         + formatter.format(this.acc * 100) + "%");
     System.out.println("All OOV pos: " + goldOOVCnt + " Correct: " + correctOOVCnt + " Accuracy: "
@@ -174,6 +211,19 @@ public class ConllEvaluator {
   }
 
 
+  private void setAccuracy(int goldPosCnt, int correctPosCnt, int goldOOVCnt, int correctOOVCnt) {
+
+    // accuracy for all words of test file
+    this.acc = (double)correctPosCnt / (double)goldPosCnt;
+    // accuracy for all out of vocabulary words of test file
+    this.accOOV = (double)correctOOVCnt / (double)goldOOVCnt;
+    // accuracy for known vocabulary words of test file
+    int correctKnownWords = (goldPosCnt - goldOOVCnt);
+    int correctFoundKnownWords = (correctPosCnt - correctOOVCnt);
+    this.accInV = (double)correctFoundKnownWords / (double)correctKnownWords;
+  }
+
+
   // sort hash according to value in decreasing order;
   // transform hashmap to treemap by using ValueComparator
   private static Map<String, Integer> sortByValue(Map<String, Integer> unsortedMap) {
@@ -1,8 +1,12 @@
 package de.dfki.mlt.gnt.data;
 
+import java.io.IOException;
+
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
 import de.dfki.mlt.gnt.config.ConfigKeys;
 import de.dfki.mlt.gnt.config.ModelConfig;
+import de.dfki.mlt.gnt.features.FeatureHasher;
 import de.dfki.mlt.gnt.features.WordClusterFeatureFactory;
 import de.dfki.mlt.gnt.features.WordDistributedFeatureFactory;
 import de.dfki.mlt.gnt.features.WordShapeFeatureFactory;
@@ -26,6 +30,8 @@ public class Alphabet {
   private boolean withSuffixFeats = true;
   private boolean withClusterFeats = false;
   private boolean withLabelFeats = false;
+  // if > 0, the features are hashed into a feature space of size 2^featureHashBits
+  private int featureHashBits = 0;
 
 
   public Alphabet(ModelConfig modelConfig) {
@@ -40,6 +46,12 @@ public class Alphabet {
     this.withSuffixFeats = modelConfig.getBoolean(ConfigKeys.WITH_SUFFIX_FEATS);
     this.withClusterFeats = modelConfig.getBoolean(ConfigKeys.WITH_CLUSTER_FEATS);
     this.withLabelFeats = modelConfig.getBoolean(ConfigKeys.WITH_LABEL_FEATS);
+    this.featureHashBits = modelConfig.getInt(ConfigKeys.FEATURE_HASH_BITS, 0);
+    if ((this.featureHashBits < 0) || (this.featureHashBits > FeatureHasher.MAX_BITS)) {
+      throw new IllegalArgumentException(String.format(
+          " Message from GNT: %s must be between 0 and %d: %d",
+          ConfigKeys.FEATURE_HASH_BITS, FeatureHasher.MAX_BITS, this.featureHashBits));
+    }
   }
 
 
@@ -97,6 +109,33 @@ public class Alphabet {
   }
 
 
+  /**
+   * @return the number of bits of the hashed feature space, 0 if the features are not hashed
+   */
+  public int getFeatureHashBits() {
+
+    return this.featureHashBits;
+  }
+
+
+  /**
+   * @return true if the features are hashed, see {@link FeatureHasher}
+   */
+  public boolean isWithFeatureHashing() {
+
+    return this.featureHashBits > 0;
+  }
+
+
+  /**
+   * @return true if the suffix list is needed, i.e., if the suffix features are not hashed
+   */
+  public boolean isWithSuffixList() {
+
+    return this.isWithSuffixFeats() && !this.isWithFeatureHashing();
+  }
+
+
   /**
    * Load the precomputed features from file during training phase.
    * @param taggerName
@@ -107,7 +146,7 @@ public class Alphabet {
     if (this.isWithWordFeats()) {
       this.wordVectorFactory.readDistributedWordFeaturesSparse(dim);
     }
-    if (this.isWithSuffixFeats()) {
+    if (this.isWithSuffixList()) {
       this.wordSuffixFactory.readSuffixList();
     }
     if (this.isWithShapeFeats()) {
@@ -129,7 +168,7 @@ public class Alphabet {
     if (this.isWithWordFeats()) {
       this.wordVectorFactory.readDistributedWordFeaturesSparse(archivator, dim);
     }
-    if (this.isWithSuffixFeats()) {
+    if (this.isWithSuffixList()) {
       this.wordSuffixFactory.readSuffixList(archivator);
     }
     if (this.isWithShapeFeats()) {
@@ -141,6 +180,30 @@ public class Alphabet {
   }
 
 
+  /**
+   * Load the features from a binary model during tagging phase
+   * @param binaryModel
+   * @param dim
+   * @throws IOException
+   */
+  public void loadFeaturesFromFiles(BinaryModel binaryModel, int dim)
+      throws IOException {
+
+    if (this.isWithWordFeats()) {
+      this.wordVectorFactory.readDistributedWordFeaturesSparse(binaryModel, dim);
+    }
+    if (this.isWithSuffixList()) {
+      this.wordSuffixFactory.readSuffixList(binaryModel);
+    }
+    if (this.isWithShapeFeats()) {
+      this.wordShapeFactory.readShapeList(binaryModel);
+    }
+    if (this.isWithClusterFeats()) {
+      this.wordClusterFactory.readClusterIdList(binaryModel);
+    }
+  }
+
+
   public void clean() {
 
     System.out.println("Cleaning word vectors ... ");
@@ -165,6 +228,7 @@ public class Alphabet {
     output += "withShapeFeats= " + this.isWithShapeFeats() + "\n";
     output += "withClusterFeats= " + this.isWithClusterFeats() + "\n";
     output += "withLabelFeats= " + this.isWithLabelFeats() + "\n";
+    output += "featureHashBits= " + this.getFeatureHashBits() + "\n";
     return output;
   }
 }
@@ -8,11 +8,13 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
 import de.dfki.mlt.gnt.config.GlobalConfig;
 
 /**
@@ -155,6 +157,14 @@ public class Data {
   }
 
 
+  public void readLabelSet(BinaryModel binaryModel)
+      throws IOException {
+
+    System.out.println("Load label set from binary model: " + this.labelMapFileName);
+    this.labelSet.readFromBinaryModel(binaryModel, this.labelMapFileName);
+  }
+
+
   public void saveWordSet() {
 
     List<String> sortedWordSet = new ArrayList<>(this.wordSet);
@@ -199,6 +209,14 @@ public class Data {
   }
 
 
+  public void readWordSet(BinaryModel binaryModel)
+      throws IOException {
+
+    System.out.println("\n++++\nLoad known vocabulary from binary model: " + this.wordMapFileName);
+    Collections.addAll(this.wordSet, binaryModel.getStrings(this.wordMapFileName));
+  }
+
+
   private void read(BufferedReader in)
       throws IOException {
 
@@ -0,0 +1,209 @@
+package de.dfki.mlt.gnt.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
+import de.dfki.mlt.gnt.config.ConfigKeys;
+import de.dfki.mlt.gnt.config.GlobalConfig;
+import de.dfki.mlt.gnt.config.ModelConfig;
+
+/**
+ * Splits the training instances into shards by the cluster id of the center word of their
+ * window, as described in doc/splitting_parallel.txt. A separate liblinear model is trained for
+ * each shard, and each window is tagged with the model of its shard.
+ * <p>
+ * Each cluster id with at least shard.min.size training instances gets a shard of its own. The
+ * instances of all smaller clusters, and of words without cluster id, are kept in the fallback
+ * shard 0. The fallback model is also used for clusters not seen in training.
+ * <p>
+ * The model of the fallback shard has the usual model name, so an archive without shards has
+ * exactly one shard. The cluster ids of the other shards are saved in the file shards.txt.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class ModelShards {
+
+  public static final String SHARDS_FILE_NAME = "shards.txt";
+
+  // the cluster id of each shard; shard 0 is the fallback shard and has no cluster id
+  private List<Integer> shardClusterIds = new ArrayList<>();
+  private Map<Integer, Integer> clusterId2shard = new HashMap<>();
+
+
+  private ModelShards() {
+
+    this.shardClusterIds.add(-1);
+  }
+
+
+  /**
+   * @param modelConfig
+   * @return true if a sharded model is trained for the given model config
+   */
+  public static boolean isSharded(ModelConfig modelConfig) {
+
+    return modelConfig.getInt(ConfigKeys.SHARD_MIN_SIZE, 0) > 0;
+  }
+
+
+  /**
+   * @param alphabet
+   * @param word
+   *          the center word of a window
+   * @return the cluster id that decides the shard of the window, -1 if the word has none
+   */
+  public static int getClusterId(Alphabet alphabet, String word) {
+
+    return alphabet.getWordClusterFactory().getClusterIdFeature(word);
+  }
+
+
+  /**
+   * Creates the shards from the cluster ids of all training instances.
+   *
+   * @param instanceClusterIds
+   *          the cluster id of each training instance
+   * @param instanceCnt
+   *          the number of training instances
+   * @param minSize
+   *          the minimal number of training instances of a shard
+   * @return the shards
+   */
+  public static ModelShards create(int[] instanceClusterIds, int instanceCnt, int minSize) {
+
+    // sorted by cluster id, so that the shards do not depend on the order of the instances
+    Map<Integer, Integer> clusterSizes = new TreeMap<>();
+    for (int i = 0; i < instanceCnt; i++) {
+      clusterSizes.merge(instanceClusterIds[i], 1, Integer::sum);
+    }
+    ModelShards modelShards = new ModelShards();
+    int fallbackSize = 0;
+    int smallestClusterId = -1;
+    for (Map.Entry<Integer, Integer> oneCluster : clusterSizes.entrySet()) {
+      if ((oneCluster.getKey() > -1) && (oneCluster.getValue() >= minSize)) {
+        modelShards.addShard(oneCluster.getKey());
+        if ((smallestClusterId == -1)
+            || (oneCluster.getValue() < clusterSizes.get(smallestClusterId))) {
+          smallestClusterId = oneCluster.getKey();
+        }
+      } else {
+        fallbackSize += oneCluster.getValue();
+      }
+    }
+    // the fallback model is needed for unknown clusters, so it must not be empty
+    if ((fallbackSize == 0) && (smallestClusterId > -1)) {
+      modelShards.shardClusterIds.remove(Integer.valueOf(smallestClusterId));
+      modelShards.clusterId2shard.clear();
+      for (int shard = 1; shard < modelShards.shardClusterIds.size(); shard++) {
+        modelShards.clusterId2shard.put(modelShards.shardClusterIds.get(shard), shard);
+      }
+    }
+    return modelShards;
+  }
+
+
+  private void addShard(int clusterId) {
+
+    this.clusterId2shard.put(clusterId, this.shardClusterIds.size());
+    this.shardClusterIds.add(clusterId);
+  }
+
+
+  /**
+   * @return the number of shards, including the fallback shard
+   */
+  public int getShardCnt() {
+
+    return this.shardClusterIds.size();
+  }
+
+
+  /**
+   * @param clusterId
+   * @return the shard of the windows with the given cluster id
+   */
+  public int getShard(int clusterId) {
+
+    Integer shard = this.clusterId2shard.get(clusterId);
+    return (null == shard) ? 0 : shard;
+  }
+
+
+  /**
+   * @param modelName
+   * @param shard
+   * @return the name of the liblinear model of the given shard, without file extension
+   */
+  public String getShardModelName(String modelName, int shard) {
+
+    if (shard == 0) {
+      return modelName;
+    }
+    return modelName + ".cluster" + this.shardClusterIds.get(shard);
+  }
+
+
+  public void save() {
+
+    Path targetPath = GlobalConfig.getModelBuildFolder().resolve(SHARDS_FILE_NAME);
+    try {
+      Files.createDirectories(targetPath.getParent());
+      try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(
+          targetPath, StandardCharsets.UTF_8))) {
+        for (int shard = 1; shard < this.shardClusterIds.size(); shard++) {
+          out.println(this.shardClusterIds.get(shard));
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+
+  public static ModelShards read(Archivator archivator)
+      throws IOException {
+
+    System.out.println("Load model shards from archive: " + SHARDS_FILE_NAME);
+    ModelShards modelShards = new ModelShards();
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(
+        archivator.getInputStream(SHARDS_FILE_NAME), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        modelShards.addShard(Integer.parseInt(line));
+      }
+    }
+    return modelShards;
+  }
+
+
+  public static ModelShards read(BinaryModel binaryModel)
+      throws IOException {
+
+    System.out.println("Load model shards from binary model: " + SHARDS_FILE_NAME);
+    ModelShards modelShards = new ModelShards();
+    for (String oneLine : binaryModel.getStrings(SHARDS_FILE_NAME)) {
+      modelShards.addShard(Integer.parseInt(oneLine));
+    }
+    return modelShards;
+  }
+
+
+  @Override
+  public String toString() {
+
+    return "ModelShards: " + getShardCnt() + " shards, cluster ids: "
+        + this.shardClusterIds.subList(1, this.shardClusterIds.size());
+  }
+}
@@ -1,7 +1,12 @@
 package de.dfki.mlt.gnt.data;
 
 /**
- *
+ * The sizes of the feature types, which determine the offsets of the features in the feature
+ * vector of a window.
+ * <p>
+ * If the features are hashed (feature.hash.bits in the model config), the window vector size is
+ * the size 2^bits of the hashed feature space, independent of the sizes of the feature types,
+ * see {@link de.dfki.mlt.gnt.features.FeatureHasher}.
  *
  * @author Günter Neumann, DFKI
  */
@@ -15,6 +20,8 @@ public class OffSets {
   private int tokenVectorSize = -1;
   private int windowVectorSize = -1;
   private int labelVectorSize = -1;
+  // the number of bits of the hashed feature space, 0 if the features are not hashed
+  private int hashBits = 0;
 
 
   // This is the length of the feature vector of a window element, this is constant,
@@ -40,6 +47,25 @@ public class OffSets {
         (this.wvLeftSize + this.wvRightSize + this.suffixSize + this.shapeSize
             + this.clusterIdSize + this.labelVectorSize);
     this.windowVectorSize = (this.tokenVectorSize * (windowSize * 2 + 1) + 1);
+    this.hashBits = alphabet.getFeatureHashBits();
+    if (this.hashBits > 0) {
+      this.windowVectorSize = 1 << this.hashBits;
+    }
+  }
+
+
+  /**
+   * @return true if the features are hashed into a feature space of size 2^{@link #getHashBits()}
+   */
+  public boolean isHashed() {
+
+    return this.hashBits > 0;
+  }
+
+
+  public int getHashBits() {
+
+    return this.hashBits;
   }
 
 
@@ -151,6 +177,9 @@ public class OffSets {
         + "; clusterIDsize: " + this.clusterIdSize + "; labelVectorsize: " + this.labelVectorSize
         + "; total token vector size: " + this.tokenVectorSize
         + "; total window vector size: " + this.windowVectorSize;
+    if (this.isHashed()) {
+      output += "; hashed with bits: " + this.hashBits;
+    }
     return output;
   }
 }
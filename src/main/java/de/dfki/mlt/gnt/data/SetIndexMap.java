@@ -7,21 +7,29 @@ import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.Objects;
 
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
 
 /**
- *
+ * A bijective mapping of labels to the indices 1 ... size().
+ * <p>
+ * The labels are kept in an array indexed by their index, so {@link #getLabel(int)} is an array
+ * access. The index of a label is found by an open-addressing hash table of indices with linear
+ * probing, so no boxed Integer is created or stored.
  *
  * @author Günter Neumann, DFKI
  */
 public class SetIndexMap {
 
-  private Map<Integer, String> index2label = new TreeMap<Integer, String>();
-  private Map<String, Integer> label2index = new HashMap<String, Integer>();
+  // the label of each index; index 0 is not used
+  private String[] index2label = new String[16];
+  // the index of the label of each slot, 0 for an empty slot; the length is a power of 2
+  private int[] label2index = new int[32];
+  // the number of different labels in label2index
+  private int entryCnt = 0;
   private int labelCnt = 0;
 
 
@@ -41,13 +49,10 @@ public class SetIndexMap {
    */
   public int addLabel(String label) {
 
-    int index = -1;
-    if (this.label2index.containsKey(label)) {
-      index = this.label2index.get(label);
-    } else {
+    int index = this.getIndex(label);
+    if (index == -1) {
       this.labelCnt++;
-      this.label2index.put(label, this.labelCnt);
-      this.index2label.put(this.labelCnt, label);
+      this.setLabel(label, this.labelCnt);
       index = this.labelCnt;
     }
     return index;
@@ -56,28 +61,91 @@ public class SetIndexMap {
 
   public String getLabel(int index) {
 
-    return this.index2label.get(index);
+    if ((index < 1) || (index > this.labelCnt)) {
+      return null;
+    }
+    return this.index2label[index];
   }
 
 
   public int getIndex(String label) {
 
-    Integer index = this.label2index.get(label);
-    if (index == null) {
+    int index = this.label2index[findSlot(label)];
+    if (index == 0) {
       return -1;
     }
     return index;
   }
 
 
+  // sets the label of the given index; if the label already has an index, it gets the new index,
+  // but its old index still has the label
+  private void setLabel(String label, int index) {
+
+    if (index >= this.index2label.length) {
+      this.index2label = Arrays.copyOf(this.index2label, Math.max(index + 1, 2 * index));
+    }
+    this.index2label[index] = label;
+    this.labelCnt = Math.max(index, this.labelCnt);
+
+    int slot = findSlot(label);
+    if (this.label2index[slot] == 0) {
+      this.entryCnt++;
+    }
+    this.label2index[slot] = index;
+    // keep the table at most half full
+    if (2 * this.entryCnt > this.label2index.length) {
+      rehash(2 * this.label2index.length);
+    }
+  }
+
+
+  // the slot of the given label, or the empty slot where it would be added
+  private int findSlot(String label) {
+
+    int mask = this.label2index.length - 1;
+    int slot = hash(label) & mask;
+    while (this.label2index[slot] != 0) {
+      if (Objects.equals(this.index2label[this.label2index[slot]], label)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+
+  private void rehash(int newTableLength) {
+
+    this.label2index = new int[newTableLength];
+    this.entryCnt = 0;
+    // in ascending order of the index, so that a label gets its last index
+    for (int index = 1; index <= this.labelCnt; index++) {
+      int slot = findSlot(this.index2label[index]);
+      if (this.label2index[slot] == 0) {
+        this.entryCnt++;
+      }
+      this.label2index[slot] = index;
+    }
+  }
+
+
+  // like HashMap, null is a valid label, e.g., the dummy tag of an unlabeled token
+  private static int hash(String label) {
+
+    int h = Objects.hashCode(label);
+    return h ^ (h >>> 16);
+  }
+
+
   public void write(Path targetPath) {
 
     try {
       Files.createDirectories(targetPath.getParent());
       try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(
           targetPath, StandardCharsets.UTF_8))) {
-        for (int key : this.index2label.keySet()) {
-          out.println(this.index2label.get(key));
+        for (int index = 1; index <= this.labelCnt; index++) {
+          out.println(this.index2label[index]);
         }
       }
     } catch (IOException e) {
@@ -107,6 +175,16 @@ public class SetIndexMap {
   }
 
 
+  public void readFromBinaryModel(BinaryModel binaryModel, String setFileName)
+      throws IOException {
+
+    String[] labels = binaryModel.getStrings(setFileName);
+    for (int i = 0; i < labels.length; i++) {
+      this.setLabel(labels[i], i + 1);
+    }
+  }
+
+
   private void read(BufferedReader in)
       throws IOException {
 
@@ -114,17 +192,16 @@ public class SetIndexMap {
     String line;
     while ((line = in.readLine()) != null) {
       cnt++;
-      this.label2index.put(line, cnt);
-      this.index2label.put(cnt, line);
+      this.setLabel(line, cnt);
     }
-    this.labelCnt = cnt++;
   }
 
 
   public void clean() {
 
-    this.index2label.clear();
-    this.label2index.clear();
+    this.index2label = new String[16];
+    this.label2index = new int[32];
+    this.entryCnt = 0;
     this.labelCnt = 0;
   }
 
@@ -133,8 +210,8 @@ public class SetIndexMap {
   public String toString() {
 
     String output = "";
-    for (int index : this.index2label.keySet()) {
-      output += index + ": " + this.index2label.get(index) + "\n";
+    for (int index = 1; index <= this.labelCnt; index++) {
+      output += index + ": " + this.index2label[index] + "\n";
     }
     return output;
   }
@@ -1,28 +1,37 @@
 package de.dfki.mlt.gnt.data;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import de.dfki.mlt.gnt.features.WordFeatures;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
+import de.dfki.mlt.gnt.features.FeatureHasher;
+import de.dfki.mlt.gnt.features.SentenceFeatures;
 
 /**
  * Create local context window for tagging t_i of size 2*windowSize+1 centered around t_i.
  * The idea of the approach is as follow:
  * - determine number of padding and context elements for center element i
- * - for each element of window, create 2*windowSize +1 elements of WordFeatures.
+ * - for each element of window, create 2*windowSize +1 elements with the features of the token.
  * Use left and right sentence pads "<s>" and "</s>" for ensuring sufficient context for all words.
  * They are needed to make sure that offSets are computed correctly
- * I will do in that way, that I treat pads as empty WordFeatures with some dummy string.
+ * I will do in that way, that I treat pads as empty elements without any features.
+ * <p>
+ * The features of the tokens are shared by all windows of a sentence via
+ * {@link SentenceFeatures}; they are computed for window element 0, so the feature indices of
+ * element k have to be shifted by {@link #getElementShift(int)}. Only the label features depend
+ * on the window element and are kept by the window, see {@link #getLabelFeature(int)}.
+ * The feature vector of a filled window is written to a {@link FeatureBuffer} using
+ * {@link #writeFeatures(FeatureBuffer)}.
+ * <p>
+ * If the features are hashed, the token features and label features are feature keys, which are
+ * only hashed together with their window element when the feature vector is written, see
+ * {@link FeatureHasher}; the element shift is then 0.
  *
  * @author Günter Neumann, DFKI
  */
 public class Window {
 
-  // Used to control the use of labels from left context as features in predicting label
-  // for current token
-  private static boolean recurrent = false;
-
-  private static int windowCnt = 0;
+  // counts all windows created so far; shared by all threads, so it is atomic
+  private static final AtomicInteger windowCnt = new AtomicInteger();
   private Data data;
   private Alphabet alphabet;
   private OffSets offSets;
@@ -31,33 +40,64 @@ public class Window {
   private int center;
   // radius of the window
   private int windowSize = 0;
-  private List<WordFeatures> elements = new ArrayList<WordFeatures>();
+  // the token features of the sentence, shared with the other windows of the sentence
+  private SentenceFeatures sentenceFeatures;
+  // the number of elements of the filled window
+  private int elementCnt = 0;
+  // the position in the sentence of the token of each element, or -1 for padding elements
+  private int[] elementPositions = new int[0];
+  // the feature index of the label of each element, or NO_LABEL_FEATURE
+  private int[] labelFeatures = new int[0];
+  private boolean adjust = false;
   // Total length of the window by adding all features of each window element
   private int windowLength = 0;
   private int labelIndex = -1;
 
+  /** label feature of an element without label feature */
+  public static final int NO_LABEL_FEATURE = -1;
+
 
   public Window(Sentence sentence, int i, int windowSize, Data data,
       Alphabet alphabet) {
 
-    Window.windowCnt++;
+    this(sentence, i, windowSize, data, alphabet, new SentenceFeatures(sentence));
+  }
+
+
+  /**
+   * Creates a window that shares the token features of the given sentence features with the
+   * other windows of the sentence.
+   *
+   * @param sentence
+   * @param i
+   * @param windowSize
+   * @param data
+   * @param alphabet
+   * @param sentenceFeatures
+   *          the token features of sentence
+   */
+  public Window(Sentence sentence, int i, int windowSize, Data data,
+      Alphabet alphabet, SentenceFeatures sentenceFeatures) {
+
+    Window.windowCnt.incrementAndGet();
     this.windowSize = windowSize;
     this.alphabet = alphabet;
     this.data = data;
     this.sentence = sentence;
     this.center = i;
+    this.sentenceFeatures = sentenceFeatures;
   }
 
 
   public static int getWindowCnt() {
 
-    return windowCnt;
+    return windowCnt.get();
   }
 
 
   public static void setWindowCnt(int windowCnt) {
 
-    Window.windowCnt = windowCnt;
+    Window.windowCnt.set(windowCnt);
   }
 
 
@@ -73,15 +113,12 @@ public class Window {
   }
 
 
-  public List<WordFeatures> getElements() {
-
-    return this.elements;
-  }
-
-
-  public void setElements(List<WordFeatures> elements) {
+  /**
+   * @return the number of elements of the filled window
+   */
+  public int getElementCnt() {
 
-    this.elements = elements;
+    return this.elementCnt;
   }
 
 
@@ -109,10 +146,90 @@ public class Window {
   }
 
 
+  /**
+   * Returns the value that has to be added to the feature indices of the given element.
+   *
+   * @param elementIndex
+   * @return the shift of the feature indices
+   */
+  public int getElementShift(int elementIndex) {
+
+    return (this.adjust && !this.offSets.isHashed())
+        ? (elementIndex * this.offSets.getTokenVectorSize()) : 0;
+  }
+
+
+  /**
+   * @param elementIndex
+   * @return the feature index of the label of the given element or {@link #NO_LABEL_FEATURE}
+   */
+  public int getLabelFeature(int elementIndex) {
+
+    return this.labelFeatures[elementIndex];
+  }
+
+
+  /**
+   * Writes the feature vector of the filled window to the given buffer, which is cleared first.
+   * The feature indices are in ascending order, if adjust was used for filling the window.
+   *
+   * @param target
+   *          the buffer to write the features to
+   */
+  public void writeFeatures(FeatureBuffer target) {
+
+    if (this.adjust && this.offSets.isHashed()) {
+      writeHashedFeatures(target);
+      return;
+    }
+    target.clear();
+    FeatureBuffer rows = this.sentenceFeatures.getRows();
+    for (int element = 0; element < this.elementCnt; element++) {
+      int wordPosition = this.elementPositions[element];
+      if (wordPosition > -1) {
+        target.addAll(rows, this.sentenceFeatures.getRowStart(wordPosition),
+            this.sentenceFeatures.getRowLength(wordPosition), getElementShift(element));
+      }
+      if (this.labelFeatures[element] != NO_LABEL_FEATURE) {
+        target.add(this.labelFeatures[element], 1);
+      }
+    }
+  }
+
+
+  // hashes the feature keys of each element together with the element, so the features of
+  // different elements get different indices
+  private void writeHashedFeatures(FeatureBuffer target) {
+
+    target.clear();
+    int bits = this.offSets.getHashBits();
+    FeatureBuffer rows = this.sentenceFeatures.getRows();
+    for (int element = 0; element < this.elementCnt; element++) {
+      int wordPosition = this.elementPositions[element];
+      if (wordPosition > -1) {
+        int rowStart = this.sentenceFeatures.getRowStart(wordPosition);
+        int rowEnd = rowStart + this.sentenceFeatures.getRowLength(wordPosition);
+        for (int i = rowStart; i < rowEnd; i++) {
+          target.add(
+              FeatureHasher.getFeatureIndex(rows.getIndex(i), element, bits), rows.getValue(i));
+        }
+      }
+      if (this.labelFeatures[element] != NO_LABEL_FEATURE) {
+        target.add(FeatureHasher.getFeatureIndex(this.labelFeatures[element], element, bits), 1);
+      }
+    }
+    target.sortAndMergeByIndex();
+  }
+
+
   public void clean() {
 
-    this.elements = new ArrayList<WordFeatures>();
+    this.elementCnt = 0;
+    this.elementPositions = new int[0];
+    this.labelFeatures = new int[0];
     this.windowLength = 0;
+    // the token features are not needed anymore, when all windows of the sentence are cleaned
+    this.sentenceFeatures = null;
   }
 
 
@@ -148,6 +265,14 @@ public class Window {
    */
   public void fillWindow(boolean train, boolean adjust) {
 
+    if (this.sentenceFeatures == null) {
+      this.sentenceFeatures = new SentenceFeatures(this.sentence);
+    }
+    this.adjust = adjust;
+    this.elementCnt = 0;
+    this.elementPositions = new int[2 * this.windowSize + 1];
+    this.labelFeatures = new int[2 * this.windowSize + 1];
+
     // compute left/right borders of the size of the window elements, which depends on windowSize
     int max = this.sentence.getWords().length - 1; // Because elements are indexed from 0 upwards
     int leftPads = (this.center < this.windowSize) ? (this.windowSize - this.center) : 0;
@@ -156,140 +281,90 @@ public class Window {
         ((max - this.center) < this.windowSize) ? (max - this.center) : this.windowSize;
     int rightPads = (this.windowSize - rightContext);
 
-    // the surface word string determined from the training examples
-    // Use "<BOUNDARY>" as dummy for padding elements
-    String wordString = "";
-    WordFeatures wordFeatures = null;
-    // counts the dynamically created window element and use it as index in WordFeatures
-    int elementCnt = 0;
-
     // printWindowIntervalInfo(max, leftPads, leftContext, rightContext, rightPads);
 
     // Based on the computed intervals above, this also indicates the number of window elements.
     // based on value this.size;
-    // NOTE Does not add label
 
     // Add left padding elements to sentence (if any); needed later to correctly
     // compute global offSets
+    // Use "<BOUNDARY>" as dummy for padding elements
 
     for (int i = 0; i < leftPads; i++) {
       // Make sure that center element does not cross sentence boundary
       if (i <= this.sentence.getTags().length) {
-        wordString = "<BOUNDARY>";
-        // wordLoc does not matter here, because empty WordFeatures class is created
-        wordFeatures = createWordFeatures(this.sentence, wordString, i, elementCnt, train, adjust);
-        this.windowLength += wordFeatures.getLength();
-        this.elements.add(wordFeatures);
-        elementCnt++;
+        addBoundaryElement();
       }
     }
 
-    // Window.recurrent = true means that the labels from the left context will be used
-
-    Window.recurrent = true;
-
-    // Add left context elements
+    // Add left context elements;
+    // recurrent = true means that the labels from the left context will be used
     for (int i = (this.center - leftContext); i < this.center; i++) {
-      wordString = this.sentence.getWords()[i];
-      wordFeatures = createWordFeatures(this.sentence, wordString, i, elementCnt, train, adjust);
-      this.windowLength += wordFeatures.getLength();
-      this.elements.add(wordFeatures);
-      elementCnt++;
+      addTokenElement(i, train, adjust, true);
     }
 
-    Window.recurrent = false;
     // Add token center element
-    wordString = this.sentence.getWords()[this.center];
-    wordFeatures =
-        createWordFeatures(this.sentence, wordString, this.center, elementCnt, train, adjust);
-    this.windowLength += wordFeatures.getLength();
-    this.elements.add(wordFeatures);
-    elementCnt++;
+    addTokenElement(this.center, train, adjust, false);
 
     // right content elements;
-    // set wordLoc always to 1, because can never be 0
     for (int i = this.center + 1; i < (this.center + 1 + rightContext); i++) {
-      wordString = this.sentence.getWords()[i];
-      wordFeatures = createWordFeatures(this.sentence, wordString, i, elementCnt, train, adjust);
-      this.windowLength += wordFeatures.getLength();
-      this.elements.add(wordFeatures);
-      elementCnt++;
+      addTokenElement(i, train, adjust, false);
     }
     // right sentence pads
 
     for (int i = (this.center + rightContext); i < (this.center + rightContext + rightPads); i++) {
       // Make sure that center element does not cross sentence boundary
       if (i <= this.sentence.getTags().length) {
-        wordString = "<BOUNDARY>";
-        // wordLoc does not matter here, because empty WordFeatures class is created
-        wordFeatures = createWordFeatures(this.sentence, wordString, i, elementCnt, train, adjust);
-        this.windowLength += wordFeatures.getLength();
-        this.elements.add(wordFeatures);
-        elementCnt++;
+        addBoundaryElement();
       }
     }
   }
 
 
-  // wordPosition is 0 if word is first word in sentence, else 1
+  private void addBoundaryElement() {
+
+    // padding elements have no features at all, not even a label feature
+    this.elementPositions[this.elementCnt] = -1;
+    this.labelFeatures[this.elementCnt] = NO_LABEL_FEATURE;
+    this.elementCnt++;
+  }
+
+
   /**
-   * Create a feature vector for a word.
-   * @param word
+   * Adds the features of the word at the given position of the sentence as next element.
+   *
    * @param wordPosition
-   * @param elementCnt
+   * @param train
    * @param adjust
-   * @return
+   * @param recurrent
+   *          if true, the label of the word is used as feature (left context only)
    */
-  private WordFeatures createWordFeatures(
-      Sentence sentenceParam, String word, int wordPosition, int elementCnt,
-      boolean train, boolean adjust) {
-
-    // Get left and right word of word -> later used for handing unknown words
-    Pair<String, String> contextWords = getContextWords(sentenceParam, wordPosition);
-    // create a new WordFeatures element
-    WordFeatures wordFeatures =
-        new WordFeatures(word, contextWords.getLeft(), contextWords.getRight());
-    // set its index
-    wordFeatures.setIndex(elementCnt);
-    // set its offsets using the values from OffSets which are pre-initialised after data has been
-    // loaded and before training starts
-    wordFeatures.setOffSets(this.alphabet, this.offSets);
-    // indicate whether relative feature names (indices) should be adjusted to global ones according
-    // to the rules of Liblinear
-    wordFeatures.setAdjust(adjust);
-
-    if (Window.recurrent) {
-      // Needed for keeping predicted labels
-      if (word.equals("<BOUNDARY>")) {
-        // Treat as dummy
-        wordFeatures.setLabelIndex(this.offSets.getLabelVectorSize());
-      } else {
-        int tagIndex = this.data.getLabelSet().getIndex(sentenceParam.getTags()[wordPosition]);
-        wordFeatures.setLabelIndex(tagIndex);
-
-      }
-      //System.out.println("Word: " + word + ", Label index: " + wordFeatures.getLabelIndex());
+  private void addTokenElement(
+      int wordPosition, boolean train, boolean adjust, boolean recurrent) {
 
+    // a word that looks like a sentence padding element gets empty features
+    if (this.sentence.getWords()[wordPosition].endsWith("<BOUNDARY>")) {
+      addBoundaryElement();
+      return;
     }
-    wordFeatures.setOffSets(this.offSets);
-    // fill all the window's elements
-    wordFeatures.fillWordFeatures(word, wordPosition, this.alphabet, train);
-    return wordFeatures;
-  }
-
 
-  private Pair<String, String> getContextWords(Sentence sentenceParam, int wordIndex) {
-
-    /*
-    System.out.println(
-        "Sentence: " + sentence.getWordArray().length + " Wordindex: " + wordIndex);
-    */
-    String leftWord = (wordIndex == 0)
-        ? "<BOUNDARY>" : this.sentence.getWords()[wordIndex - 1];
-    String rightWord = (wordIndex >= sentenceParam.getWords().length - 1)
-        ? "<BOUNDARY>" : this.sentence.getWords()[wordIndex + 1];
-
-    return new Pair<String, String>(leftWord, rightWord);
+    this.sentenceFeatures.computeTokenFeatures(
+        wordPosition, this.alphabet, this.offSets, train, adjust);
+    this.windowLength += this.sentenceFeatures.getRowLength(wordPosition);
+
+    int labelFeature = NO_LABEL_FEATURE;
+    if (this.alphabet.isWithLabelFeats()) {
+      // Needed for keeping predicted labels; other elements use the dummy label
+      int tagIndex = (recurrent)
+          ? this.data.getLabelSet().getIndex(this.sentence.getTags()[wordPosition])
+          : -1;
+      labelFeature = this.sentenceFeatures.getLabelFeatureIndex(
+          tagIndex, this.alphabet, this.offSets, adjust) + getElementShift(this.elementCnt);
+      this.windowLength++;
+    }
+    this.elementPositions[this.elementCnt] = wordPosition;
+    this.labelFeatures[this.elementCnt] = labelFeature;
+    this.elementCnt++;
   }
 
 
@@ -338,11 +413,17 @@ public class Window {
   @Override
   public String toString() {
 
-    String output =
-        "Window index:" + Window.windowCnt + " Window label index: " + this.getLabelIndex() + "\n";
+    String output = "Window index:" + Window.windowCnt.get()
+        + " Window label index: " + this.getLabelIndex() + "\n";
     output += "Window total length:" + this.getWindowLength() + "\n";
-    for (WordFeatures wordFeatures : this.elements) {
-      output += wordFeatures.toString();
+    for (int i = 0; i < this.elementCnt; i++) {
+      output += "\nElement-" + i + " position: " + this.elementPositions[i]
+          + " shift: " + getElementShift(i) + " label feature: " + getLabelFeature(i);
+    }
+    if (this.sentenceFeatures != null) {
+      FeatureBuffer features = new FeatureBuffer();
+      writeFeatures(features);
+      output += "\nFeatures: " + features.toString();
     }
     return output;
   }
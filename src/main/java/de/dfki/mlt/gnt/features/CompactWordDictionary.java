@@ -0,0 +1,174 @@
+package de.dfki.mlt.gnt.features;
+
+import java.util.Arrays;
+
+/**
+ * A compact dictionary from words to int values, for large vocabularies such as the word
+ * clusters of Marmot with millions of words.
+ * <p>
+ * Unlike a {@code HashMap<String, Integer>}, it does not keep an object per word: the characters
+ * of all words are stored one after the other in a single char array, and each word is identified
+ * by its entry number in the arrays of word starts, hash codes and values. The entries are found
+ * by an open-addressing hash table of entry numbers with linear probing.
+ * <p>
+ * A word can be looked up with its digits normalized to '0', without creating the normalized
+ * word, see {@link #get(String, boolean)}.
+ * <p>
+ * The dictionary can be read by several threads, once all words are added.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public final class CompactWordDictionary {
+
+  /** returned by {@link #get(String, boolean)} for an unknown word */
+  public static final int NO_VALUE = -1;
+
+  // the characters of all words
+  private char[] chars = new char[1024];
+  // the start of each word in chars, followed by the end of the last word
+  private int[] wordStarts = new int[65];
+  private int[] hashCodes = new int[64];
+  private int[] values = new int[64];
+  private int size = 0;
+  // entry number + 1 of each slot, 0 for an empty slot; the length is a power of 2
+  private int[] table = new int[128];
+
+
+  /**
+   * @return the number of words
+   */
+  public int size() {
+
+    return this.size;
+  }
+
+
+  /**
+   * Adds the given word with the given value; if the word is already known, its value is replaced.
+   *
+   * @param word
+   * @param value
+   */
+  public void put(String word, int value) {
+
+    int hashCode = hash(word, false);
+    int slot = findSlot(word, false, hashCode);
+    if (this.table[slot] != 0) {
+      this.values[this.table[slot] - 1] = value;
+      return;
+    }
+
+    if (this.size == this.values.length) {
+      int newCapacity = Math.max(2 * this.size, 64);
+      this.wordStarts = Arrays.copyOf(this.wordStarts, newCapacity + 1);
+      this.hashCodes = Arrays.copyOf(this.hashCodes, newCapacity);
+      this.values = Arrays.copyOf(this.values, newCapacity);
+    }
+    int start = this.wordStarts[this.size];
+    int end = start + word.length();
+    if (end > this.chars.length) {
+      this.chars = Arrays.copyOf(this.chars, Math.max(end, 2 * this.chars.length));
+    }
+    word.getChars(0, word.length(), this.chars, start);
+    this.wordStarts[this.size + 1] = end;
+    this.hashCodes[this.size] = hashCode;
+    this.values[this.size] = value;
+    this.size++;
+    this.table[slot] = this.size;
+
+    // keep the table at most half full
+    if (2 * this.size > this.table.length) {
+      rehash(2 * this.table.length);
+    }
+  }
+
+
+  /**
+   * Shrinks the arrays to the number of words, once all words are added.
+   */
+  public void trimToSize() {
+
+    this.chars = Arrays.copyOf(this.chars, this.wordStarts[this.size]);
+    this.wordStarts = Arrays.copyOf(this.wordStarts, this.size + 1);
+    this.hashCodes = Arrays.copyOf(this.hashCodes, this.size);
+    this.values = Arrays.copyOf(this.values, this.size);
+  }
+
+
+  /**
+   * @param word
+   *          the word
+   * @param normalizeDigits
+   *          if true, each digit 0-9 of the word is looked up as '0'
+   * @return the value of the word, or {@link #NO_VALUE} if the word is unknown
+   */
+  public int get(String word, boolean normalizeDigits) {
+
+    int entry = this.table[findSlot(word, normalizeDigits, hash(word, normalizeDigits))];
+    return (entry == 0) ? NO_VALUE : this.values[entry - 1];
+  }
+
+
+  // the slot of the given word, or the empty slot where it would be added
+  private int findSlot(String word, boolean normalizeDigits, int hashCode) {
+
+    int mask = this.table.length - 1;
+    int slot = hashCode & mask;
+    while (this.table[slot] != 0) {
+      int entry = this.table[slot] - 1;
+      if ((this.hashCodes[entry] == hashCode) && equalsWord(entry, word, normalizeDigits)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+
+  private boolean equalsWord(int entry, String word, boolean normalizeDigits) {
+
+    int start = this.wordStarts[entry];
+    if (this.wordStarts[entry + 1] - start != word.length()) {
+      return false;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      char ch = word.charAt(i);
+      if (normalizeDigits && (ch >= '0') && (ch <= '9')) {
+        ch = '0';
+      }
+      if (this.chars[start + i] != ch) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  private void rehash(int newTableLength) {
+
+    this.table = new int[newTableLength];
+    int mask = newTableLength - 1;
+    for (int entry = 0; entry < this.size; entry++) {
+      int slot = this.hashCodes[entry] & mask;
+      while (this.table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      this.table[slot] = entry + 1;
+    }
+  }
+
+
+  // String.hashCode() of the (normalized) word, with the high bits spread to the low bits
+  private static int hash(String word, boolean normalizeDigits) {
+
+    int h = 0;
+    for (int i = 0; i < word.length(); i++) {
+      char ch = word.charAt(i);
+      if (normalizeDigits && (ch >= '0') && (ch <= '9')) {
+        ch = '0';
+      }
+      h = 31 * h + ch;
+    }
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,177 @@
+package de.dfki.mlt.gnt.features;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of features, each given by its feature index and value, which are kept in two
+ * parallel primitive arrays. The arrays are only replaced when they are too small, so a buffer
+ * that is cleared and reused (e.g., once per window) soon stops allocating memory.
+ * <p>
+ * A buffer is not thread-safe; each thread uses its own buffer.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class FeatureBuffer {
+
+  private int[] indices;
+  private double[] values;
+  private int size = 0;
+  // buffers for sorting, only allocated when needed
+  private long[] sortKeys = new long[0];
+  private double[] sortValues = new double[0];
+
+
+  public FeatureBuffer() {
+
+    this(64);
+  }
+
+
+  public FeatureBuffer(int initialCapacity) {
+
+    this.indices = new int[initialCapacity];
+    this.values = new double[initialCapacity];
+  }
+
+
+  public int size() {
+
+    return this.size;
+  }
+
+
+  public int getIndex(int i) {
+
+    return this.indices[i];
+  }
+
+
+  public double getValue(int i) {
+
+    return this.values[i];
+  }
+
+
+  /**
+   * Replaces the feature index at the given position.
+   *
+   * @param i
+   * @param index
+   */
+  public void setIndex(int i, int index) {
+
+    this.indices[i] = index;
+  }
+
+
+  public void clear() {
+
+    this.size = 0;
+  }
+
+
+  /**
+   * Adds a feature at the end of the buffer.
+   *
+   * @param index
+   *          the feature index
+   * @param value
+   *          the feature value
+   */
+  public void add(int index, double value) {
+
+    if (this.size == this.indices.length) {
+      int newCapacity = Math.max(16, 2 * this.size);
+      this.indices = Arrays.copyOf(this.indices, newCapacity);
+      this.values = Arrays.copyOf(this.values, newCapacity);
+    }
+    this.indices[this.size] = index;
+    this.values[this.size] = value;
+    this.size++;
+  }
+
+
+  /**
+   * Adds the features start ... start + length - 1 of the given buffer, with shift added to each
+   * feature index.
+   *
+   * @param source
+   * @param start
+   * @param length
+   * @param shift
+   */
+  public void addAll(FeatureBuffer source, int start, int length, int shift) {
+
+    for (int i = start; i < (start + length); i++) {
+      add(source.indices[i] + shift, source.values[i]);
+    }
+  }
+
+
+  /**
+   * Sorts the features start ... end - 1 by index in ascending order. Uses insertion sort, which
+   * is fast for the few features of a single token.
+   *
+   * @param start
+   * @param end
+   */
+  public void sortByIndex(int start, int end) {
+
+    for (int i = start + 1; i < end; i++) {
+      int index = this.indices[i];
+      double value = this.values[i];
+      int j = i - 1;
+      while ((j >= start) && (this.indices[j] > index)) {
+        this.indices[j + 1] = this.indices[j];
+        this.values[j + 1] = this.values[j];
+        j--;
+      }
+      this.indices[j + 1] = index;
+      this.values[j + 1] = value;
+    }
+  }
+
+
+  /**
+   * Sorts the features by index in ascending order and merges features with the same index by
+   * adding their values, e.g., after feature hashing.
+   */
+  public void sortAndMergeByIndex() {
+
+    if (this.sortKeys.length < this.size) {
+      this.sortKeys = new long[this.indices.length];
+      this.sortValues = new double[this.indices.length];
+    }
+    // the index in the upper half, the position in the lower half; feature indices are positive
+    for (int i = 0; i < this.size; i++) {
+      this.sortKeys[i] = ((long)this.indices[i] << 32) | i;
+    }
+    Arrays.sort(this.sortKeys, 0, this.size);
+    System.arraycopy(this.values, 0, this.sortValues, 0, this.size);
+
+    int mergedSize = 0;
+    for (int i = 0; i < this.size; i++) {
+      int index = (int)(this.sortKeys[i] >>> 32);
+      double value = this.sortValues[(int)this.sortKeys[i]];
+      if ((mergedSize > 0) && (this.indices[mergedSize - 1] == index)) {
+        this.values[mergedSize - 1] += value;
+      } else {
+        this.indices[mergedSize] = index;
+        this.values[mergedSize] = value;
+        mergedSize++;
+      }
+    }
+    this.size = mergedSize;
+  }
+
+
+  @Override
+  public String toString() {
+
+    StringBuilder output = new StringBuilder();
+    for (int i = 0; i < this.size; i++) {
+      output.append("(" + this.indices[i] + "," + this.values[i] + ")");
+    }
+    return output.toString();
+  }
+}
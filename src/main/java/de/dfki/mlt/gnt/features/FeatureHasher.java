@@ -0,0 +1,82 @@
+package de.dfki.mlt.gnt.features;
+
+/**
+ * Maps features into a feature space of fixed size 2^bits, independent of the number of known
+ * words, suffixes, shapes etc. It is used instead of the offsets of the feature types, if
+ * feature.hash.bits is set in the model config, see {@link de.dfki.mlt.gnt.data.OffSets}.
+ * <p>
+ * A feature is hashed in two steps: the token features, which are shared by all windows of a
+ * sentence, only hold a key of feature type and feature id, see {@link #getFeatureKey(int, int)};
+ * the window then hashes the key together with the window element to the final feature index,
+ * see {@link #getFeatureIndex(int, int, int)}. Different features may get the same index; their
+ * values are then added, see {@link FeatureBuffer#sortAndMergeByIndex()}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public final class FeatureHasher {
+
+  /** feature type of the left distributed word features */
+  public static final int LEFT_WORD_TYPE = 1;
+  /** feature type of the right distributed word features */
+  public static final int RIGHT_WORD_TYPE = 2;
+  /** feature type of the shape feature */
+  public static final int SHAPE_TYPE = 3;
+  /** feature type of the suffix features; the feature id is the hash code of the suffix */
+  public static final int SUFFIX_TYPE = 4;
+  /** feature type of the cluster id feature */
+  public static final int CLUSTER_TYPE = 5;
+  /** feature type of the label feature */
+  public static final int LABEL_TYPE = 6;
+
+  /** the highest supported number of bits */
+  public static final int MAX_BITS = 30;
+
+
+  private FeatureHasher() {
+
+    // only static methods
+  }
+
+
+  /**
+   * @param featureType
+   *          one of the feature types of this class
+   * @param featureId
+   *          the id of the feature within its type
+   * @return the key of the feature, independent of the window element; it is never negative, so
+   *         it cannot be confused with a missing feature such as
+   *         {@link de.dfki.mlt.gnt.data.Window#NO_LABEL_FEATURE}
+   */
+  public static int getFeatureKey(int featureType, int featureId) {
+
+    return mix(31 * featureId + featureType) & Integer.MAX_VALUE;
+  }
+
+
+  /**
+   * @param featureKey
+   *          the key of the feature
+   * @param element
+   *          the index of the window element
+   * @param bits
+   *          the number of bits of the feature space
+   * @return the feature index in 1 ... 2^bits
+   */
+  public static int getFeatureIndex(int featureKey, int element, int bits) {
+
+    return 1 + (mix(featureKey + 0x9E3779B9 * (element + 1)) >>> (32 - bits));
+  }
+
+
+  // the finalizer of MurmurHash3, which spreads every input bit over all output bits
+  private static int mix(int value) {
+
+    int h = value;
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
@@ -0,0 +1,168 @@
+package de.dfki.mlt.gnt.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A trie of the reversed known suffixes, which finds all known suffixes of a word by walking
+ * the characters of the word from its end, without creating a substring for each suffix.
+ * <p>
+ * The trie is compiled into primitive arrays: the nodes are numbered in breadth-first order,
+ * so the children of each node are consecutive nodes, sorted by the character of their edge.
+ * The children of node k are the nodes firstChild[k] ... firstChild[k + 1] - 1, and a child is
+ * found by binary search of its character in edgeChars. Node 0 is the root, i.e., the empty
+ * suffix. A node that ends a known suffix has its suffix id, the other nodes have 0.
+ * <p>
+ * The trie is only read after construction, so it can be shared by several threads.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class ReversedSuffixTrie {
+
+  // the character of the edge from the parent to each node
+  private char[] edgeChars;
+  // the first child of each node, followed by the node count
+  private int[] firstChild;
+  // the suffix id of each node, 0 if no known suffix ends at the node
+  private int[] suffixIds;
+
+
+  /**
+   * Builds the trie of the given suffixes.
+   *
+   * @param suffix2num
+   *          the known suffixes with their ids, which must be greater than 0
+   */
+  public ReversedSuffixTrie(Map<String, Integer> suffix2num) {
+
+    // in sorted order, the reversed suffixes below each node are a consecutive range, in which
+    // the suffix of the node itself comes first and the suffixes of each child follow in turn
+    List<String> reversedSuffixes = new ArrayList<>(suffix2num.size());
+    for (String oneSuffix : suffix2num.keySet()) {
+      reversedSuffixes.add(reverse(oneSuffix));
+    }
+    reversedSuffixes.sort(null);
+
+    int capacity = Math.max(16, 2 * reversedSuffixes.size());
+    this.edgeChars = new char[capacity];
+    this.suffixIds = new int[capacity];
+    this.firstChild = new int[capacity + 1];
+    // the range of reversed suffixes of each node, for nodes not expanded yet
+    int[] rangeStarts = new int[capacity];
+    int[] rangeEnds = new int[capacity];
+    rangeEnds[0] = reversedSuffixes.size();
+    int nodeCnt = 1;
+
+    // breadth-first: node k is at depth d, if all suffixes of its range share d characters
+    int[] depths = new int[capacity];
+    for (int node = 0; node < nodeCnt; node++) {
+      int depth = depths[node];
+      int start = rangeStarts[node];
+      int end = rangeEnds[node];
+      if ((start < end) && (reversedSuffixes.get(start).length() == depth)) {
+        this.suffixIds[node] = suffix2num.get(reverse(reversedSuffixes.get(start)));
+        start++;
+      }
+      this.firstChild[node] = nodeCnt;
+      while (start < end) {
+        char edgeChar = reversedSuffixes.get(start).charAt(depth);
+        int childEnd = start + 1;
+        while ((childEnd < end) && (reversedSuffixes.get(childEnd).charAt(depth) == edgeChar)) {
+          childEnd++;
+        }
+        if (nodeCnt == this.edgeChars.length) {
+          int newCapacity = 2 * nodeCnt;
+          this.edgeChars = Arrays.copyOf(this.edgeChars, newCapacity);
+          this.suffixIds = Arrays.copyOf(this.suffixIds, newCapacity);
+          this.firstChild = Arrays.copyOf(this.firstChild, newCapacity + 1);
+          rangeStarts = Arrays.copyOf(rangeStarts, newCapacity);
+          rangeEnds = Arrays.copyOf(rangeEnds, newCapacity);
+          depths = Arrays.copyOf(depths, newCapacity);
+        }
+        this.edgeChars[nodeCnt] = edgeChar;
+        rangeStarts[nodeCnt] = start;
+        rangeEnds[nodeCnt] = childEnd;
+        depths[nodeCnt] = depth + 1;
+        nodeCnt++;
+        start = childEnd;
+      }
+    }
+    this.firstChild[nodeCnt] = nodeCnt;
+    this.edgeChars = Arrays.copyOf(this.edgeChars, nodeCnt);
+    this.suffixIds = Arrays.copyOf(this.suffixIds, nodeCnt);
+    this.firstChild = Arrays.copyOf(this.firstChild, nodeCnt + 1);
+  }
+
+
+  // reverses the chars one by one, unlike StringBuilder.reverse(), which keeps surrogate pairs,
+  // because a word is walked char by char from its end
+  private static String reverse(String string) {
+
+    char[] chars = new char[string.length()];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = string.charAt(chars.length - 1 - i);
+    }
+    return new String(chars);
+  }
+
+
+  /**
+   * @return the number of nodes, including the root
+   */
+  public int getNodeCnt() {
+
+    return this.suffixIds.length;
+  }
+
+
+  /**
+   * Adds a feature (indexOffset + id, 1) for the id of each known suffix of the given word. The
+   * features are added in ascending order of their index.
+   *
+   * @param word
+   *          the word, already lower-cased
+   * @param indexOffset
+   *          added to each suffix id
+   * @param target
+   *          the buffer the features are added to
+   * @return the number of added features
+   */
+  public int addSuffixFeatures(String word, int indexOffset, FeatureBuffer target) {
+
+    int start = target.size();
+    int node = 0;
+    for (int i = word.length() - 1; i >= 0; i--) {
+      node = getChild(node, word.charAt(i));
+      if (node < 0) {
+        break;
+      }
+      if (this.suffixIds[node] > 0) {
+        target.add(indexOffset + this.suffixIds[node], 1);
+      }
+    }
+    target.sortByIndex(start, target.size());
+    return target.size() - start;
+  }
+
+
+  // binary search of the child with the given edge character, -1 if there is none
+  private int getChild(int node, char edgeChar) {
+
+    int low = this.firstChild[node];
+    int high = this.firstChild[node + 1] - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      char middleChar = this.edgeChars[middle];
+      if (middleChar < edgeChar) {
+        low = middle + 1;
+      } else if (middleChar > edgeChar) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,162 @@
+package de.dfki.mlt.gnt.features;
+
+import java.util.Arrays;
+
+import de.dfki.mlt.gnt.data.Alphabet;
+import de.dfki.mlt.gnt.data.OffSets;
+import de.dfki.mlt.gnt.data.Sentence;
+
+/**
+ * Keeps the features of all tokens of a sentence, so that they are computed only once.
+ * <p>
+ * A token is an element of up to 2*windowSize+1 windows. Besides the label feature, its
+ * features (distributed word vector, shape, suffixes, cluster id) do not depend on the window,
+ * only the global feature indices differ by the offset of the window element. So the features
+ * of each token are computed once for window element 0, and each window adds the offset of the
+ * element to the feature indices, see {@link de.dfki.mlt.gnt.data.Window#getElementShift(int)}.
+ * <p>
+ * The features of a token are computed when they are needed for the first time.
+ * All windows of a sentence are filled with the same train and adjust flags and offsets.
+ * <p>
+ * The features of all tokens are kept in a single {@link FeatureBuffer}, one row of features
+ * after the other. Using {@link #reset(Sentence)}, the same sentence features can be reused for
+ * the next sentence without allocating new memory.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class SentenceFeatures {
+
+  private Sentence sentence;
+  // the features of all tokens
+  private FeatureBuffer rows = new FeatureBuffer(1024);
+  // the start of the features of each token in rows, -1 if not computed yet
+  private int[] rowStarts = new int[0];
+  private int[] rowLengths = new int[0];
+  // computes the features of a token and writes them to rows
+  private WordFeatures extractor = new WordFeatures("", "", "", this.rows);
+
+
+  public SentenceFeatures() {
+
+  }
+
+
+  public SentenceFeatures(Sentence sentence) {
+
+    reset(sentence);
+  }
+
+
+  /**
+   * Forgets the features of the current sentence and prepares for the given sentence.
+   *
+   * @param sentenceParam
+   */
+  public void reset(Sentence sentenceParam) {
+
+    this.sentence = sentenceParam;
+    this.rows.clear();
+    int tokenCnt = sentenceParam.getWords().length;
+    if (this.rowStarts.length < tokenCnt) {
+      this.rowStarts = new int[tokenCnt];
+      this.rowLengths = new int[tokenCnt];
+    }
+    Arrays.fill(this.rowStarts, 0, tokenCnt, -1);
+  }
+
+
+  public Sentence getSentence() {
+
+    return this.sentence;
+  }
+
+
+  public FeatureBuffer getRows() {
+
+    return this.rows;
+  }
+
+
+  /**
+   * @param wordPosition
+   * @return the position of the first feature of the given token in {@link #getRows()}
+   */
+  public int getRowStart(int wordPosition) {
+
+    return this.rowStarts[wordPosition];
+  }
+
+
+  /**
+   * @param wordPosition
+   * @return the number of features of the given token
+   */
+  public int getRowLength(int wordPosition) {
+
+    return this.rowLengths[wordPosition];
+  }
+
+
+  /**
+   * Computes the features of the token at the given position, using the offsets of window
+   * element 0, if not done yet. The label feature is not included.
+   *
+   * @param wordPosition
+   *          the position of the token in the sentence
+   * @param alphabet
+   * @param offSets
+   * @param train
+   * @param adjust
+   */
+  public void computeTokenFeatures(
+      int wordPosition, Alphabet alphabet, OffSets offSets, boolean train, boolean adjust) {
+
+    if (this.rowStarts[wordPosition] > -1) {
+      return;
+    }
+
+    String word = this.sentence.getWords()[wordPosition];
+    // Get left and right word of word -> later used for handing unknown words
+    String leftWord = (wordPosition == 0)
+        ? "<BOUNDARY>" : this.sentence.getWords()[wordPosition - 1];
+    String rightWord = (wordPosition >= this.sentence.getWords().length - 1)
+        ? "<BOUNDARY>" : this.sentence.getWords()[wordPosition + 1];
+
+    configureExtractor(alphabet, offSets, adjust);
+    this.extractor.setWord(word);
+    this.extractor.setLeftWord(leftWord);
+    this.extractor.setRightWord(rightWord);
+    this.extractor.fillTokenFeatures(word, wordPosition, alphabet, train);
+
+    this.rowStarts[wordPosition] = this.extractor.getStart();
+    this.rowLengths[wordPosition] = this.extractor.getLength();
+  }
+
+
+  /**
+   * Computes the feature index of the given label for window element 0.
+   *
+   * @param labelIndex
+   *          the label index or -1 for the dummy label
+   * @param alphabet
+   * @param offSets
+   * @param adjust
+   * @return the feature index
+   */
+  public int getLabelFeatureIndex(int labelIndex, Alphabet alphabet, OffSets offSets,
+      boolean adjust) {
+
+    configureExtractor(alphabet, offSets, adjust);
+    return this.extractor.getLabelFeatureIndex(labelIndex);
+  }
+
+
+  private void configureExtractor(Alphabet alphabet, OffSets offSets, boolean adjust) {
+
+    // the features are computed for element 0; windows add the offset of their element
+    this.extractor.setIndex(0);
+    this.extractor.setOffSets(alphabet, offSets);
+    this.extractor.setAdjust(adjust);
+    this.extractor.setOffSets(offSets);
+  }
+}
@@ -0,0 +1,172 @@
+package de.dfki.mlt.gnt.features;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Keeps the context vectors (left or right) of all words of the vocabulary in compressed sparse
+ * row format: the non-zero weights of row r are found at positions offsets[r] ...
+ * offsets[r+1] - 1 of the parallel arrays columns (the index of the indicator word) and weights.
+ * <p>
+ * Compared to a dense double[dim+1] per word, only the few non-zero weights are stored and can
+ * be iterated without scanning the whole vector. Within a row, the columns are sorted in
+ * ascending order.
+ * <p>
+ * The weights are kept as double, so the feature values are exactly the ones of the vocContext
+ * file that were used for training the model.
+ * <p>
+ * The rows are either added one after the other from the vocContext file, or the complete
+ * arrays are given as buffers, e.g., mapped from a {@link de.dfki.mlt.gnt.archive.BinaryModel}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class SparseWordVectors {
+
+  // the arrays while adding rows, wrapped by the buffers after trim()
+  private int[] offsetArray = new int[1024];
+  private int[] columnArray = new int[4096];
+  private double[] weightArray = new double[4096];
+  private IntBuffer offsets;
+  private IntBuffer columns;
+  private DoubleBuffer weights;
+  private int rowCnt = 0;
+
+
+  public SparseWordVectors() {
+
+    // offsets[0] is the start of the first row
+    this.offsetArray[0] = 0;
+  }
+
+
+  /**
+   * Creates the vectors from complete arrays, no rows can be added.
+   *
+   * @param offsets
+   *          the start of each row, followed by the end of the last row
+   * @param columns
+   * @param weights
+   */
+  public SparseWordVectors(IntBuffer offsets, IntBuffer columns, DoubleBuffer weights) {
+
+    this.offsets = offsets;
+    this.columns = columns;
+    this.weights = weights;
+    this.rowCnt = offsets.limit() - 1;
+    this.offsetArray = null;
+    this.columnArray = null;
+    this.weightArray = null;
+  }
+
+
+  public int getRowCnt() {
+
+    return this.rowCnt;
+  }
+
+
+  /**
+   * @param row
+   * @return the position of the first non-zero weight of the given row
+   */
+  public int getRowStart(int row) {
+
+    return (row < this.rowCnt) ? this.offsets.get(row) : 0;
+  }
+
+
+  /**
+   * @param row
+   * @return the position after the last non-zero weight of the given row
+   */
+  public int getRowEnd(int row) {
+
+    return (row < this.rowCnt) ? this.offsets.get(row + 1) : 0;
+  }
+
+
+  public int getColumn(int position) {
+
+    return this.columns.get(position);
+  }
+
+
+  public double getWeight(int position) {
+
+    return this.weights.get(position);
+  }
+
+
+  public IntBuffer getOffsets() {
+
+    return this.offsets.duplicate();
+  }
+
+
+  public IntBuffer getColumns() {
+
+    return this.columns.duplicate();
+  }
+
+
+  public DoubleBuffer getWeights() {
+
+    return this.weights.duplicate();
+  }
+
+
+  /**
+   * Adds a row given as index:weight pairs, as written in the vocContext file.
+   *
+   * @param indexWeightPairs
+   */
+  public void addRow(String[] indexWeightPairs) {
+
+    if ((this.rowCnt + 2) > this.offsetArray.length) {
+      this.offsetArray = Arrays.copyOf(this.offsetArray, 2 * this.offsetArray.length);
+    }
+    int rowStart = this.offsetArray[this.rowCnt];
+    int rowEnd = rowStart;
+    for (String oneIndexWeightPair : indexWeightPairs) {
+      if (oneIndexWeightPair.isEmpty()) {
+        continue;
+      }
+      int separator = oneIndexWeightPair.indexOf(':');
+      int column = Integer.parseInt(oneIndexWeightPair.substring(0, separator));
+      double weight = Double.parseDouble(oneIndexWeightPair.substring(separator + 1));
+      if (rowEnd == this.columnArray.length) {
+        this.columnArray = Arrays.copyOf(this.columnArray, 2 * this.columnArray.length);
+        this.weightArray = Arrays.copyOf(this.weightArray, 2 * this.weightArray.length);
+      }
+      // insert sorted by column
+      int position = rowEnd;
+      while ((position > rowStart) && (this.columnArray[position - 1] > column)) {
+        this.columnArray[position] = this.columnArray[position - 1];
+        this.weightArray[position] = this.weightArray[position - 1];
+        position--;
+      }
+      this.columnArray[position] = column;
+      this.weightArray[position] = weight;
+      rowEnd++;
+    }
+    this.rowCnt++;
+    this.offsetArray[this.rowCnt] = rowEnd;
+  }
+
+
+  /**
+   * Releases the unused capacity of the arrays, after all rows have been added. The rows can be
+   * read only after trimming.
+   */
+  public void trim() {
+
+    int size = this.offsetArray[this.rowCnt];
+    this.offsets = IntBuffer.wrap(Arrays.copyOf(this.offsetArray, this.rowCnt + 1));
+    this.columns = IntBuffer.wrap(Arrays.copyOf(this.columnArray, size));
+    this.weights = DoubleBuffer.wrap(Arrays.copyOf(this.weightArray, size));
+    this.offsetArray = null;
+    this.columnArray = null;
+    this.weightArray = null;
+  }
+}
@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
 import de.dfki.mlt.gnt.config.GlobalConfig;
 
 /**
@@ -27,6 +28,10 @@ import de.dfki.mlt.gnt.config.GlobalConfig;
  * integer representation of liblinear;
  * This file should be saved and loaded for use in training and application phase.
  * This file should be part of Alphabet class.
+ * <p>
+ * For lookup, the words of the cluster ID list are kept in a {@link CompactWordDictionary},
+ * which needs much less memory than a hash map for the millions of words of a Marmot cluster
+ * file; word2index is only used when the cluster ID list is created from such a file.
  *
  * @author Günter Neumann, DFKI
  */
@@ -37,6 +42,10 @@ public class WordClusterFeatureFactory {
   // Store resulting word2liblinear index map
   // store words to clusterId mapping as provided by Marmot tool!
   private Map<String, Integer> word2index = new HashMap<String, Integer>();
+  // the words of the cluster ID list with their liblinear index, used for lookup
+  private CompactWordDictionary wordDictionary = new CompactWordDictionary();
+  // the liblinear index of unknown words, i.e., of the dummy word <RARE>|<Rare>|<STOP>
+  private int unknownWordIndex = -1;
   private int clusterIdcnt = 0;
 
 
@@ -54,6 +63,17 @@ public class WordClusterFeatureFactory {
   public void setWord2index(Map<String, Integer> word2index) {
 
     this.word2index = word2index;
+    this.wordDictionary = new CompactWordDictionary();
+    for (Map.Entry<String, Integer> oneEntry : word2index.entrySet()) {
+      this.wordDictionary.put(oneEntry.getKey(), oneEntry.getValue());
+    }
+    this.finishWordDictionary();
+  }
+
+
+  public CompactWordDictionary getWordDictionary() {
+
+    return this.wordDictionary;
   }
 
 
@@ -87,22 +107,30 @@ public class WordClusterFeatureFactory {
    */
   public int getClusterIdFeature(String word) {
 
-    String normalizedDigitString = word.replaceAll("\\d", "0");
-    if (this.getWord2index().containsKey(normalizedDigitString)) {
-      return this.getWord2index().get(normalizedDigitString);
-    } else {
-      //System.out.println("Unknown cluster word: " + normalizedDigitString);
-      //
+    // digits are normalized to 0 during the lookup, without creating the normalized word
+    int clusterIndex = this.wordDictionary.get(word, true);
+    if (clusterIndex != CompactWordDictionary.NO_VALUE) {
+      return clusterIndex;
+    } else if (this.unknownWordIndex != -1) {
       // Map unknown words to dummy word <RARE>
-      if (this.getWord2index().containsKey("<RARE>")) {
-        return this.getWord2index().get("<RARE>");
-      } else if (this.getWord2index().containsKey("<Rare>")) {
-        return this.getWord2index().get("<Rare>");
-      } else if (this.getWord2index().containsKey("<STOP>")) {
-        return this.getWord2index().get("<STOP>");
-      } else {
-        System.err.println("Word does not match with word2liblinear index: " + word);
-        return -1;
+      return this.unknownWordIndex;
+    } else {
+      System.err.println("Word does not match with word2liblinear index: " + word);
+      return -1;
+    }
+  }
+
+
+  // Trims the dictionary and determines the index of unknown words, once all words are read
+  private void finishWordDictionary() {
+
+    this.wordDictionary.trimToSize();
+    this.unknownWordIndex = -1;
+    for (String oneUnknownWord : new String[] { "<RARE>", "<Rare>", "<STOP>" }) {
+      int index = this.wordDictionary.get(oneUnknownWord, false);
+      if (index != CompactWordDictionary.NO_VALUE) {
+        this.unknownWordIndex = index;
+        break;
       }
     }
   }
@@ -207,11 +235,12 @@ public class WordClusterFeatureFactory {
         String[] entry = line.split("\t");
         int liblinearClusterId = Integer.parseInt(entry[1]);
         this.clusterIdcnt = Math.max(liblinearClusterId, this.clusterIdcnt);
-        this.getWord2index().put(entry[0], liblinearClusterId);
+        this.wordDictionary.put(entry[0], liblinearClusterId);
       }
     } catch (IOException e) {
       e.printStackTrace();
     }
+    this.finishWordDictionary();
   }
 
 
@@ -224,11 +253,12 @@ public class WordClusterFeatureFactory {
         String[] entry = line.split("\t");
         int liblinearClusterId = Integer.parseInt(entry[1]);
         this.clusterIdcnt = Math.max(liblinearClusterId, this.clusterIdcnt);
-        this.getWord2index().put(entry[0], liblinearClusterId);
+        this.wordDictionary.put(entry[0], liblinearClusterId);
       }
     } catch (IOException e) {
       e.printStackTrace();
     }
+    this.finishWordDictionary();
   }
 
 
@@ -248,4 +278,20 @@ public class WordClusterFeatureFactory {
     this.readClusterIdFeatureFile(archivator, clusterIdFileName);
     System.out.println("... done");
   }
+
+
+  public void readClusterIdList(BinaryModel binaryModel)
+      throws IOException {
+
+    String clusterIdFileName = "clusterId.txt";
+    System.out.println("Reading cluster ID list from binary model: " + clusterIdFileName);
+    for (String line : binaryModel.getStrings(clusterIdFileName)) {
+      String[] entry = line.split("\t");
+      int liblinearClusterId = Integer.parseInt(entry[1]);
+      this.clusterIdcnt = Math.max(liblinearClusterId, this.clusterIdcnt);
+      this.wordDictionary.put(entry[0], liblinearClusterId);
+    }
+    this.finishWordDictionary();
+    System.out.println("... done");
+  }
 }
@@ -14,9 +14,11 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
 import de.dfki.mlt.gnt.config.ConfigKeys;
 import de.dfki.mlt.gnt.config.CorpusConfig;
 import de.dfki.mlt.gnt.config.GlobalConfig;
+import de.dfki.mlt.gnt.data.SetIndexMap;
 
 /**
  * <pre>
@@ -58,114 +60,78 @@ import de.dfki.mlt.gnt.config.GlobalConfig;
  */
 public class WordDistributedFeatureFactory {
 
-  // stores indicator word -> rank -> is needed when computing the left/right bigrams of a word
-  private Map<String, Integer> iw2num = new HashMap<String, Integer>();
+  // bijective mapping indicator word <-> rank -> is needed when computing the left/right bigrams
+  // of a word and for indexing the context vectors using index rank-1
+  private SetIndexMap iw2num = new SetIndexMap();
 
-  // actually not needed, only in ppPrint methods
-  // stores rank -> indicator word -> is needed for indexing the context vectors using index rank-1
-  private Map<Integer, String> num2iw = new HashMap<Integer, String>();
-
-  // stores word -> num -> is needed for computing an index for each word type needed for accessing
-  // distributed word vector
-  private Map<String, Integer> word2num = new HashMap<String, Integer>();
-
-  // after word features are created or loaded, not more used
-  // stores num -> word -> is needed for creating the vocabulary file so that position in
-  // file corresponds to index and position of left/right vector files
-  private Map<Integer, String> num2word = new HashMap<Integer, String>();
-
-  // keeps track of the word indices
-  private int wordCnt = 0;
+  // bijective mapping word <-> num -> is needed for computing an index for each word type needed
+  // for accessing distributed word vector, and for creating the vocabulary file so that position
+  // in file corresponds to index and position of left/right vector files
+  private SetIndexMap word2num = new SetIndexMap();
 
   // stores context vector of each word, whereby word is indexed using value of word2num
   // Once text is processed, table has to be sorted in increasing order
+  // Only used while creating the word vectors from a corpus
   private Map<Integer, WordDistributedFeature> distributedWordsTable =
       new HashMap<Integer, WordDistributedFeature>();
 
+  // the left and right context vectors loaded from a vocContext file;
+  // row i keeps the vector of the word with index i+1 in word2num
+  private SparseWordVectors leftVectors = new SparseWordVectors();
+  private SparseWordVectors rightVectors = new SparseWordVectors();
+
 
   public WordDistributedFeatureFactory() {
 
   }
 
 
-  public Map<String, Integer> getIw2num() {
+  public SetIndexMap getIw2num() {
 
     return this.iw2num;
   }
 
 
-  public void setIw2num(Map<String, Integer> iw2num) {
-
-    this.iw2num = iw2num;
-  }
-
-
-  public Map<Integer, String> getNum2iw() {
-
-    return this.num2iw;
-  }
-
-
-  public void setNum2iw(Map<Integer, String> num2iw) {
-
-    this.num2iw = num2iw;
-  }
-
-
-  public Map<String, Integer> getWord2num() {
+  public SetIndexMap getWord2num() {
 
     return this.word2num;
   }
 
 
-  public void setWord2num(Map<String, Integer> word2num) {
-
-    this.word2num = word2num;
-  }
-
-
-  public Map<Integer, String> getNum2word() {
-
-    return this.num2word;
-  }
-
-
-  public void setNum2word(Map<Integer, String> num2word) {
+  public int getWordCnt() {
 
-    this.num2word = num2word;
+    return this.word2num.size();
   }
 
 
-  public int getWordCnt() {
+  public Map<Integer, WordDistributedFeature> getDistributedWordsTable() {
 
-    return this.wordCnt;
+    return this.distributedWordsTable;
   }
 
 
-  public void setWordCnt(int wordCnt) {
+  public void setDistributedWordsTable(
+      Map<Integer, WordDistributedFeature> distributedWordsTable) {
 
-    this.wordCnt = wordCnt;
+    this.distributedWordsTable = distributedWordsTable;
   }
 
 
-  public Map<Integer, WordDistributedFeature> getDistributedWordsTable() {
+  public SparseWordVectors getLeftVectors() {
 
-    return this.distributedWordsTable;
+    return this.leftVectors;
   }
 
 
-  public void setDistributedWordsTable(
-      Map<Integer, WordDistributedFeature> distributedWordsTable) {
+  public SparseWordVectors getRightVectors() {
 
-    this.distributedWordsTable = distributedWordsTable;
+    return this.rightVectors;
   }
 
 
   public void clean() {
 
-    this.num2iw.clear();
-    this.num2word.clear();
-
+    // do nothing; the indicator words and words are needed for lookup
   }
 
 
@@ -180,8 +146,7 @@ public class WordDistributedFeatureFactory {
         // ignore first line
         if (lineCnt != 0) {
           String[] entry = line.split("\t");
-          this.getIw2num().put(entry[0], lineCnt);
-          this.getNum2iw().put(lineCnt, entry[0]);
+          this.getIw2num().addLabel(entry[0]);
           // stop if dim-many lines have been read
           // this means the iw2num.size() == dim
           if (lineCnt == dim) {
@@ -264,15 +229,8 @@ public class WordDistributedFeatureFactory {
   // Need this to construct the liblinear integer encoding
   private int determineWordIndex(String word) {
 
-    // lookup word -> if true -> get index, if false -> add word with wordCnt value
-    int index = 0;
-    if (this.getWord2num().containsKey(word)) {
-      index = this.getWord2num().get(word);
-    } else {
-      this.getWord2num().put(word, ++this.wordCnt);
-      index = this.wordCnt;
-      this.getNum2word().put(this.wordCnt, word);
-    }
+    // lookup word -> if true -> get index, if false -> add word with next index
+    int index = this.getWord2num().addLabel(word);
     //System.out.println("Word: " + word + " WordIdx: " + index);
     return index;
   }
@@ -282,10 +240,8 @@ public class WordDistributedFeatureFactory {
   private int determineIwIndex(String word) {
 
     // lookup word in iw2num -> if true -> value, if false iw2num.length+1
-    int index = 0;
-    if (this.getIw2num().containsKey(word)) {
-      index = this.getIw2num().get(word);
-    } else {
+    int index = this.getIw2num().getIndex(word);
+    if (index == -1) {
       // means also that dummy elements <BOUNDARY> and <BOUNDARY> count as unknown indicator words
       // so return last dimension+1 as index for unknown words
       index = this.getIw2num().size() + 1;
@@ -338,57 +294,92 @@ public class WordDistributedFeatureFactory {
   /**
    * A dummy for handling unknown words, if a word is tested in isolation.
    * Word is known to be unknown in test phase, that is, it is not yet part of the distributed
-   * vector model but if a unknown feature vector is computed then it is added to the distributed
-   * feature vector as a side effect so next time it is known; in some sense it is cached
+   * vector model; its vector is created from the virtual context {@code <BOUNDARY>} on both
+   * sides, like the vectors of unknown words in
+   * {@link #addLeftContextFeatures(String, String, String, boolean, int, FeatureBuffer)}.
+   * <p>
+   * NOTE: the vector is NOT added to the vocabulary, so that the loaded word vectors stay
+   * read-only and do not grow with every unknown word; since the vector only depends on the
+   * indicator words, it is cheaper to create it again than to cache it.
    * @param word
    * @return
    */
   public WordDistributedFeature handleUnknownWordWithoutContext(String word) {
 
-    // initialize bigrams <BOUNDARY>/word, and word/<BOUNDARY>
-    // or incrementally update its counts
-    word2Bigram("<BOUNDARY>", word, "<BOUNDARY>");
-    // access it
-    int wordIndex = this.getWord2num().get(word);
-    // adjust its counts
-    this.getDistributedWordsTable().get(wordIndex).computeContextWeights();
-    // and return its word vector
-    return this.getDistributedWordsTable().get(wordIndex);
+    // TAKE CARE that context vector index starts from 0 -> cf. word2Bigram()
+    int boundaryIndex = determineIwIndex("<BOUNDARY>") - 1;
+    WordDistributedFeature wordVector =
+        new WordDistributedFeature(this.getIw2num().size(), boundaryIndex, boundaryIndex);
+    wordVector.computeContextWeights();
+    return wordVector;
   }
 
 
-  private WordDistributedFeature handleUnknownWordWithContext(
-      String word, String leftWord, String rightWord) {
+  /**
+   * Adds the non-zero weights of the left context vector of a word to the given buffer, using
+   * indexOffset + indicator word index as feature index. Only in non training phase unknown words
+   * are handled.
+   * <p>
+   * Does not change the factory, so it can be called from several threads in parallel.
+   * @param word
+   * @param leftWord
+   * @param rightWord
+   * @param train
+   * @param indexOffset
+   * @param target
+   * @return the number of added features
+   */
+  public int addLeftContextFeatures(String word, String leftWord, String rightWord, boolean train,
+      int indexOffset, FeatureBuffer target) {
 
-    System.err.println("Unknown word in context: " + leftWord + ":" + word + ":" + rightWord);
-    word2Bigram(leftWord, word, rightWord);
-    // access it
-    int wordIndex = this.getWord2num().get(word);
-    // adjust its counts
-    this.getDistributedWordsTable().get(wordIndex).computeContextWeights();
-    // and return its word vector
-    return this.getDistributedWordsTable().get(wordIndex);
+    return addContextFeatures(this.leftVectors, word, leftWord, train, indexOffset, target);
   }
 
 
   /**
-   * Returns the distributed word vector of a word. Only in non training phase handle unknown
-   * words phase
+   * The same as {@link #addLeftContextFeatures(String, String, String, boolean, int,
+   * FeatureBuffer)} for the right context vector.
    * @param word
-   * @param unknown
-   * @return
+   * @param leftWord
+   * @param rightWord
+   * @param train
+   * @param indexOffset
+   * @param target
+   * @return the number of added features
    */
-  public WordDistributedFeature getWordVector(
-      String word, String leftWord, String rightWord, boolean train) {
+  public int addRightContextFeatures(String word, String leftWord, String rightWord,
+      boolean train, int indexOffset, FeatureBuffer target) {
+
+    return addContextFeatures(this.rightVectors, word, rightWord, train, indexOffset, target);
+  }
+
+
+  private int addContextFeatures(SparseWordVectors vectors, String word, String contextWord,
+      boolean train, int indexOffset, FeatureBuffer target) {
 
-    if (getWord2num().containsKey(word)) {
-      return getDistributedWordsTable().get(getWord2num().get(word));
+    int wordIndex = getWord2num().getIndex(word);
+    if (wordIndex != -1) {
+      int row = wordIndex - 1;
+      int featureCnt = 0;
+      for (int i = vectors.getRowStart(row); i < vectors.getRowEnd(row); i++) {
+        double weight = vectors.getWeight(i);
+        if (weight > 0) {
+          target.add(indexOffset + vectors.getColumn(i), weight);
+          featureCnt++;
+        }
+      }
+      return featureCnt;
     } else if (!train) {
-      WordDistributedFeature unknownWordVector =
-          handleUnknownWordWithContext(word, leftWord, rightWord);
-      return unknownWordVector;
+      // The vector of an unknown word is created from its context words: it has a single
+      // non-zero element with frequency 1, i.e., weight 1 + log(1).
+      // NOTE: the vector is NOT added to the vocabulary; the loaded word vectors are never
+      // changed while tagging, so that the factory can be shared between tagging threads.
+      // TAKE CARE that context vector index starts from 0 -> cf. word2Bigram()
+      int contextWordIndex = determineIwIndex(contextWord) - 1;
+      target.add(indexOffset + contextWordIndex, 1 + Math.log(1));
+      return 1;
     } else {
-      return null;
+      return 0;
     }
   }
 
@@ -398,7 +389,6 @@ public class WordDistributedFeatureFactory {
    * <p>NOTE: this means that the model is created incrementally;
    * in principle corpus.DistributedWordVectorFactory.sentence2Bigrams(String[]) can be
    * called after each word !
-   * as I do it in handleUnknownWordWithoutContext
    * @param fileName
    * @param type
    * @param max
@@ -432,44 +422,6 @@ public class WordDistributedFeatureFactory {
   }
 
 
-  // Save learned word vectors to file: which means: store relevant listed of indicator words,
-  // and then vocabulary words and left/right context words.
-  // Note, sort num2word according to natural order, and write value of entry key.
-  private void writeIndicatorWordFile(Path targetPath) {
-
-    try {
-      Files.createDirectories(targetPath.getParent());
-      try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(
-          targetPath, StandardCharsets.UTF_8))) {
-        Map<Integer, String> sortedMap = new TreeMap<Integer, String>(this.getNum2iw());
-        for (int key : sortedMap.keySet()) {
-          out.println(sortedMap.get(key));
-        }
-      }
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-  }
-
-
-  // after the above has been done, write out vocabulary into files:
-  // Firstly, sort num2word according to natural order, and write value of entry key.
-  private void writeVocabularyFile(Path targetPath) {
-
-    try {
-      Files.createDirectories(targetPath.getParent());
-      try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(
-          targetPath, StandardCharsets.UTF_8))) {
-        Map<Integer, String> sortedMap = new TreeMap<Integer, String>(this.getNum2word());
-        for (int key : sortedMap.keySet()) {
-          out.println(sortedMap.get(key));
-        }
-      }
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-  }
-
   // after the above has been done, write out left and right context vectors separated by
   // ### in a single file.
   // The order follows the natural order in num2word, i.e., x-th  left context vector belongs
@@ -534,11 +486,11 @@ public class WordDistributedFeatureFactory {
     System.out.println("Write GNT data condensed ...");
     System.out.println("Write out used indicator words file.");
     Path wordPath = GlobalConfig.getModelBuildFolder().resolve("iw" + maxIndicatorWords + ".txt");
-    this.writeIndicatorWordFile(wordPath);
+    this.getIw2num().write(wordPath);
 
     System.out.println("Write out vocabulary file.");
     Path vocPath = GlobalConfig.getModelBuildFolder().resolve("vocFile.txt");
-    this.writeVocabularyFile(vocPath);
+    this.getWord2num().write(vocPath);
 
     System.out.println("Write out left/right context vector files.");
     Path vocContextPath =
@@ -552,125 +504,50 @@ public class WordDistributedFeatureFactory {
   // This also means that the bijective word-index maps have to be restored.
   // The result is basically a fully instantiated DistributedWordVectorFactory class.
 
-  private void readIndicatorWordFile(Path path) {
-
-    readWordFile(path, this.getIw2num(), this.getNum2iw());
-  }
-
-
-  private void readIndicatorWordFile(Archivator archivator, String wordFileName) {
-
-    readWordFile(archivator, wordFileName, this.getIw2num(), this.getNum2iw());
-  }
-
-
-  private void readVocabularyFile(Path path) {
-
-    readWordFile(path, this.getWord2num(), this.getNum2word());
-  }
-
-
-  private void readVocabularyFile(Archivator archivator, String vocabularyFileName) {
-
-    readWordFile(archivator, vocabularyFileName, this.getWord2num(), this.getNum2word());
-  }
-
-
-  // Read in a file where each line corresponds to a word. Create bijective index
-  // starting with index 1.
-  private void readWordFile(
-      Path path, Map<String, Integer> word2index, Map<Integer, String> index2word) {
+  private void readContextFile(Path path) {
 
     try (BufferedReader in = Files.newBufferedReader(
         path, StandardCharsets.UTF_8)) {
-      String line;
-      int cnt = 1;
-      while ((line = in.readLine()) != null) {
-        //System.out.println("IW: " + line + " cnt: " + cnt);
-        word2index.put(line, cnt);
-        index2word.put(cnt, line);
-        cnt++;
-      }
+      readContextLines(in);
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
 
-  // Read in a file where each line corresponds to a word. Create bijective index
-  // starting with index 1.
-  private void readWordFile(Archivator archivator, String wordFileName,
-      Map<String, Integer> word2index, Map<Integer, String> index2word) {
+  private void readContextFile(Archivator archivator, String contextFileName) {
 
     try (BufferedReader reader = new BufferedReader(
-        new InputStreamReader(archivator.getInputStream(wordFileName), "UTF-8"))) {
-      int cnt = 1;
-      String line;
-      while ((line = reader.readLine()) != null) {
-        //System.out.println("IW: " + line + " cnt: " + cnt);
-        word2index.put(line, cnt);
-        index2word.put(cnt, line);
-        cnt++;
-      }
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-  }
-
-
-  private void readContextFile(Path path) {
-
-    try (BufferedReader in = Files.newBufferedReader(
-        path, StandardCharsets.UTF_8)) {
-      String line;
-      int cnt = 1;
-      int mod = 10000;
-      while ((line = in.readLine()) != null) {
-        WordDistributedFeature dwv = new WordDistributedFeature(this.getIw2num().size());
-        String[] leftAndRightVector = line.split("###");
-        String[] leftWeightVector = leftAndRightVector[0].split("\t");
-        String[] rightWeightVector = leftAndRightVector[1].split("\t");
-        dwv.initializeContext(leftWeightVector, "left");
-        dwv.initializeContext(rightWeightVector, "right");
-
-        this.getDistributedWordsTable().put(cnt, dwv);
-
-        if ((cnt % mod) == 0) {
-          System.out.println(cnt);
-        }
-        cnt++;
-      }
+        new InputStreamReader(archivator.getInputStream(contextFileName), "UTF-8"))) {
+      readContextLines(reader);
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
 
-  private void readContextFile(Archivator archivator, String contextFileName) {
+  // Each line keeps the left and right context vector of a word as "left ### right",
+  // where each vector is a list of non-zero iw_index:weight separated by tab
+  private void readContextLines(BufferedReader reader)
+      throws IOException {
 
-    try (BufferedReader reader = new BufferedReader(
-        new InputStreamReader(archivator.getInputStream(contextFileName), "UTF-8"))) {
-      int cnt = 1;
-      int mod = 10000;
-      String line;
-      while ((line = reader.readLine()) != null) {
-        WordDistributedFeature dwv = new WordDistributedFeature(this.getIw2num().size());
-        String[] leftAndRightVector = line.split("###");
-        String[] leftWeightVector = leftAndRightVector[0].split("\t");
-        String[] rightWeightVector = leftAndRightVector[1].split("\t");
-        dwv.initializeContext(leftWeightVector, "left");
-        dwv.initializeContext(rightWeightVector, "right");
-
-        this.getDistributedWordsTable().put(cnt, dwv);
+    this.leftVectors = new SparseWordVectors();
+    this.rightVectors = new SparseWordVectors();
+    int cnt = 1;
+    int mod = 10000;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      String[] leftAndRightVector = line.split("###");
+      this.leftVectors.addRow(leftAndRightVector[0].split("\t"));
+      this.rightVectors.addRow(leftAndRightVector[1].split("\t"));
 
-        if ((cnt % mod) == 0) {
-          System.out.println(cnt);
-        }
-        cnt++;
+      if ((cnt % mod) == 0) {
+        System.out.println(cnt);
       }
-    } catch (IOException e) {
-      e.printStackTrace();
+      cnt++;
     }
+    this.leftVectors.trim();
+    this.rightVectors.trim();
   }
 
 
@@ -679,11 +556,11 @@ public class WordDistributedFeatureFactory {
     System.out.println("Read GNT condensed ...");
     Path iwPath = GlobalConfig.getModelBuildFolder().resolve("iw" + maxIndicatorWords + ".txt");
     System.out.println("Read used indicator words file: " + iwPath);
-    this.readIndicatorWordFile(iwPath);
+    this.getIw2num().readFromPath(iwPath);
 
     Path vocPath = GlobalConfig.getModelBuildFolder().resolve("vocFile.txt");
     System.out.println("Read vocabulary file: " + vocPath);
-    this.readVocabularyFile(vocPath);
+    this.getWord2num().readFromPath(vocPath);
 
     Path dwvPath =
         GlobalConfig.getModelBuildFolder().resolve("vocContext" + maxIndicatorWords + ".txt");
@@ -698,11 +575,11 @@ public class WordDistributedFeatureFactory {
     System.out.println("Read GNT condensed from archive ...");
     String iwFileName = "iw" + maxIndicatorWords + ".txt";
     System.out.println("Read used indicator words file from archive: " + iwFileName);
-    this.readIndicatorWordFile(archivator, iwFileName);
+    this.getIw2num().readFromArchive(archivator, iwFileName);
 
     String vocFileName = "vocFile.txt";
     System.out.println("Read vocabulary file from archive: " + vocFileName);
-    this.readVocabularyFile(archivator, vocFileName);
+    this.getWord2num().readFromArchive(archivator, vocFileName);
 
     String dwvFileName = "vocContext" + maxIndicatorWords + ".txt";
     System.out.println("Read left/right context vector from file from archive: " + dwvFileName);
@@ -711,6 +588,45 @@ public class WordDistributedFeatureFactory {
   }
 
 
+  /**
+   * Reads the indicator words and the vocabulary from the string tables of the binary model;
+   * the context vectors are used as mapped from the binary model.
+   * @param binaryModel
+   * @param maxIndicatorWords
+   * @throws IOException
+   */
+  public void readDistributedWordFeaturesSparse(BinaryModel binaryModel, int maxIndicatorWords)
+      throws IOException {
+
+    System.out.println("Read GNT condensed from binary model ...");
+    String iwFileName = "iw" + maxIndicatorWords + ".txt";
+    System.out.println("Read used indicator words from binary model: " + iwFileName);
+    this.getIw2num().readFromBinaryModel(binaryModel, iwFileName);
+
+    String vocFileName = "vocFile.txt";
+    System.out.println("Read vocabulary from binary model: " + vocFileName);
+    this.getWord2num().readFromBinaryModel(binaryModel, vocFileName);
+
+    String dwvFileName = "vocContext" + maxIndicatorWords + ".txt";
+    System.out.println("Map left/right context vector from binary model: " + dwvFileName);
+    this.leftVectors = readContextVectors(binaryModel, dwvFileName, "left");
+    this.rightVectors = readContextVectors(binaryModel, dwvFileName, "right");
+    System.out.println("Done!");
+  }
+
+
+  private static SparseWordVectors readContextVectors(
+      BinaryModel binaryModel, String contextFileName, String side)
+      throws IOException {
+
+    return new SparseWordVectors(
+        binaryModel.getInts(BinaryModel.getContextVectorsName(contextFileName, side, "offsets")),
+        binaryModel.getInts(BinaryModel.getContextVectorsName(contextFileName, side, "columns")),
+        binaryModel.getDoubles(
+            BinaryModel.getContextVectorsName(contextFileName, side, "weights")));
+  }
+
+
   public void createAndWriteDistributedWordFeaturesSparse(
       int maxIndicatorWords, CorpusConfig corpusConfig) {
 
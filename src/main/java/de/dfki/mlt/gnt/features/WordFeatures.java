@@ -1,11 +1,7 @@
 package de.dfki.mlt.gnt.features;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import de.dfki.mlt.gnt.data.Alphabet;
 import de.dfki.mlt.gnt.data.OffSets;
-import de.dfki.mlt.gnt.data.Pair;
 
 /**
  * A word features consists  of its components:
@@ -15,8 +11,11 @@ import de.dfki.mlt.gnt.data.Pair;
  * <li> suffix features
  * <li> cluster features
  *
- * They are represented by a list of pairs using relative index and value.
- * Where value can be double or boolean
+ * They are written to a {@link FeatureBuffer} as pairs of index and value in this order,
+ * starting at position {@link #getStart()}; boolean features have value 1.
+ * The buffer may be shared with other word features, e.g., the ones of all tokens of a sentence.
+ * If the features are hashed, the buffer holds the keys of the features instead of their
+ * indices, see {@link FeatureHasher#getFeatureKey(int, int)}.
  *
  * @author Günter Neumann, DFKI
  */
@@ -41,38 +40,52 @@ public class WordFeatures {
   private OffSets offSets;
 
 
-  private List<Pair<Integer, Double>> left = new ArrayList<Pair<Integer, Double>>();
-  private List<Pair<Integer, Double>> right = new ArrayList<Pair<Integer, Double>>();
-  private List<Pair<Integer, Boolean>> suffix = new ArrayList<Pair<Integer, Boolean>>();
-  // I am using here lists although we only have always one element
-  private List<Pair<Integer, Boolean>> shape = new ArrayList<Pair<Integer, Boolean>>();
-  private List<Pair<Integer, Boolean>> cluster = new ArrayList<Pair<Integer, Boolean>>();
-  private List<Pair<Integer, Boolean>> label = new ArrayList<Pair<Integer, Boolean>>();
+  // the buffer the features are written to, starting at position start
+  private FeatureBuffer features;
+  private int start = 0;
 
 
   public WordFeatures(String word) {
 
-    this.word = word;
+    this(word, "", "");
   }
 
 
   public WordFeatures(String word2, String l, String r) {
 
+    this(word2, l, r, new FeatureBuffer(16));
+  }
+
+
+  /**
+   * Creates word features that are written to the given buffer.
+   *
+   * @param word2
+   * @param l
+   * @param r
+   * @param features
+   */
+  public WordFeatures(String word2, String l, String r, FeatureBuffer features) {
+
     this.word = word2;
     this.leftWord = l;
     this.rightWord = r;
+    this.features = features;
   }
 
 
-  public List<Pair<Integer, Double>> getLeft() {
+  public FeatureBuffer getFeatures() {
 
-    return this.left;
+    return this.features;
   }
 
 
-  public void setLeft(List<Pair<Integer, Double>> left) {
+  /**
+   * @return the position of the first feature in the feature buffer
+   */
+  public int getStart() {
 
-    this.left = left;
+    return this.start;
   }
 
 
@@ -100,66 +113,6 @@ public class WordFeatures {
   }
 
 
-  public List<Pair<Integer, Boolean>> getLabel() {
-
-    return this.label;
-  }
-
-
-  public void setLabel(List<Pair<Integer, Boolean>> label) {
-
-    this.label = label;
-  }
-
-
-  public List<Pair<Integer, Double>> getRight() {
-
-    return this.right;
-  }
-
-
-  public void setRight(List<Pair<Integer, Double>> right) {
-
-    this.right = right;
-  }
-
-
-  public List<Pair<Integer, Boolean>> getSuffix() {
-
-    return this.suffix;
-  }
-
-
-  public void setSuffix(List<Pair<Integer, Boolean>> suffix) {
-
-    this.suffix = suffix;
-  }
-
-
-  public List<Pair<Integer, Boolean>> getShape() {
-
-    return this.shape;
-  }
-
-
-  public void setShape(List<Pair<Integer, Boolean>> shape) {
-
-    this.shape = shape;
-  }
-
-
-  public List<Pair<Integer, Boolean>> getCluster() {
-
-    return this.cluster;
-  }
-
-
-  public void setCluster(List<Pair<Integer, Boolean>> cluster) {
-
-    this.cluster = cluster;
-  }
-
-
   public int getIndex() {
 
     return this.index;
@@ -263,11 +216,42 @@ public class WordFeatures {
 
   public void fillWordFeatures(String wordParam, int indexParam, Alphabet alphabet, boolean train) {
 
+    this.start = this.features.size();
+    this.length = 0;
     // if word is a sentence padding element, then just return an empty WordFeatures
     if (wordParam.endsWith("<BOUNDARY>")) {
       return;
     }
 
+    addTokenFeatures(wordParam, indexParam, alphabet, train);
+    if (alphabet.isWithLabelFeats()) {
+      fillLabelFeatures(wordParam, alphabet, true);
+    }
+  }
+
+
+  /**
+   * Fills all features that only depend on the token itself, i.e., all features but the label
+   * feature. The label feature depends on the window element, see
+   * {@link #getLabelFeatureIndex(int)}.
+   *
+   * @param wordParam
+   * @param indexParam
+   * @param alphabet
+   * @param train
+   */
+  public void fillTokenFeatures(String wordParam, int indexParam, Alphabet alphabet,
+      boolean train) {
+
+    this.start = this.features.size();
+    this.length = 0;
+    addTokenFeatures(wordParam, indexParam, alphabet, train);
+  }
+
+
+  private void addTokenFeatures(String wordParam, int indexParam, Alphabet alphabet,
+      boolean train) {
+
     if (alphabet.isWithWordFeats()) {
       fillLeftDistributedWordFeatures(wordParam, alphabet, train, true);
       fillRightDistributedWordFeatures(wordParam, alphabet, train, true);
@@ -281,9 +265,6 @@ public class WordFeatures {
     if (alphabet.isWithClusterFeats()) {
       fillClusterIdFeatures(wordParam, alphabet, true);
     }
-    if (alphabet.isWithLabelFeats()) {
-      fillLabelFeatures(wordParam, alphabet, true);
-    }
   }
 
 
@@ -296,18 +277,12 @@ public class WordFeatures {
     String lowWord = wordParam.toLowerCase();
     String lowLeftWord = this.getLeftWord().toLowerCase();
     String lowRightWord = this.getRightWord().toLowerCase();
-    // This may return a dynamically created word vector for unknown words
-    WordDistributedFeature distributedWordVector =
-        alphabet.getWordVectorFactory().getWordVector(lowWord, lowLeftWord, lowRightWord, train);
-    for (int i = 0; i < distributedWordVector.getLeftContext().length; i++) {
-      int localIndex = ((this.isAdjust()) ? (this.leftOffset + i) : i);
-      double value = distributedWordVector.getLeftContext()[i];
-      if (value > 0) {
-        Pair<Integer, Double> node = new Pair<Integer, Double>(localIndex, value);
-        this.left.add(node);
-      }
-    }
-    this.length += this.left.size();
+    // This may use a dynamically created word vector for unknown words
+    int featureCnt = alphabet.getWordVectorFactory().addLeftContextFeatures(
+        lowWord, lowLeftWord, lowRightWord, train,
+        (this.isAdjust() && !this.isHashed()) ? this.leftOffset : 0, this.features);
+    hashAddedFeatures(FeatureHasher.LEFT_WORD_TYPE, featureCnt);
+    this.length += featureCnt;
   }
 
 
@@ -318,33 +293,54 @@ public class WordFeatures {
     String lowWord = wordParam.toLowerCase();
     String lowLeftWord = this.getLeftWord().toLowerCase();
     String lowRightWord = this.getRightWord().toLowerCase();
-    WordDistributedFeature distributedWordVector =
-        alphabet.getWordVectorFactory().getWordVector(lowWord, lowLeftWord, lowRightWord, train);
-    for (int i = 0; i < distributedWordVector.getRightContext().length; i++) {
-      int localIndex = ((this.isAdjust()) ? (this.rightOffset + i) : i);
-      double value = distributedWordVector.getRightContext()[i];
-      if (value > 0) {
-        Pair<Integer, Double> node = new Pair<Integer, Double>(localIndex, value);
-        this.right.add(node);
+    int featureCnt = alphabet.getWordVectorFactory().addRightContextFeatures(
+        lowWord, lowLeftWord, lowRightWord, train,
+        (this.isAdjust() && !this.isHashed()) ? this.rightOffset : 0, this.features);
+    hashAddedFeatures(FeatureHasher.RIGHT_WORD_TYPE, featureCnt);
+    this.length += featureCnt;
+  }
+
+
+  // replaces the indices of the last added features by their keys, if the features are hashed
+  private void hashAddedFeatures(int featureType, int featureCnt) {
+
+    if (this.isAdjust() && this.isHashed()) {
+      for (int i = this.features.size() - featureCnt; i < this.features.size(); i++) {
+        this.features.setIndex(
+            i, FeatureHasher.getFeatureKey(featureType, this.features.getIndex(i)));
       }
     }
-    this.length += this.right.size();
+  }
+
+
+  // the feature index for the given offset or, if the features are hashed, the feature key
+  private int getRealIndex(int offset, int featureType, int localIndex) {
+
+    if (!this.isAdjust()) {
+      return localIndex;
+    }
+    return (this.isHashed())
+        ? FeatureHasher.getFeatureKey(featureType, localIndex) : (offset + localIndex);
+  }
+
+
+  private boolean isHashed() {
+
+    return (this.offSets != null) && this.offSets.isHashed();
   }
 
 
   /**
    * boolean flag offline means: assume that known signatures have been pre-loaded into to memory
    * NOTE: even in training phase, signature are computed dynamically
-   * NOTE: we assume that a word has a unique signature so the list shape actually only contains a
-   * single element.
+   * NOTE: we assume that a word has a unique signature so at most a single shape feature is
+   * added.
    * NOTE: word is case-sensitive, because otherwise shape feature can be computed reliable!
    * @param word
    * @param index
    * @param alphabet
    * @param offline
    */
-  // NOTE: it is an overhead to keep a list of shapes, because we always have a single element,
-  // but it keeps code more transparent
   private void fillShapeFeatures(String wordParam, int indexParam, Alphabet alphabet,
       boolean offline) {
 
@@ -354,17 +350,16 @@ public class WordFeatures {
       System.out.println("Word: " + word + " Shape: "
           + alphabet.getWordShapeFactory().getIndex2signature().get(wordShapeIndex));
       */
-      int realIndex = (this.isAdjust()) ? (this.shapeOffset + wordShapeIndex) : wordShapeIndex;
-      Pair<Integer, Boolean> node = new Pair<Integer, Boolean>(realIndex, true);
-      this.shape.add(node);
+      int realIndex = getRealIndex(this.shapeOffset, FeatureHasher.SHAPE_TYPE, wordShapeIndex);
+      this.features.add(realIndex, 1);
+      // should be always 1
+      this.length++;
     } else {
-      // we have an unknown signature, so we cannot add it to the list
-      // which basically means that shape-size() will remain 0
+      // we have an unknown signature, so we cannot add it to the features
+      // which basically means that there is no shape feature
       System.err.println("Word: " + wordParam + " at loc: " + indexParam + ": unknown signature!");
 
     }
-    // should be always 1
-    this.length += this.shape.size();
   }
 
 
@@ -377,75 +372,84 @@ public class WordFeatures {
 
     /*
      * Lowercase word
-     * Create all suffixes for word
-     * Loop them up
-     * Return suffixes list of Pairs (index, true)
+     * Find all known suffixes of the word in the suffix trie
+     * Add a feature (index, 1) for each suffix
      */
     // since word is from input stream, need to lower-case it first
     String lowWord = wordParam.toLowerCase();
-    List<Integer> suffixIndices =
-        alphabet.getWordSuffixFactory().getAllKnownSubstringsForWord(lowWord);
-    //if (suffixIndices.isEmpty()) System.err.println("No known suffixes: " + word);
-    for (int x : suffixIndices) {
-      int realIndex = (this.isAdjust()) ? (this.suffixOffset + x) : x;
-      Pair<Integer, Boolean> node = new Pair<Integer, Boolean>(realIndex, true);
-      this.suffix.add(node);
+    if (this.isAdjust() && this.isHashed()) {
+      // the hashed suffixes need no suffix list
+      for (int suffixHash : alphabet.getWordSuffixFactory().getAllSubstringHashesForWord(lowWord)) {
+        this.features.add(FeatureHasher.getFeatureKey(FeatureHasher.SUFFIX_TYPE, suffixHash), 1);
+        this.length++;
+      }
+      return;
     }
-    // this means that if word has no known suffix, then suffix list is 0
-    this.length += this.suffix.size();
+    // this means that if word has no known suffix, then no suffix feature is added
+    this.length += alphabet.getWordSuffixFactory().addKnownSuffixFeatures(
+        lowWord, (this.isAdjust()) ? this.suffixOffset : 0, this.features);
   }
 
 
   /**
    * boolean flag offline means: assume that known cluster IDs have been pre-loaded into to memory
    * NOTE: even in training phase, signature are computed dynamically
-   * NOTE: we assume that a word has a unique signature so the list cluster IDs actually only
-   *       contains a single element.
+   * NOTE: we assume that a word has a unique signature so at most a single cluster ID feature
+   *       is added.
    * NOTE: word is case-sensitive, because otherwise cluster IDs feature can be computed reliable!
    * @param word
    * @param alphabet
    * @param offline
    */
-  // NOTE: it is an overhead to keep a list of cluster IDs, because we always have a single element,
-  // but it keeps code more transparent
   private void fillClusterIdFeatures(String wordParam, Alphabet alphabet, boolean offline) {
 
     int wordClusterIndex = alphabet.getWordClusterFactory().getClusterIdFeature(wordParam);
     if (wordClusterIndex > -1) {
       int realIndex =
-          (this.isAdjust()) ? (this.clusterIdOffset + wordClusterIndex) : wordClusterIndex;
+          getRealIndex(this.clusterIdOffset, FeatureHasher.CLUSTER_TYPE, wordClusterIndex);
       /*
       System.out.println(
           "Word: " + word + " ClusterId: " + wordClusterIndex + " Realindex: " + realIndex);
       */
-      Pair<Integer, Boolean> node = new Pair<Integer, Boolean>(realIndex, true);
-      this.cluster.add(node);
+      this.features.add(realIndex, 1);
+      // should be always 1
+      this.length++;
     } else {
       // we have an unknown word with no cluster Id,
       // This should not happen, because unknown words are matched to <RARE> dummy word, if
       // not found
       System.err.println("Word: " + wordParam + ": unknown clusterID!");
     }
-    // should be always 1
-    this.length += this.cluster.size();
   }
 
 
   private void fillLabelFeatures(String wordParam, Alphabet alphabet, boolean offline) {
 
-    int localLabelIndex =
-        (this.getLabelIndex() > -1) ? this.getLabelIndex() : this.getOffSets().getLabelVectorSize();
-    int realIndex = (this.isAdjust()) ? (this.labelOffset + localLabelIndex) : localLabelIndex;
+    int realIndex = getLabelFeatureIndex(this.getLabelIndex());
 
     /*
     System.out.println("Word: " + wordParam + " LabelId: " + this.getLabelIndex()
         + " LabelIndex: " + localLabelIndex + " Realindex: " + realIndex);
     */
 
-    Pair<Integer, Boolean> node = new Pair<Integer, Boolean>(realIndex, true);
-    this.label.add(node);
+    this.features.add(realIndex, 1);
     // should be always 1
-    this.length += this.label.size();
+    this.length++;
+  }
+
+
+  /**
+   * Computes the feature index of the given label using the label offset of this element.
+   * If labelIndexParam is -1, the dummy label (label vector size) is used.
+   *
+   * @param labelIndexParam
+   * @return the feature index of the label, or its feature key if the features are hashed
+   */
+  public int getLabelFeatureIndex(int labelIndexParam) {
+
+    int localLabelIndex =
+        (labelIndexParam > -1) ? labelIndexParam : this.getOffSets().getLabelVectorSize();
+    return getRealIndex(this.labelOffset, FeatureHasher.LABEL_TYPE, localLabelIndex);
   }
 
 
@@ -470,31 +474,9 @@ public class WordFeatures {
 
     String output = "\nElement-" + this.getIndex();
     output += this.toOffSetsString();
-    output += "\nLeft: ";
-    for (Pair<Integer, Double> pair : this.left) {
-      output += pair.toString();
-    }
-    output += "\nRight: ";
-    for (Pair<Integer, Double> pair : this.right) {
-      output += pair.toString();
-    }
-    output += "\nSuffix: ";
-    for (Pair<Integer, Boolean> pair : this.suffix) {
-      output += pair.toString();
-    }
-    output += "\nShape: ";
-    for (Pair<Integer, Boolean> pair : this.shape) {
-      output += pair.toString();
-    }
-
-    output += "\nCluster: ";
-    for (Pair<Integer, Boolean> pair : this.cluster) {
-      output += pair.toString();
-    }
-
-    output += "\nLabel: ";
-    for (Pair<Integer, Boolean> pair : this.label) {
-      output += pair.toString();
+    output += "\nFeatures: ";
+    for (int i = this.start; i < (this.start + this.length); i++) {
+      output += "(" + this.features.getIndex(i) + "," + this.features.getValue(i) + ")";
     }
     return output;
   }
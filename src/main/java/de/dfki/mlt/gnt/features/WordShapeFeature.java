@@ -61,6 +61,16 @@ public class WordShapeFeature {
 
   private String bitVectorString = "0000000000000000";
 
+  /** the number of bits of a signature */
+  public static final int SIGNATURE_LENGTH = 16;
+
+  // the bits of the shape mask that are set by computeShapeMask()
+  private static final int ALL_CAPS_MASK = getBitMask(0);
+  private static final int HAS_DASH_MASK = getBitMask(1);
+  private static final int HAS_DIGIT_MASK = getBitMask(2);
+  private static final int INIT_CAP_MASK = getBitMask(3);
+  private static final int LOWER_CASE_MASK = getBitMask(5);
+
 
   public WordShapeFeature(String word, int wordIndex) {
 
@@ -184,6 +194,41 @@ public class WordShapeFeature {
    */
   public void createShapeVectorFromWord(String word, int wordIndex) {
 
+    int shapeMask = computeShapeMask(word, wordIndex);
+    for (int i = 0; i < this.bitVector.length; i++) {
+      this.bitVector[i] = (shapeMask & getBitMask(i)) != 0;
+    }
+
+    //Finally
+    this.bitVectorString = this.toBinaryString();
+  }
+
+
+  /**
+   * @param bitIndex
+   *          the index of a bit in the bit vector
+   * @return the bit of the shape mask that corresponds to the given index; bit 0 of the bit
+   *         vector is the highest bit, so that the binary string of the mask is the signature
+   */
+  public static int getBitMask(int bitIndex) {
+
+    return 1 << (SIGNATURE_LENGTH - 1 - bitIndex);
+  }
+
+
+  /**
+   * Computes the signature of the given word as a bit mask in a single pass over the characters,
+   * without creating any object. This is the same signature as the one created by
+   * {@link #createShapeVectorFromWord(String, int)}, see {@link #toShapeMask(String)}.
+   *
+   * @param word
+   *          the word, not lower-cased
+   * @param wordIndex
+   *          the index position of the word in its sentence
+   * @return the shape mask of the word
+   */
+  public static int computeShapeMask(String word, int wordIndex) {
+
     // Main parts of this code are
     // from https://github.com/slavpetrov/berkeleyparser/blob/master/src/edu/berkeley/nlp/discPCFG/LexiconFeatureExtractor.java
     int wlen = word.length();
@@ -212,72 +257,74 @@ public class WordShapeFeature {
     }
     // Remember first char
     char ch0 = word.charAt(0);
-    // and then lowercase it
-    String lowered = word.toLowerCase();
 
-    // Now, analyse the different cases, and set the relevant bits in the bitVector
+    // Now, analyse the different cases, and set the relevant bits in the mask
+    int shapeMask = 0;
     if (Character.isUpperCase(ch0) || Character.isTitleCase(ch0)) {
       // First char is upper case
       if (wordIndex == 0 && numCaps == 1) {
         // AND word is in sentence initial position and it has no other upper case
-        this.setBit(MorphFeature.INIT_CAP);
+        shapeMask |= INIT_CAP_MASK;
 
       } else {
         // Else word is not in sentence initial but starts with a upper case
         // Or word is in initial sentence position but has more than 1 upper case
-        this.setBit(MorphFeature.ALL_CAPS);
+        shapeMask |= ALL_CAPS_MASK;
       }
     }
     // Word does not start with upper case, but starts with a non-letter char and has more than one upper char
     else if (!Character.isLetter(ch0) && numCaps > 0) {
-      this.setBit(MorphFeature.ALL_CAPS);
+      shapeMask |= ALL_CAPS_MASK;
     } else if (hasLower) {
       // only lower case modulo start of word
-      this.setBit(MorphFeature.LOWER_CASE);
+      shapeMask |= LOWER_CASE_MASK;
     }
     if (hasDigit) {
-      this.setBit(MorphFeature.HAS_DIGIT);
+      shapeMask |= HAS_DIGIT_MASK;
     }
     if (hasDash) {
-      this.setBit(MorphFeature.HAS_DASH);
+      shapeMask |= HAS_DASH_MASK;
     }
-    //    if (lowered.endsWith("s") && wlen >= 3) {
-    //      // here length 3, so you don't miss out on ones like 80s
-    //      char ch2 = lowered.charAt(wlen - 2);
-    //      // not -ess suffixes or greek/latin -us, -is
-    //      if (ch2 != 's' && ch2 != 'i' && ch2 != 'u') {
-    //        this.setBit(MorphFeature.SUFF_S);
-    //      }
-    //    } else if (word.length() >= 5 && !hasDash && !(hasDigit && numCaps > 0)) {
-    //      // don't do for very short words;
-    //      // Implement common discriminating suffixes
-    //      /*
-    //       * if (Corpus.myLanguage==Corpus.GERMAN){
-    //       * sb.append(lowered.substring(lowered.length()-1)); }else{
-    //       */
-    //      if (lowered.endsWith("ed")) {
-    //        this.setBit(MorphFeature.SUFF_ED);
-    //      } else if (lowered.endsWith("ing")) {
-    //        this.setBit(MorphFeature.SUFF_ING);
-    //      } else if (lowered.endsWith("ion")) {
-    //        this.setBit(MorphFeature.SUFF_ION);
-    //      } else if (lowered.endsWith("er")) {
-    //        this.setBit(MorphFeature.SUFF_ER);
-    //      } else if (lowered.endsWith("est")) {
-    //        this.setBit(MorphFeature.SUFF_EST);
-    //      } else if (lowered.endsWith("ly")) {
-    //        this.setBit(MorphFeature.SUFF_LY);
-    //      } else if (lowered.endsWith("ity")) {
-    //        this.setBit(MorphFeature.SUFF_ITY);
-    //      } else if (lowered.endsWith("y")) {
-    //        this.setBit(MorphFeature.SUFF_Y);
-    //      } else if (lowered.endsWith("al")) {
-    //        this.setBit(MorphFeature.SUFF_AL);
-    //      }
-    //    }
+    // NOTE: the suffix bits SUFF_AL ... SUFF_Y are not set, cf. the Berkeley parser code
+    return shapeMask;
+  }
 
-    //Finally
-    this.bitVectorString = this.toBinaryString();
+
+  /**
+   * @param signature
+   *          a signature as written to the shape list, a string of 16 '0' and '1'
+   * @return the shape mask of the signature, or -1 if the string is not a signature
+   */
+  public static int toShapeMask(String signature) {
+
+    if (signature.length() != SIGNATURE_LENGTH) {
+      return -1;
+    }
+    int shapeMask = 0;
+    for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+      char ch = signature.charAt(i);
+      if (ch == '1') {
+        shapeMask |= getBitMask(i);
+      } else if (ch != '0') {
+        return -1;
+      }
+    }
+    return shapeMask;
+  }
+
+
+  /**
+   * @param shapeMask
+   *          a shape mask
+   * @return the signature of the shape mask, a string of 16 '0' and '1'
+   */
+  public static String toSignature(int shapeMask) {
+
+    char[] chars = new char[SIGNATURE_LENGTH];
+    for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+      chars[i] = ((shapeMask & getBitMask(i)) != 0) ? '1' : '0';
+    }
+    return new String(chars);
   }
 
 
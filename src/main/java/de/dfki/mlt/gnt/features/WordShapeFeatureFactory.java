@@ -15,6 +15,7 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
 import de.dfki.mlt.gnt.config.GlobalConfig;
 
 /**
@@ -41,6 +42,9 @@ public class WordShapeFeatureFactory {
   private Map<String, WordShapeFeature> word2signature = new HashMap<String, WordShapeFeature>();
   // A mapping from the string of a ShapeVector (signature) to its ShapeVector; also used as cache
   private Map<String, Integer> signature2index = new HashMap<String, Integer>();
+  // The same mapping for the shape mask of each signature, see WordShapeFeature.computeShapeMask();
+  // 0 means unknown signature
+  private short[] mask2index = new short[1 << WordShapeFeature.SIGNATURE_LENGTH];
 
   //TODO only used in ppPrint
   private Map<Integer, String> index2signature = new TreeMap<Integer, String>();
@@ -84,6 +88,10 @@ public class WordShapeFeatureFactory {
   public void setSignature2index(Map<String, Integer> signature2index) {
 
     this.signature2index = signature2index;
+    this.mask2index = new short[1 << WordShapeFeature.SIGNATURE_LENGTH];
+    for (Map.Entry<String, Integer> oneEntry : signature2index.entrySet()) {
+      this.addShapeMask(oneEntry.getKey(), oneEntry.getValue());
+    }
   }
 
 
@@ -169,29 +177,52 @@ public class WordShapeFeatureFactory {
 
 
   /**
-   * For a given word and its index, compute its signature string and then
-   * determine its integer representation .
+   * For a given word and its index, compute its signature as shape mask and then
+   * determine its integer representation by a lookup in the mask table.
    * This means: we assume a fixed set of signatures.
    * @param word
    * @param index
-   * @param train
    * @return
    */
   public int getShapeFeature(String word, int index) {
 
-    WordShapeFeature newSignature = new WordShapeFeature(word, index);
-    String binaryString = newSignature.getBitVectorString();
+    int shapeMask = WordShapeFeature.computeShapeMask(word, index);
+    int signatureIndex = this.mask2index[shapeMask];
     // If signature for word is a known one, return it
-    if (this.getSignature2index().containsKey(binaryString)) {
-      return this.getSignature2index().get(binaryString);
+    if (signatureIndex > 0) {
+      return signatureIndex;
     } else {
       // signal unknown signature occured and return it as -1
-      System.err.println("Unknown signature: " + binaryString);
+      System.err.println("Unknown signature: " + WordShapeFeature.toSignature(shapeMask));
       return -1;
     }
   }
 
 
+  // adds the signature with the given index to signature2index, index2signature and mask2index
+  private void addSignature(String signature, int index) {
+
+    this.signature2index.put(signature, index);
+    this.index2signature.put(index, signature);
+    this.addShapeMask(signature, index);
+  }
+
+
+  private void addShapeMask(String signature, int index) {
+
+    int shapeMask = WordShapeFeature.toShapeMask(signature);
+    if (shapeMask < 0) {
+      // not a signature, so no word can have it
+      return;
+    }
+    if ((index <= 0) || (index > Short.MAX_VALUE)) {
+      throw new IllegalArgumentException(
+          " Message from GNT: signature index out of range: " + index);
+    }
+    this.mask2index[shapeMask] = (short)index;
+  }
+
+
   // NOTE: I need to take into account the loc value, either 0 or 1 to distinguish
   // the position of a word
   private void determineSignatureType(String wordIn, int wordIndex) {
@@ -200,8 +231,7 @@ public class WordShapeFeatureFactory {
     WordShapeFeature wordShapeVector = this.word2signature.get(word);
     if (!this.signature2index.containsKey(wordShapeVector.getBitVectorString())) {
       this.signatureCnt++;
-      this.signature2index.put(wordShapeVector.getBitVectorString(), this.signatureCnt);
-      this.index2signature.put(this.signatureCnt, wordShapeVector.getBitVectorString());
+      this.addSignature(wordShapeVector.getBitVectorString(), this.signatureCnt);
     }
   }
 
@@ -257,8 +287,7 @@ public class WordShapeFeatureFactory {
       String line;
       int cnt = 1;
       while ((line = in.readLine()) != null) {
-        this.signature2index.put(line, cnt);
-        this.index2signature.put(cnt, line);
+        this.addSignature(line, cnt);
         cnt++;
       }
     } catch (IOException e) {
@@ -274,8 +303,7 @@ public class WordShapeFeatureFactory {
       int cnt = 1;
       String line;
       while ((line = reader.readLine()) != null) {
-        this.signature2index.put(line, cnt);
-        this.index2signature.put(cnt, line);
+        this.addSignature(line, cnt);
         cnt++;
       }
     } catch (IOException e) {
@@ -300,4 +328,17 @@ public class WordShapeFeatureFactory {
     this.readShapeFeatureFile(archivator, shapeFeatureFileName);
     System.out.println("... done");
   }
+
+
+  public void readShapeList(BinaryModel binaryModel)
+      throws IOException {
+
+    String shapeFeatureFileName = "shapeList.txt";
+    System.out.println("Reading shape list from binary model: " + shapeFeatureFileName);
+    String[] signatures = binaryModel.getStrings(shapeFeatureFileName);
+    for (int i = 0; i < signatures.length; i++) {
+      this.addSignature(signatures[i], i + 1);
+    }
+    System.out.println("... done");
+  }
 }
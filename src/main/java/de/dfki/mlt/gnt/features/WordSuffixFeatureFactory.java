@@ -17,6 +17,7 @@ import java.util.Set;
 import java.util.TreeMap;
 
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
 import de.dfki.mlt.gnt.config.GlobalConfig;
 
 /**
@@ -38,6 +39,10 @@ import de.dfki.mlt.gnt.config.GlobalConfig;
  * <p>
  * NOTE: in principle: file operation not really needed here, because will be later done in one
  * training class
+ * <p>
+ * When the suffix list is read, the suffixes are compiled into a {@link ReversedSuffixTrie}, so
+ * that the known suffixes of a word are found without creating a substring for each suffix, see
+ * {@link #addKnownSuffixFeatures(String, int, FeatureBuffer)}.
  *
  * @author Günter Neumann, DFKI
  */
@@ -56,6 +61,8 @@ public class WordSuffixFeatureFactory {
 
   // later only used for ppPrint
   private Map<Integer, String> num2suffix = new TreeMap<Integer, String>();
+  // the known suffixes for looking up the suffixes of a word, built when the suffix list is read
+  private ReversedSuffixTrie suffixTrie;
 
   private int wordCnt = 0;
   private int suffixCnt = 0;
@@ -410,6 +417,82 @@ public class WordSuffixFeatureFactory {
   }
 
 
+  /**
+   * Returns the hash codes of all suffixes (or ngrams, or substrings) of the given word, without
+   * looking them up in the suffix list. Used for hashed suffix features, see
+   * {@link FeatureHasher}; the hash code of a suffix is the one of {@link String#hashCode()}.
+   * @param word
+   * @return the hash codes
+   */
+  public int[] getAllSubstringHashesForWord(String word) {
+
+    if (WordSuffixFeatureFactory.ngram) {
+      return this.generateNgrams(word, WordSuffixFeatureFactory.ngramSize).stream()
+          .filter(oneNgram -> !isNonWord(oneNgram))
+          .mapToInt(String::hashCode)
+          .toArray();
+    }
+    if (WordSuffixFeatureFactory.subString) {
+      List<Integer> hashes = new ArrayList<Integer>();
+      for (int i = 0; i < word.length(); i++) {
+        for (int j = i + 1; j <= word.length(); j++) {
+          String substring = word.substring(i, j);
+          if (!isNonWord(substring)) {
+            hashes.add(substring.hashCode());
+          }
+        }
+      }
+      return hashes.stream().mapToInt(Integer::intValue).toArray();
+    }
+    // the hash code of each suffix is computed from the one of the next shorter suffix, so no
+    // substring has to be created; isNonWord() currently accepts all suffixes
+    int[] hashes = new int[word.length()];
+    int hash = 0;
+    int power = 1;
+    for (int i = word.length() - 1; i >= 0; i--) {
+      hash += word.charAt(i) * power;
+      power *= 31;
+      hashes[i] = hash;
+    }
+    return hashes;
+  }
+
+
+  /**
+   * Adds a feature (indexOffset + index, 1) for each known suffix (or ngram, or substring) of the
+   * given word in ascending order of the indices, as returned by
+   * {@link #getAllKnownSubstringsForWord(String)}. Suffixes are looked up in the suffix trie.
+   * @param word
+   *          the lower-cased word
+   * @param indexOffset
+   *          added to each index
+   * @param target
+   *          the buffer the features are added to
+   * @return the number of added features
+   */
+  public int addKnownSuffixFeatures(String word, int indexOffset, FeatureBuffer target) {
+
+    // isNonWord() currently accepts all suffixes, so all known suffixes are found in the trie
+    if (!WordSuffixFeatureFactory.ngram && !WordSuffixFeatureFactory.subString
+        && (null != this.suffixTrie)) {
+      return this.suffixTrie.addSuffixFeatures(word, indexOffset, target);
+    }
+    List<Integer> suffixIndices = getAllKnownSubstringsForWord(word);
+    for (int x : suffixIndices) {
+      target.add(indexOffset + x, 1);
+    }
+    return suffixIndices.size();
+  }
+
+
+  // compiles the suffix trie after the suffix list has been read
+  private void buildSuffixTrie() {
+
+    this.suffixTrie = new ReversedSuffixTrie(this.suffix2num);
+    System.out.println("Suffix trie nodes: " + this.suffixTrie.getNodeCnt());
+  }
+
+
   //*********************** creating and storing ***********************
 
   public void createAndSaveSuffixFeatures(List<String> trainingFileNames) {
@@ -518,6 +601,7 @@ public class WordSuffixFeatureFactory {
     Path suffixPath = GlobalConfig.getModelBuildFolder().resolve("suffixList.txt");
     System.out.println("Reading suffix list from: " + suffixPath);
     this.readSuffixFile(suffixPath);
+    this.buildSuffixTrie();
     System.out.println("... done");
   }
 
@@ -527,6 +611,22 @@ public class WordSuffixFeatureFactory {
     String suffixFileName = "suffixList.txt";
     System.out.println("Reading suffix list from archive: " + suffixFileName);
     this.readSuffixFile(archivator, suffixFileName);
+    this.buildSuffixTrie();
+    System.out.println("... done");
+  }
+
+
+  public void readSuffixList(BinaryModel binaryModel)
+      throws IOException {
+
+    String suffixFileName = "suffixList.txt";
+    System.out.println("Reading suffix list from binary model: " + suffixFileName);
+    String[] suffixes = binaryModel.getStrings(suffixFileName);
+    for (int i = 0; i < suffixes.length; i++) {
+      this.getSuffix2num().put(suffixes[i], i + 1);
+      this.getNum2suffix().put(i + 1, suffixes[i]);
+    }
+    this.buildSuffixTrie();
     System.out.println("... done");
   }
 
@@ -0,0 +1,250 @@
+package de.dfki.mlt.gnt.tagger;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import de.bwaldvogel.liblinear.Model;
+import de.dfki.mlt.gnt.archive.CompressedModel;
+import de.dfki.mlt.gnt.data.Window;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
+
+/**
+ * Predicts the label of a filled window directly from the weights of a liblinear model.
+ * <p>
+ * Linear.predict() needs a FeatureNode[] for each window which is created from the
+ * features of the window and then thrown away. This predictor instead reads the features
+ * directly from the reusable {@link FeatureBuffer} of the window and adds up the weight rows
+ * of the active features.
+ * <p>
+ * The weights are kept in the same feature-major layout as in liblinear, i.e., the weights of
+ * feature index idx for all classes are found at (idx-1) * nrW ... (idx-1) * nrW + nrW - 1.
+ * The features are visited in the same order as in {@link de.dfki.mlt.gnt.trainer.ProblemInstance}
+ * and the decision values are computed with double precision, so the predicted label is exactly
+ * the same as the one of Linear.predict() (for MCSVM_CS and L2R_LR models, as well as the other
+ * classification solvers).
+ * <p>
+ * The weights are either copied from a liblinear model or mapped from a
+ * {@link de.dfki.mlt.gnt.archive.BinaryModel}, or they are the kept rows of a
+ * {@link CompressedModel}. For a compressed model, a table maps each feature index to its row;
+ * features without row have only zero weights and are skipped. Quantized weights are added up
+ * as integers times the feature value, and the decision value of each class is multiplied with
+ * the scale of the class at the end, so the predicted label can differ from the one of the
+ * original model, when the decision values of two classes are very close.
+ * <p>
+ * The predictor is only read after construction, so it can be shared by several threads.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class GNPredictor {
+
+  private DoubleBuffer weights;
+  // the quantized weights of a compressed model, null otherwise
+  private byte[] byteWeights;
+  private short[] shortWeights;
+  // the scale of each class for quantized weights, null otherwise
+  private double[] scales;
+  // the row of each feature index of a compressed model, -1 if it has no row;
+  // null if the row of feature index idx is idx - 1
+  private int[] rows;
+  private int[] labels;
+  private int nrClass;
+  // number of weights per feature
+  private int nrW;
+  // the highest feature index known by the model
+  private int maxFeatureIndex;
+
+
+  /**
+   * Copies the weights of the given model.
+   *
+   * @param model
+   *          a liblinear classification model
+   */
+  public GNPredictor(Model model) {
+
+    this(model.getLabels().clone(), model.getNrFeature(), model.getBias(),
+        DoubleBuffer.wrap(model.getFeatureWeights().clone()));
+  }
+
+
+  /**
+   * @param labels
+   *          the labels in the order of the decision values
+   * @param nrFeature
+   *          the number of features of the model, without bias
+   * @param bias
+   *          the bias of the model, negative if no bias is used
+   * @param weights
+   *          the weights in the same layout as in liblinear
+   */
+  public GNPredictor(int[] labels, int nrFeature, double bias, DoubleBuffer weights) {
+
+    this.nrClass = labels.length;
+    this.labels = labels;
+    this.weights = weights;
+    // as in liblinear, the bias is stored as additional feature nr_feature + 1
+    this.maxFeatureIndex = (bias >= 0) ? nrFeature + 1 : nrFeature;
+    // only a binary model of a solver other than MCSVM_CS has a single weight per feature;
+    // the solver type is not accessible, so nrW is derived from the size of the weights
+    this.nrW = this.weights.limit() / this.maxFeatureIndex;
+  }
+
+
+  /**
+   * Uses the kept rows of the given compressed model.
+   *
+   * @param compressed
+   *          a compressed liblinear classification model
+   */
+  public GNPredictor(CompressedModel compressed) {
+
+    this.nrClass = compressed.getLabels().length;
+    this.labels = compressed.getLabels();
+    this.maxFeatureIndex = (compressed.getBias() >= 0)
+        ? compressed.getNrFeature() + 1 : compressed.getNrFeature();
+    this.nrW = compressed.getNrW();
+    this.rows = new int[this.maxFeatureIndex + 1];
+    Arrays.fill(this.rows, -1);
+    int[] featureIndices = compressed.getFeatureIndices();
+    for (int row = 0; row < featureIndices.length; row++) {
+      this.rows[featureIndices[row]] = row;
+    }
+    this.scales = compressed.getScales();
+    this.byteWeights = compressed.getByteWeights();
+    this.shortWeights = compressed.getShortWeights();
+    if (null != compressed.getDoubleWeights()) {
+      this.weights = DoubleBuffer.wrap(compressed.getDoubleWeights());
+    }
+  }
+
+
+  /**
+   * Creates a predictor from the header lines of a liblinear model file, i.e., the lines before
+   * the weights, and the weights.
+   *
+   * @param header
+   * @param weights
+   * @return the predictor
+   */
+  public static GNPredictor create(String[] header, DoubleBuffer weights) {
+
+    int[] labels = null;
+    int nrFeature = 0;
+    double bias = -1;
+    for (String oneLine : header) {
+      String[] fields = oneLine.split(" ");
+      switch (fields[0]) {
+        case "label":
+          labels = new int[fields.length - 1];
+          for (int i = 1; i < fields.length; i++) {
+            labels[i - 1] = Integer.parseInt(fields[i]);
+          }
+          break;
+        case "nr_feature":
+          nrFeature = Integer.parseInt(fields[1]);
+          break;
+        case "bias":
+          bias = Double.parseDouble(fields[1]);
+          break;
+        default:
+          break;
+      }
+    }
+    if (null == labels) {
+      throw new IllegalArgumentException("no labels in model header");
+    }
+    return new GNPredictor(labels, nrFeature, bias, weights);
+  }
+
+
+  /**
+   * @return the number of decision values computed for each window
+   */
+  public int getNrW() {
+
+    return this.nrW;
+  }
+
+
+  /**
+   * Predicts the label of a window given by its features; the feature indices must have been
+   * adjusted.
+   *
+   * @param windowFeatures
+   *          the features of a filled window, see {@link Window#writeFeatures(FeatureBuffer)}
+   * @param decValues
+   *          buffer for the decision values of size at least {@link #getNrW()}
+   * @return the predicted label
+   */
+  public int predict(FeatureBuffer windowFeatures, double[] decValues) {
+
+    for (int i = 0; i < this.nrW; i++) {
+      decValues[i] = 0;
+    }
+
+    for (int i = 0; i < windowFeatures.size(); i++) {
+      addWeightRow(windowFeatures.getIndex(i), windowFeatures.getValue(i), decValues);
+    }
+    if (null != this.scales) {
+      for (int i = 0; i < this.nrW; i++) {
+        decValues[i] *= this.scales[i];
+      }
+    }
+
+    return getLabelWithHighestValue(decValues);
+  }
+
+
+  private void addWeightRow(int featureIndex, double value, double[] decValues) {
+
+    // features not seen in training are ignored, as in liblinear
+    if (featureIndex > this.maxFeatureIndex) {
+      return;
+    }
+    int row = (null == this.rows) ? (featureIndex - 1) : this.rows[featureIndex];
+    if (row < 0) {
+      // a pruned row of a compressed model, all its weights are zero
+      return;
+    }
+    int rowStart = row * this.nrW;
+    if (null != this.byteWeights) {
+      for (int i = 0; i < this.nrW; i++) {
+        decValues[i] += this.byteWeights[rowStart + i] * value;
+      }
+    } else if (null != this.shortWeights) {
+      for (int i = 0; i < this.nrW; i++) {
+        decValues[i] += this.shortWeights[rowStart + i] * value;
+      }
+    } else {
+      for (int i = 0; i < this.nrW; i++) {
+        decValues[i] += this.weights.get(rowStart + i) * value;
+      }
+    }
+  }
+
+
+  // the same decision as in Linear.predictValues()
+  private int getLabelWithHighestValue(double[] decValues) {
+
+    if (this.nrClass == 2) {
+      return (decValues[0] > 0) ? this.labels[0] : this.labels[1];
+    }
+    int maxIndex = 0;
+    for (int i = 1; i < this.nrClass; i++) {
+      if (decValues[i] > decValues[maxIndex]) {
+        maxIndex = i;
+      }
+    }
+    return this.labels[maxIndex];
+  }
+
+
+  @Override
+  public String toString() {
+
+    return "GNPredictor nr_class=" + this.nrClass + " nr_feature=" + this.maxFeatureIndex
+        + " nr_w=" + this.nrW
+        + ((null != this.rows) ? " compressed" : "")
+        + ((null != this.scales) ? " quantized" : "");
+  }
+}
@@ -1,6 +1,7 @@
 package de.dfki.mlt.gnt.tagger;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -15,12 +16,18 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.configuration2.ex.ConfigurationException;
 
 import de.bwaldvogel.liblinear.Linear;
 import de.bwaldvogel.liblinear.Model;
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
+import de.dfki.mlt.gnt.archive.CompressedModel;
 import de.dfki.mlt.gnt.config.ConfigKeys;
 import de.dfki.mlt.gnt.config.CorpusConfig;
 import de.dfki.mlt.gnt.config.GlobalConfig;
@@ -28,36 +35,63 @@ import de.dfki.mlt.gnt.config.ModelConfig;
 import de.dfki.mlt.gnt.corpus.ConllEvaluator;
 import de.dfki.mlt.gnt.data.Alphabet;
 import de.dfki.mlt.gnt.data.Data;
+import de.dfki.mlt.gnt.data.ModelShards;
 import de.dfki.mlt.gnt.data.OffSets;
 import de.dfki.mlt.gnt.data.Sentence;
 import de.dfki.mlt.gnt.data.Window;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
+import de.dfki.mlt.gnt.features.SentenceFeatures;
 import de.dfki.mlt.gnt.tokenizer.GntSimpleTokenizer;
-import de.dfki.mlt.gnt.trainer.ProblemInstance;
 
 /**
- *
+ * The tagger. After construction, the loaded model (alphabet, offsets, label set and liblinear
+ * model) is only read, never changed. All data changed while tagging is kept in a
+ * {@link TaggingContext} which is created for each call, so a single tagger instance can be
+ * shared by several threads.
+ * <p>
+ * A tagger loaded from a zip model archive keeps the archive open; close the tagger when it is
+ * no longer used.
  *
  * @author Günter Neumann, DFKI
  */
-public class GNTagger {
+public class GNTagger implements Closeable {
 
+  // only the label set is used in tagging
   private Data data;
   private Alphabet alphabet;
   private OffSets offSets;
   private int windowSize = 2;
-  private Model model;
+  // the predictor of each shard, a single predictor if the model is not sharded
+  private GNPredictor[] predictors;
+  // the shards of a sharded model, null otherwise
+  private ModelShards modelShards;
+  // either the zip archive or the binary model is used
   private Archivator archivator;
+  private BinaryModel binaryModel;
   private ModelConfig modelConfig;
 
 
+  /**
+   * Loads the tagger model.
+   *
+   * @param modelArchiveName
+   *          a zip model archive, to be loaded from file system or classpath, or a binary model
+   *          (see {@link BinaryModel}) with file extension .bin, to be mapped from file system
+   * @throws IOException
+   * @throws ConfigurationException
+   */
   public GNTagger(String modelArchiveName)
       throws IOException, ConfigurationException {
 
-    this.archivator = new Archivator(modelArchiveName);
-    System.out.println("Extract archive ...");
+    if (BinaryModel.isBinaryModel(modelArchiveName)) {
+      System.out.println("Map binary model ...");
+      this.binaryModel = BinaryModel.open(Paths.get(modelArchiveName));
+    } else {
+      this.archivator = new Archivator(modelArchiveName);
+      System.out.println("Extract archive ...");
+    }
     System.out.println("Set dataProps ...");
-    try (InputStream in =
-        this.archivator.getInputStream(GlobalConfig.MODEL_CONFIG_FILE.toString())) {
+    try (InputStream in = getInputStream(GlobalConfig.MODEL_CONFIG_FILE)) {
       this.modelConfig = ModelConfig.create(in);
     }
     this.alphabet = new Alphabet(this.modelConfig);
@@ -69,6 +103,28 @@ public class GNTagger {
   }
 
 
+  /**
+   * Creates a tagger from a model trained in memory, without a model archive. The alphabet with
+   * the loaded features and the label set are the ones used for training the model.
+   *
+   * @param modelConfig
+   *          the model config of the model
+   * @param alphabet
+   * @param data
+   *          the data with the label set; only the label set is used
+   * @param model
+   */
+  public GNTagger(ModelConfig modelConfig, Alphabet alphabet, Data data, Model model) {
+
+    this.modelConfig = modelConfig;
+    this.alphabet = alphabet;
+    this.data = data;
+    this.windowSize = modelConfig.getInt(ConfigKeys.WINDOW_SIZE);
+    this.offSets = new OffSets(this.alphabet, this.data, this.windowSize);
+    this.predictors = new GNPredictor[] { new GNPredictor(model) };
+  }
+
+
   private void initGNTagger(int windowSizeParam, int dim)
       throws UnsupportedEncodingException, IOException {
 
@@ -76,13 +132,15 @@ public class GNTagger {
 
     System.out.println("Set window size: " + windowSizeParam);
     this.windowSize = windowSizeParam;
-    System.out.println("Set window count: ");
-    Window.setWindowCnt(0);
 
     System.out.println("Load feature files with dim: " + dim);
-    this.alphabet.loadFeaturesFromFiles(this.archivator, dim);
-
-    this.data.readLabelSet(this.archivator);
+    if (null != this.binaryModel) {
+      this.alphabet.loadFeaturesFromFiles(this.binaryModel, dim);
+      this.data.readLabelSet(this.binaryModel);
+    } else {
+      this.alphabet.loadFeaturesFromFiles(this.archivator, dim);
+      this.data.readLabelSet(this.archivator);
+    }
 
     System.out.println("Cleaning non-used variables in Alphabet and in Data:");
     this.alphabet.clean();
@@ -96,18 +154,89 @@ public class GNTagger {
 
     time1 = System.currentTimeMillis();
 
-    System.out.println("Load model file from archive: " + this.modelConfig.getModelName() + ".txt");
-
-    //this.setModel(Model.load(new File(this.getModelInfo().getModelFile())));
-    try (
-        InputStream in = this.archivator.getInputStream(this.modelConfig.getModelName() + ".txt")) {
-      this.model = Linear.loadModel(new InputStreamReader(in, "UTF-8"));
+    String modelName = this.modelConfig.getModelName();
+    if (ModelShards.isSharded(this.modelConfig)) {
+      this.modelShards = (null != this.binaryModel)
+          ? ModelShards.read(this.binaryModel) : ModelShards.read(this.archivator);
+      System.out.println(this.modelShards.toString());
+      this.predictors = new GNPredictor[this.modelShards.getShardCnt()];
+      for (int shard = 0; shard < this.predictors.length; shard++) {
+        this.predictors[shard] =
+            loadPredictor(this.modelShards.getShardModelName(modelName, shard));
+      }
+    } else {
+      this.predictors = new GNPredictor[] { loadPredictor(modelName) };
     }
     System.out.println(".... DONE!");
 
     time2 = System.currentTimeMillis();
     System.out.println("System time (msec): " + (time2 - time1));
-    System.out.println(this.model.toString() + "\n");
+    System.out.println(this.predictors[0].toString() + "\n");
+  }
+
+
+  private GNPredictor loadPredictor(String modelName)
+      throws IOException {
+
+    if (null != this.binaryModel) {
+      System.out.println("Map model weights from binary model: " + modelName);
+      return GNPredictor.create(
+          this.binaryModel.getStrings(BinaryModel.getModelHeaderName(modelName)),
+          this.binaryModel.getDoubles(BinaryModel.getModelWeightsName(modelName)));
+    }
+    String compressedFileName = modelName + CompressedModel.FILE_EXTENSION;
+    if (this.archivator.getEntryNames().contains(compressedFileName)) {
+      System.out.println("Load compressed model from archive: " + compressedFileName);
+      try (InputStream in = this.archivator.getInputStream(compressedFileName)) {
+        return new GNPredictor(CompressedModel.read(in));
+      }
+    }
+    System.out.println("Load model file from archive: " + modelName + ".txt");
+    //this.setModel(Model.load(new File(this.getModelInfo().getModelFile())));
+    try (InputStream in = this.archivator.getInputStream(modelName + ".txt")) {
+      Model model = Linear.loadModel(new InputStreamReader(in, "UTF-8"));
+      System.out.println(model.toString());
+      return new GNPredictor(model);
+    }
+  }
+
+
+  private InputStream getInputStream(String entry)
+      throws IOException {
+
+    if (null != this.binaryModel) {
+      return this.binaryModel.getInputStream(entry);
+    }
+    return this.archivator.getInputStream(entry);
+  }
+
+
+  /**
+   * Closes the model archive of the tagger, if any. A tagger loaded from a zip model archive can
+   * not be used for evaluation anymore once it is closed.
+   *
+   * @throws IOException
+   */
+  @Override
+  public void close()
+      throws IOException {
+
+    if (null != this.archivator) {
+      this.archivator.close();
+    }
+  }
+
+
+  private Data readWordSet()
+      throws IOException {
+
+    Data wordSetData = new Data();
+    if (null != this.binaryModel) {
+      wordSetData.readWordSet(this.binaryModel);
+    } else {
+      wordSetData.readWordSet(this.archivator);
+    }
+    return wordSetData;
   }
 
 
@@ -122,26 +251,94 @@ public class GNTagger {
   public void tagFolder(String inputDirName, String inEncode, String outEncode)
       throws IOException {
 
+    tagFolder(inputDirName, inEncode, outEncode, 1);
+  }
+
+
+  /**
+   * Tags all files in the given directory using the given number of worker threads.
+   * Each file is tagged by a single worker, so the output files are the same as when tagging
+   * the files one after the other. At most 2 * threads files are waiting for a free worker;
+   * if the queue is full, the calling thread tags the next file itself.
+   *
+   * @param inputDir
+   * @param inEncode
+   * @param outEncode
+   * @param threads
+   *          number of worker threads
+   * @throws IOException
+   */
+  public void tagFolder(String inputDirName, String inEncode, String outEncode, int threads)
+      throws IOException {
+
+    long time1 = System.currentTimeMillis();
+
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(2 * threads),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    List<Future<TaggingContext>> results = new ArrayList<>();
+
     Path inputDirPath = Paths.get(inputDirName);
     try (DirectoryStream<Path> stream =
         Files.newDirectoryStream(inputDirPath, "*.{txt}")) {
       for (Path entry : stream) {
-        long time1 = System.currentTimeMillis();
+        results.add(executor.submit(() -> tagFileAndPrintTime(entry, inEncode, outEncode)));
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    // collect statistics of all files
+    int sentenceCnt = 0;
+    int windowCnt = 0;
+    for (Future<TaggingContext> oneResult : results) {
+      TaggingContext context = SentencePipeline.getResult(oneResult);
+      sentenceCnt += context.getSentenceCnt();
+      windowCnt += context.getWindowCnt();
+    }
 
-        System.out.println("Tagging file ... " + entry.toString());
+    long time2 = System.currentTimeMillis();
+    System.out.println("Tagged files: " + results.size() + " with threads: " + threads);
+    printTaggingStatistics(sentenceCnt, windowCnt, time2 - time1);
+  }
 
-        tagFile(entry, inEncode, outEncode);
 
-        long time2 = System.currentTimeMillis();
-        System.out.println("System time (msec): " + (time2 - time1));
-      }
-    }
+  private TaggingContext tagFileAndPrintTime(Path sourcePath, String inEncode, String outEncode)
+      throws IOException {
+
+    long time1 = System.currentTimeMillis();
+
+    System.out.println("Tagging file ... " + sourcePath.toString());
+
+    // files are already tagged in parallel, so each file is tagged by a single thread
+    TaggingContext context = tagFile(sourcePath, inEncode, outEncode, 1);
+
+    long time2 = System.currentTimeMillis();
+    System.out.println("System time (msec): " + (time2 - time1));
+
+    return context;
+  }
+
+
+  private static void printTaggingStatistics(int sentenceCnt, int windowCnt, long msec) {
+
+    // avoid division by zero for very small inputs
+    long time = Math.max(1, msec);
+    System.out.println("System time (msec): " + msec);
+    System.out.println("Sentences: " + sentenceCnt);
+    System.out.println("Testing instances: " + windowCnt);
+    System.out.println("Sentences/sec: " + (sentenceCnt * 1000L) / time);
+    System.out.println("Words/sec: " + (windowCnt * 1000L) / time);
   }
 
 
   /**
    * Tags each line of the given file and saves resulting tagged string in output file.
    * Output file is build from sourceFilename by adding suffix .GNT
+   * <p>
+   * The lines are tagged using the number of threads given by tagger.threads in the global
+   * config; the output file is the same for any number of threads.
    *
    * @param sourceFileName
    * @param inEncode
@@ -151,7 +348,13 @@ public class GNTagger {
   public void tagFile(Path sourcePath, String inEncode, String outEncode)
       throws IOException {
 
-    Window.setWindowCnt(0);
+    tagFile(sourcePath, inEncode, outEncode, GlobalConfig.getInt(ConfigKeys.TAGGER_THREADS, 1));
+  }
+
+
+  private TaggingContext tagFile(
+      Path sourcePath, String inEncode, String outEncode, int threads)
+      throws IOException {
 
     Path resultPath = Paths.get(sourcePath.toString() + ".GNT");
     try (BufferedReader in = Files.newBufferedReader(
@@ -159,21 +362,42 @@ public class GNTagger {
         PrintWriter out = new PrintWriter(Files.newBufferedWriter(
             resultPath, Charset.forName(outEncode)))) {
 
-      String line;
-      while ((line = in.readLine()) != null) {
-        if (!line.isEmpty()) {
-          List<String> tokens = GntSimpleTokenizer.tokenize(line);
-          Sentence sentence = tagUnlabeledTokens(tokens);
-          String taggedString = taggedSentenceToString(sentence);
-          for (String token : taggedString.split(" ")) {
-            out.println(token);
+      // each non-empty line is a sentence
+      SentencePipeline.SentenceReader<String> lineReader = () -> {
+        String line;
+        while ((line = in.readLine()) != null) {
+          if (!line.isEmpty()) {
+            return line;
           }
         }
-      }
+        return null;
+      };
+
+      SentencePipeline<String> pipeline = createSentencePipeline(threads);
+      return pipeline.run(
+          lineReader,
+          (line, context, lineWriter) -> {
+            List<String> tokens = GntSimpleTokenizer.tokenize(line);
+            Sentence sentence = tagUnlabeledTokens(tokens, context);
+            String taggedString = taggedSentenceToString(sentence);
+            for (String token : taggedString.split(" ")) {
+              lineWriter.println(token);
+            }
+          },
+          out);
     }
   }
 
 
+  private static <S> SentencePipeline<S> createSentencePipeline(int threads) {
+
+    return new SentencePipeline<S>(
+        threads,
+        GlobalConfig.getInt(ConfigKeys.TAGGER_BATCH_SIZE, 100),
+        GlobalConfig.getInt(ConfigKeys.TAGGER_MAX_BATCHES, 16));
+  }
+
+
   /**
    * Tags the given string and outputs it in a line-oriented format.
    *
@@ -182,8 +406,6 @@ public class GNTagger {
    */
   public String tagString(String inputString) {
 
-    Window.setWindowCnt(0);
-
     List<String> tokens = GntSimpleTokenizer.tokenize(inputString);
 
     Sentence sentence = tagUnlabeledTokens(tokens);
@@ -204,13 +426,17 @@ public class GNTagger {
    */
   public Sentence tagUnlabeledTokens(List<String> tokens) {
 
-    Window.setWindowCnt(0);
+    return tagUnlabeledTokens(tokens, new TaggingContext());
+  }
+
+
+  private Sentence tagUnlabeledTokens(List<String> tokens, TaggingContext context) {
 
     // create internal sentence object
-    Sentence sentence = this.data.generateSentenceObjectFromUnlabeledTokens(tokens);
+    Sentence sentence = context.generateSentenceObjectFromUnlabeledTokens(tokens);
 
     // tag sentence object
-    this.tagSentenceObject(sentence);
+    this.tagSentenceObject(sentence, context);
 
     return sentence;
   }
@@ -230,6 +456,7 @@ public class GNTagger {
   public List<String[][]> tagCoNllTables(
       List<String[][]> coNllTables, int tokenColumnIndex, int tagColumnIndex) {
 
+    TaggingContext context = new TaggingContext();
     for (String[][] oneCoNllTable : coNllTables) {
       // collect tokens
       List<String> tokens = new ArrayList<>();
@@ -237,7 +464,7 @@ public class GNTagger {
         tokens.add(oneCoNllTable[i][tokenColumnIndex]);
       }
       // apply tagger
-      Sentence taggedSentence = tagUnlabeledTokens(tokens);
+      Sentence taggedSentence = tagUnlabeledTokens(tokens, context);
       // write tags to CoNLL table
       for (int i = 0; i < taggedSentence.getTags().length; i++) {
         oneCoNllTable[i][tagColumnIndex] = taggedSentence.getTags()[i];
@@ -248,40 +475,43 @@ public class GNTagger {
   }
 
 
-  private void tagSentenceObject(Sentence sentence) {
+  private void tagSentenceObject(Sentence sentence, TaggingContext context) {
 
     // create window frames from sentence and store in list
-    this.createWindowFramesFromSentence(sentence);
+    this.createWindowFramesFromSentence(sentence, context);
 
     // create feature vector instance for each window frame and tag
-    this.constructProblemAndTag(false, true, sentence);
+    this.constructProblemAndTag(false, true, sentence, context);
 
     // reset instances - need to do this here, because learner is called directly on windows
-    this.data.cleanInstances();
+    context.cleanInstances();
   }
 
 
   // the same as trainer.TrainerInMem.createWindowFramesFromSentence()!
-  private void createWindowFramesFromSentence(Sentence sentence) {
+  private void createWindowFramesFromSentence(Sentence sentence, TaggingContext context) {
 
     // for each token t_i of current training sentence do
     // System.out.println("Sentence no: " + data.getSentenceCnt());
     int mod = 100000;
+    // the features of each token are computed once for all windows of the sentence
+    SentenceFeatures sentenceFeatures = context.getSentenceFeatures(sentence);
     for (int i = 0; i < sentence.getWords().length; i++) {
       // Assume that both arrays together define an ordered one-to-one correspondence
       // between token and label (POS)
       int labelIndex = this.data.getLabelSet().getIndex(sentence.getTags()[i]);
 
       // create local context for tagging t_i of size 2*windowSize+1 centered around t_i
-      Window tokenWindow = new Window(sentence, i, this.windowSize, this.data, this.alphabet);
+      Window tokenWindow = new Window(
+          sentence, i, this.windowSize, this.data, this.alphabet, sentenceFeatures);
       // This basically has no effect during tagging
       tokenWindow.setLabelIndex(labelIndex);
 
-      this.data.getInstances().add(tokenWindow);
+      context.addInstance(tokenWindow);
 
       // Print how many windows are created so far, and pretty print every mod-th window
-      if ((Window.getWindowCnt() % mod) == 0) {
-        System.out.println("# Window instances: " + Window.getWindowCnt());
+      if ((context.getWindowCnt() % mod) == 0) {
+        System.out.println("# Window instances: " + context.getWindowCnt());
       }
     }
   }
@@ -291,29 +521,36 @@ public class GNTagger {
    * Iterate through all window frames:
    * - create the feature vector: train=false means: handle unknown words; adjust=true:
    *   means adjust feature indices
-   * - create a problem instance -> mainly the feature vector
-   * - and call the learner with model and feature vector
+   * - and call the predictor with the filled window; for a sharded model, the predictor of the
+   *   shard of the cluster id of the center word is used
    * - save the predicted label in the corresponding field of the word in the sentence.
    *
    * Mainly the same as trainer.TrainerInMem.constructProblem(train, adjust), but uses predictor
+   * instead of creating a problem instance
    */
-  private void constructProblemAndTag(boolean train, boolean adjust, Sentence sentence) {
+  private void constructProblemAndTag(
+      boolean train, boolean adjust, Sentence sentence, TaggingContext context) {
 
     int prediction = 0;
 
-    for (int i = 0; i < this.data.getInstances().size(); i++) {
+    for (int i = 0; i < context.getInstances().size(); i++) {
       // For each window frame of a sentence
-      Window nextWindow = this.data.getInstances().get(i);
+      Window nextWindow = context.getInstances().get(i);
       // Fill the frame with all available features. First boolean sets
       // training mode to false which means that unknown words are handled.
       nextWindow.setOffSets(this.offSets);
       nextWindow.fillWindow(train, adjust);
-      // Create the feature vector
-      ProblemInstance problemInstance = new ProblemInstance();
-      problemInstance.createProblemInstanceFromWindow(nextWindow);
-
-      // Call the learner to predict the label
-      prediction = (int)Linear.predict(this.model, problemInstance.getFeatureVector());
+      // Predict the label directly from the window features and the model weights;
+      // this gives the same label as Linear.predict() on the feature vector of the window
+      FeatureBuffer windowFeatures = context.getWindowFeatures();
+      nextWindow.writeFeatures(windowFeatures);
+      GNPredictor predictor = this.predictors[0];
+      if (null != this.modelShards) {
+        predictor = this.predictors[this.modelShards.getShard(
+            ModelShards.getClusterId(this.alphabet, sentence.getWords()[i]))];
+      }
+      prediction = predictor.predict(
+          windowFeatures, context.getDecisionValues(predictor.getNrW()));
       /*
       System.out.println(
           "Word: "
@@ -369,8 +606,7 @@ public class GNTagger {
     int wordFormIndex = corpusConfig.getInt(ConfigKeys.WORD_FORM_INDEX);
     int tagIndex = corpusConfig.getInt(ConfigKeys.TAG_INDEX);
 
-    Data wordSetData = new Data();
-    wordSetData.readWordSet(this.archivator);
+    Data wordSetData = readWordSet();
     System.out.println(" words: " + wordSetData.getWordSet().size());
     ConllEvaluator evaluator = new ConllEvaluator(wordSetData.getWordSet());
 
@@ -389,6 +625,98 @@ public class GNTagger {
     return evaluator;
   }
 
+  /**
+   * Evaluates the tagger on the dev files of the given corpus, without writing eval files.
+   *
+   * @param corpusConfig
+   * @return the evaluator with the accuracies of all dev files together
+   * @throws IOException
+   */
+  public ConllEvaluator evalDev(CorpusConfig corpusConfig)
+      throws IOException {
+
+    List<String> devFileNames = corpusConfig.getList(
+        String.class, ConfigKeys.DEV_LABELED_DATA, Collections.emptyList());
+    if (devFileNames.isEmpty()) {
+      throw new IllegalArgumentException(" Message from GNT: no dev files in the corpus config");
+    }
+    int wordFormIndex = corpusConfig.getInt(ConfigKeys.WORD_FORM_INDEX);
+    int tagIndex = corpusConfig.getInt(ConfigKeys.TAG_INDEX);
+    ConllEvaluator evaluator = new ConllEvaluator(readWordSet().getWordSet());
+    for (String oneDevFileName : devFileNames) {
+      tagAndEvalConllFile(oneDevFileName, wordFormIndex, tagIndex, evaluator);
+    }
+    evaluator.computeAccuracy();
+    return evaluator;
+  }
+
+
+  /**
+   * Tags the sentences of the given conll file in the calling thread and adds the tagged tokens
+   * to the given evaluator, without writing an eval file. Several taggers can evaluate at the
+   * same time.
+   *
+   * @param sourceFileName
+   * @param wordFormIndex
+   * @param tagIndex
+   * @param evaluator
+   * @throws IOException
+   */
+  public void tagAndEvalConllFile(
+      String sourceFileName, int wordFormIndex, int tagIndex, ConllEvaluator evaluator)
+      throws IOException {
+
+    TaggingContext context = new TaggingContext();
+    try (BufferedReader conllReader =
+        Files.newBufferedReader(Paths.get(sourceFileName), StandardCharsets.UTF_8)) {
+      String line;
+      List<String[]> tokens = new ArrayList<>();
+      while ((line = conllReader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          tokens.add(line.split("\t"));
+          continue;
+        }
+        this.tagAndEvalConllSentence(tokens, wordFormIndex, tagIndex, evaluator, context);
+        tokens = new ArrayList<>();
+      }
+    }
+  }
+
+
+  /**
+   * Tags the given conll sentences in the calling thread and adds the tagged tokens to the given
+   * evaluator.
+   *
+   * @param sentences
+   *          the tokens of each sentence, as read from a conll file
+   * @param wordFormIndex
+   * @param tagIndex
+   * @param evaluator
+   */
+  public void tagAndEvalConllSentences(List<List<String[]>> sentences,
+      int wordFormIndex, int tagIndex, ConllEvaluator evaluator) {
+
+    TaggingContext context = new TaggingContext();
+    for (List<String[]> tokens : sentences) {
+      this.tagAndEvalConllSentence(tokens, wordFormIndex, tagIndex, evaluator, context);
+    }
+  }
+
+
+  private void tagAndEvalConllSentence(List<String[]> tokens, int wordFormIndex, int tagIndex,
+      ConllEvaluator evaluator, TaggingContext context) {
+
+    Sentence sentence = context.generateSentenceObjectFromConllSentence(tokens, wordFormIndex);
+    this.tagSentenceObject(sentence, context);
+    // the same labels as written to the eval file by writeTokensAndWithLabels()
+    for (int i = 0; i < tokens.size(); i++) {
+      String word = tokens.get(i)[wordFormIndex];
+      evaluator.addToken(word, tokens.get(i)[tagIndex],
+          PostProcessor.determineTwitterLabel(word, sentence.getTags()[i]));
+    }
+  }
+
+
   /**
    * This version additionally creates an output file which can be used by the official UD evaluation script
    * AND can be used as input also for testing MDParser on predicted POS tags !
@@ -408,8 +736,7 @@ public class GNTagger {
     int wordFormIndex = corpusConfig.getInt(ConfigKeys.WORD_FORM_INDEX);
     int tagIndex = corpusConfig.getInt(ConfigKeys.TAG_INDEX);
 
-    Data wordSetData = new Data();
-    wordSetData.readWordSet(this.archivator);
+    Data wordSetData = readWordSet();
     System.out.println(" words: " + wordSetData.getWordSet().size());
     ConllEvaluator evaluator = new ConllEvaluator(wordSetData.getWordSet());
 
@@ -490,31 +817,23 @@ public class GNTagger {
     long localTime2;
 
     System.out.println("\n++++\nDo testing from file: " + sourceFileName);
-    // Reset some data to make sure each file has same change
-    this.data.setSentenceCnt(0);
-    Window.setWindowCnt(0);
 
     localTime1 = System.currentTimeMillis();
 
+    TaggingContext context = new TaggingContext();
     Path evalPath = this.tagAndWriteSentencesFromConllReader(
-        sourceFileName, sentenceCnt, wordFormIndex, tagIndex);
+        sourceFileName, sentenceCnt, wordFormIndex, tagIndex, context);
 
     localTime2 = System.currentTimeMillis();
-    System.out.println("System time (msec): " + (localTime2 - localTime1));
-
-    long tokenPerSec = (Window.getWindowCnt() * 1000) / (localTime2 - localTime1);
-    System.out.println("Sentences: " + this.data.getSentenceCnt());
-    System.out.println("Testing instances: " + Window.getWindowCnt());
-    System.out.println(
-        "Sentences/sec: " + (this.data.getSentenceCnt() * 1000) / (localTime2 - localTime1));
-    System.out.println("Words/sec: " + tokenPerSec);
+    printTaggingStatistics(
+        context.getSentenceCnt(), context.getWindowCnt(), localTime2 - localTime1);
 
     return evalPath;
   }
 
 
   private Path tagAndWriteSentencesFromConllReader(
-      String sourceFileName, int max, int wordFormIndex, int tagIndex)
+      String sourceFileName, int max, int wordFormIndex, int tagIndex, TaggingContext context)
       throws IOException {
 
     Path sourcePath = Paths.get(sourceFileName);
@@ -528,38 +847,46 @@ public class GNTagger {
         PrintWriter conllWriter =
             new PrintWriter(Files.newBufferedWriter(evalPath, StandardCharsets.UTF_8))) {
 
-      String line = "";
-      List<String[]> tokens = new ArrayList<String[]>();
-
-      while ((line = conllReader.readLine()) != null) {
-        if (line.isEmpty()) {
-          // For found sentence, do tagging:
-          // Stop if max sentences have been processed
-          if ((max > 0) && (this.data.getSentenceCnt() > max)) {
-            break;
+      int[] readSentenceCnt = { 0 };
+      SentencePipeline.SentenceReader<List<String[]>> sentenceReader = () -> {
+        String line = "";
+        List<String[]> tokens = new ArrayList<String[]>();
+        while ((line = conllReader.readLine()) != null) {
+          if (line.isEmpty()) {
+            // For found sentence, do tagging:
+            // Stop if max sentences have been processed
+            if ((max > 0) && (readSentenceCnt[0] > max)) {
+              return null;
+            }
+            readSentenceCnt[0]++;
+            return tokens;
           }
-
-          // create internal sentence object and label maps
-          // Use specified label from conll file for evaluation purposes later
-          Sentence sentence =
-              this.data.generateSentenceObjectFromConllLabeledSentence(
-                  tokens, wordFormIndex, tagIndex);
-
-          // tag sentence object
-          this.tagSentenceObject(sentence);
-
-          // Create conlleval consistent output using original conll tokens plus predicted labels
-          this.writeTokensAndWithLabels(conllWriter, tokens, sentence, wordFormIndex, tagIndex);
-
-          // reset tokens
-          tokens = new ArrayList<String[]>();
-        } else {
           // Collect all the words of a conll sentence
-
           String[] tokenizedLine = line.split("\t");
           tokens.add(tokenizedLine);
         }
-      }
+        return null;
+      };
+
+      SentencePipeline<List<String[]>> pipeline =
+          createSentencePipeline(GlobalConfig.getInt(ConfigKeys.TAGGER_THREADS, 1));
+      TaggingContext allContext = pipeline.run(
+          sentenceReader,
+          (tokens, sentenceContext, sentenceWriter) -> {
+            // create internal sentence object;
+            // the specified label from conll file is used for evaluation purposes later
+            Sentence sentence =
+                sentenceContext.generateSentenceObjectFromConllSentence(tokens, wordFormIndex);
+
+            // tag sentence object
+            this.tagSentenceObject(sentence, sentenceContext);
+
+            // Create conlleval consistent output using original conll tokens plus predicted labels
+            this.writeTokensAndWithLabels(
+                sentenceWriter, tokens, sentence, wordFormIndex, tagIndex);
+          },
+          conllWriter);
+      context.addCounts(allContext);
     }
 
     return evalPath;
@@ -0,0 +1,212 @@
+package de.dfki.mlt.gnt.tagger;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.dfki.mlt.gnt.data.Pair;
+
+/**
+ * Tags the sentences of a single input with several worker threads and writes the results in
+ * the original order of the sentences:
+ * <li> the calling thread reads the sentences and groups them into batches
+ * <li> each batch is tagged by one of the worker threads, using its own {@link TaggingContext}
+ * <li> a single writer thread waits for the batches in the order they were read and writes them
+ * <p>
+ * The writer takes the batches from a queue of size maxBatches; if it is full, the reader waits.
+ * So at most maxBatches batches are kept in memory, no matter how large the input is.
+ * <p>
+ * With a single thread, all sentences are read, tagged and written by the calling thread, so
+ * that the output is exactly the same in both modes.
+ *
+ * @author Günter Neumann, DFKI
+ * @param <S>
+ *          the type of a sentence as read from the input
+ */
+class SentencePipeline<S> {
+
+  /**
+   * Reads the next sentence from the input.
+   *
+   * @param <S>
+   *          the type of a sentence
+   */
+  interface SentenceReader<S> {
+
+    /**
+     * @return the next sentence or null at the end of the input
+     * @throws IOException
+     */
+    S readSentence() throws IOException;
+  }
+
+
+  /**
+   * Tags a sentence and writes the tagged sentence to the given writer.
+   *
+   * @param <S>
+   *          the type of a sentence
+   */
+  interface SentenceTagger<S> {
+
+    void tagAndWrite(S sentence, TaggingContext context, PrintWriter out);
+  }
+
+
+  private int threads;
+  private int batchSize;
+  private int maxBatches;
+
+
+  SentencePipeline(int threads, int batchSize, int maxBatches) {
+
+    this.threads = threads;
+    this.batchSize = batchSize;
+    this.maxBatches = maxBatches;
+  }
+
+
+  /**
+   * Reads all sentences using the reader, tags them using the tagger and writes them to out.
+   *
+   * @param reader
+   * @param tagger
+   * @param out
+   * @return a context with the number of tagged sentences and windows
+   * @throws IOException
+   */
+  TaggingContext run(SentenceReader<S> reader, SentenceTagger<S> tagger, PrintWriter out)
+      throws IOException {
+
+    if (this.threads <= 1) {
+      TaggingContext context = new TaggingContext();
+      S sentence;
+      while ((sentence = reader.readSentence()) != null) {
+        tagger.tagAndWrite(sentence, context, out);
+      }
+      return context;
+    }
+
+    ExecutorService workers = Executors.newFixedThreadPool(this.threads);
+    ExecutorService writer = Executors.newSingleThreadExecutor();
+    BlockingQueue<Future<Pair<String, TaggingContext>>> queue =
+        new ArrayBlockingQueue<>(this.maxBatches);
+    // an already completed future with null value marks the end of the input
+    Future<Pair<String, TaggingContext>> endOfInput = CompletableFuture.completedFuture(null);
+
+    Future<TaggingContext> writerResult = writer.submit(() -> writeBatches(queue, out));
+    try {
+      List<S> batch = new ArrayList<>(this.batchSize);
+      S sentence;
+      while ((sentence = reader.readSentence()) != null) {
+        batch.add(sentence);
+        if (batch.size() == this.batchSize) {
+          final List<S> fullBatch = batch;
+          queue.put(workers.submit(() -> tagBatch(fullBatch, tagger)));
+          batch = new ArrayList<>(this.batchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        final List<S> lastBatch = batch;
+        queue.put(workers.submit(() -> tagBatch(lastBatch, tagger)));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      // make sure the writer terminates, even if reading failed
+      try {
+        queue.put(endOfInput);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        writerResult.cancel(true);
+      }
+      workers.shutdown();
+      writer.shutdown();
+    }
+
+    return getResult(writerResult);
+  }
+
+
+  private Pair<String, TaggingContext> tagBatch(List<S> batch, SentenceTagger<S> tagger) {
+
+    TaggingContext context = new TaggingContext();
+    StringWriter batchOutput = new StringWriter();
+    try (PrintWriter batchWriter = new PrintWriter(batchOutput)) {
+      for (S oneSentence : batch) {
+        tagger.tagAndWrite(oneSentence, context, batchWriter);
+      }
+    }
+    return new Pair<>(batchOutput.toString(), context);
+  }
+
+
+  // Writes the tagged batches in the order in which they have been read.
+  // If a batch fails, the remaining batches are still taken from the queue (but not written),
+  // so that the reader is never blocked
+  private TaggingContext writeBatches(
+      BlockingQueue<Future<Pair<String, TaggingContext>>> queue, PrintWriter out)
+      throws IOException, InterruptedException {
+
+    TaggingContext allContext = new TaggingContext();
+    IOException firstError = null;
+    while (true) {
+      Future<Pair<String, TaggingContext>> next = queue.take();
+      Pair<String, TaggingContext> taggedBatch;
+      try {
+        taggedBatch = getResult(next);
+      } catch (IOException e) {
+        if (firstError == null) {
+          firstError = e;
+        }
+        continue;
+      }
+      if (taggedBatch == null) {
+        break;
+      }
+      if (firstError == null) {
+        out.write(taggedBatch.getLeft());
+        allContext.addCounts(taggedBatch.getRight());
+      }
+    }
+    if (firstError != null) {
+      throw firstError;
+    }
+    return allContext;
+  }
+
+
+  /**
+   * Waits for the result of the given future. Exceptions of the computation are re-thrown as
+   * IOException.
+   *
+   * @param future
+   * @return the result
+   * @throws IOException
+   */
+  static <T> T getResult(Future<T> future)
+      throws IOException {
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException)e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package de.dfki.mlt.gnt.tagger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dfki.mlt.gnt.data.Sentence;
+import de.dfki.mlt.gnt.data.Window;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
+import de.dfki.mlt.gnt.features.SentenceFeatures;
+
+/**
+ * Keeps all the data that is changed while tagging, i.e., the window frames of the current
+ * sentence and some counters for statistics.
+ * <p>
+ * The loaded model of a {@link GNTagger} (alphabet, offsets, label set and liblinear model) is
+ * never changed while tagging. All per-sentence data lives in a tagging context instead, so that a
+ * single tagger can be used by many threads in parallel, as long as each thread uses its own
+ * context.
+ * <p>
+ * The buffers for the token features, the window features and the decision values are reused
+ * for all sentences, so that tagging does not create garbage per feature.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class TaggingContext {
+
+  // the window frames of the sentence currently tagged
+  private List<Window> instances = new ArrayList<Window>();
+  private int sentenceCnt = 0;
+  private int windowCnt = 0;
+  // the token features of the sentence currently tagged
+  private SentenceFeatures sentenceFeatures = new SentenceFeatures();
+  // buffer for the features of the window currently tagged
+  private FeatureBuffer windowFeatures = new FeatureBuffer();
+  // buffer for the decision values of the predictor
+  private double[] decisionValues = new double[0];
+
+
+  public List<Window> getInstances() {
+
+    return this.instances;
+  }
+
+
+  public void cleanInstances() {
+
+    this.instances = new ArrayList<Window>();
+  }
+
+
+  public void addInstance(Window window) {
+
+    this.instances.add(window);
+    this.windowCnt++;
+  }
+
+
+  public int getSentenceCnt() {
+
+    return this.sentenceCnt;
+  }
+
+
+  public int getWindowCnt() {
+
+    return this.windowCnt;
+  }
+
+
+  /**
+   * Returns the token features, reset for the given sentence.
+   *
+   * @param sentence
+   * @return the token features
+   */
+  public SentenceFeatures getSentenceFeatures(Sentence sentence) {
+
+    this.sentenceFeatures.reset(sentence);
+    return this.sentenceFeatures;
+  }
+
+
+  public FeatureBuffer getWindowFeatures() {
+
+    return this.windowFeatures;
+  }
+
+
+  /**
+   * Returns a buffer for the decision values of the predictor, which is reused for all windows.
+   *
+   * @param size
+   *          the minimal size of the buffer
+   * @return the buffer
+   */
+  public double[] getDecisionValues(int size) {
+
+    if (this.decisionValues.length < size) {
+      this.decisionValues = new double[size];
+    }
+    return this.decisionValues;
+  }
+
+
+  /**
+   * Adds the sentence and window counts of the given context to the counts of this context.
+   *
+   * @param otherContext
+   */
+  void addCounts(TaggingContext otherContext) {
+
+    this.sentenceCnt += otherContext.getSentenceCnt();
+    this.windowCnt += otherContext.getWindowCnt();
+  }
+
+
+  /**
+   * Creates a sentence object from the given unlabeled tokens.
+   * <li> No lower case here of word
+   * <li> Using a dummy tag null
+   *
+   * @param tokens
+   * @return the sentence
+   */
+  public Sentence generateSentenceObjectFromUnlabeledTokens(List<String> tokens) {
+
+    Sentence newSentence = new Sentence(tokens.size());
+    for (int i = 0; i < tokens.size(); i++) {
+      newSentence.addNextToken(i, tokens.get(i), null);
+    }
+    this.sentenceCnt++;
+    return newSentence;
+  }
+
+
+  /**
+   * Creates a sentence object from the given conll tokens. Only the word is used, the tags are
+   * set to null; the gold tags are taken from the conll tokens when writing the eval file.
+   * <p>
+   * Unlike {@link de.dfki.mlt.gnt.data.Data#generateSentenceObjectFromConllLabeledSentence(
+   * List, int, int)}, the word and label sets of the tagger are not changed.
+   *
+   * @param tokens
+   * @param wordFormIndex
+   * @return the sentence
+   */
+  public Sentence generateSentenceObjectFromConllSentence(
+      List<String[]> tokens, int wordFormIndex) {
+
+    Sentence newSentence = new Sentence(tokens.size());
+    for (int i = 0; i < tokens.size(); i++) {
+      newSentence.addNextToken(i, tokens.get(i)[wordFormIndex].trim(), null);
+    }
+    this.sentenceCnt++;
+    return newSentence;
+  }
+}
@@ -0,0 +1,420 @@
+package de.dfki.mlt.gnt.trainer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.bwaldvogel.liblinear.Feature;
+import de.bwaldvogel.liblinear.FeatureNode;
+import de.bwaldvogel.liblinear.Problem;
+import de.dfki.mlt.gnt.config.ConfigKeys;
+import de.dfki.mlt.gnt.config.GlobalConfig;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
+
+/**
+ * Keeps the feature vectors and labels of all training instances in a few flat primitive
+ * arrays instead of one FeatureNode object per feature.
+ * <p>
+ * The features of instance i are found at positions getRowStart(i) ... getRowEnd(i) - 1 of
+ * the parallel arrays of feature indices and values. A feature needs 12 bytes, compared to
+ * about 32 bytes for a FeatureNode plus its reference in problem.x. The arrays are split into
+ * blocks of 2^20 features, so that they grow without copying all features, and so that the
+ * blocks already converted can be released by {@link #toLiblinearProblem(double, boolean)}.
+ * <p>
+ * Trainers that can read this form use it directly. For liblinear,
+ * {@link #toLiblinearProblem(double, boolean)} creates the feature nodes only when training
+ * starts. The nodes of indicator features, i.e., with value 1, are created only once per feature
+ * index and shared by all instances, since liblinear never changes the feature nodes of a
+ * problem. The nodes of features with other values, e.g., of the distributed word features, are
+ * only shared if trainer.share.feature.values is set in the global config, since this needs a map
+ * of all distinct pairs of feature index and value.
+ * <p>
+ * The values are kept as double, so the trained model is exactly the same as with a problem
+ * created from FeatureNode objects. The total number of features must be less than 2^31.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class CompactProblem {
+
+  private static final int BLOCK_BITS = 20;
+  private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+  private static final int INITIAL_BLOCK_SIZE = 1024;
+
+  private int instanceCnt = 0;
+  private int[] labels;
+  // the start of the features of each instance, followed by the end of the last instance
+  private int[] rowStarts;
+  // the feature at position p is at [p >>> BLOCK_BITS][p & BLOCK_MASK]; all blocks but the last
+  // have BLOCK_SIZE elements
+  private int[][] indexBlocks = { new int[INITIAL_BLOCK_SIZE] };
+  private double[][] valueBlocks = { new double[INITIAL_BLOCK_SIZE] };
+  // the highest feature index, as problem.n
+  private int numberOfFeatures = 0;
+
+
+  /**
+   * @param expectedInstanceCnt
+   *          the number of instances to be added, if known; more can be added
+   */
+  public CompactProblem(int expectedInstanceCnt) {
+
+    this.labels = new int[Math.max(16, expectedInstanceCnt)];
+    this.rowStarts = new int[this.labels.length + 1];
+  }
+
+
+  public int getInstanceCnt() {
+
+    return this.instanceCnt;
+  }
+
+
+  /**
+   * @return the number of features of all instances
+   */
+  public int getFeatureCnt() {
+
+    return this.rowStarts[this.instanceCnt];
+  }
+
+
+  public int getNumberOfFeatures() {
+
+    return this.numberOfFeatures;
+  }
+
+
+  public void setNumberOfFeatures(int numberOfFeatures) {
+
+    this.numberOfFeatures = numberOfFeatures;
+  }
+
+
+  public int getLabel(int instance) {
+
+    return this.labels[instance];
+  }
+
+
+  public int getRowStart(int instance) {
+
+    return this.rowStarts[instance];
+  }
+
+
+  public int getRowEnd(int instance) {
+
+    return this.rowStarts[instance + 1];
+  }
+
+
+  public int getIndex(int position) {
+
+    return this.indexBlocks[position >>> BLOCK_BITS][position & BLOCK_MASK];
+  }
+
+
+  public double getValue(int position) {
+
+    return this.valueBlocks[position >>> BLOCK_BITS][position & BLOCK_MASK];
+  }
+
+
+  private void setFeature(int position, int index, double value) {
+
+    this.indexBlocks[position >>> BLOCK_BITS][position & BLOCK_MASK] = index;
+    this.valueBlocks[position >>> BLOCK_BITS][position & BLOCK_MASK] = value;
+  }
+
+
+  /**
+   * @return the approximate number of bytes used by the arrays
+   */
+  public long getMemorySize() {
+
+    long memorySize = 4L * (this.labels.length + this.rowStarts.length);
+    for (int block = 0; block < this.indexBlocks.length; block++) {
+      if (this.indexBlocks[block] != null) {
+        memorySize += 12L * this.indexBlocks[block].length;
+      }
+    }
+    return memorySize;
+  }
+
+
+  // makes sure that the feature blocks can keep the given number of features
+  private void ensureFeatureCapacity(int featureCnt) {
+
+    if (featureCnt == 0) {
+      return;
+    }
+    int lastBlock = (featureCnt - 1) >>> BLOCK_BITS;
+    int oldLastBlock = this.indexBlocks.length - 1;
+    if (lastBlock > oldLastBlock) {
+      this.indexBlocks = Arrays.copyOf(this.indexBlocks, lastBlock + 1);
+      this.valueBlocks = Arrays.copyOf(this.valueBlocks, lastBlock + 1);
+    }
+    for (int block = Math.min(oldLastBlock, lastBlock); block <= lastBlock; block++) {
+      int neededSize = (block < lastBlock) ? BLOCK_SIZE : featureCnt - (block << BLOCK_BITS);
+      int currentSize = (this.indexBlocks[block] == null) ? 0 : this.indexBlocks[block].length;
+      if (neededSize > currentSize) {
+        int newSize = (block < lastBlock) ? BLOCK_SIZE : Math.min(BLOCK_SIZE,
+            Math.max(neededSize, Math.max(2 * currentSize, INITIAL_BLOCK_SIZE)));
+        this.indexBlocks[block] = (this.indexBlocks[block] == null)
+            ? new int[newSize] : Arrays.copyOf(this.indexBlocks[block], newSize);
+        this.valueBlocks[block] = (this.valueBlocks[block] == null)
+            ? new double[newSize] : Arrays.copyOf(this.valueBlocks[block], newSize);
+      }
+    }
+  }
+
+
+  // copies the features at the given positions of the source to the given position
+  private void copyFeatures(
+      CompactProblem source, int sourcePosition, int targetPosition, int length) {
+
+    int copied = 0;
+    while (copied < length) {
+      int from = sourcePosition + copied;
+      int to = targetPosition + copied;
+      // copy up to the end of the current source or target block
+      int segment = Math.min(length - copied,
+          Math.min(BLOCK_SIZE - (from & BLOCK_MASK), BLOCK_SIZE - (to & BLOCK_MASK)));
+      System.arraycopy(source.indexBlocks[from >>> BLOCK_BITS], from & BLOCK_MASK,
+          this.indexBlocks[to >>> BLOCK_BITS], to & BLOCK_MASK, segment);
+      System.arraycopy(source.valueBlocks[from >>> BLOCK_BITS], from & BLOCK_MASK,
+          this.valueBlocks[to >>> BLOCK_BITS], to & BLOCK_MASK, segment);
+      copied += segment;
+    }
+  }
+
+
+  /**
+   * Adds an instance given by its label and its features, which must be sorted by index in
+   * ascending order.
+   *
+   * @param label
+   * @param features
+   */
+  public void addInstance(int label, FeatureBuffer features) {
+
+    if (this.instanceCnt == this.labels.length) {
+      this.labels = Arrays.copyOf(this.labels, 2 * this.labels.length);
+      this.rowStarts = Arrays.copyOf(this.rowStarts, this.labels.length + 1);
+    }
+    int rowStart = this.rowStarts[this.instanceCnt];
+    int rowEnd = rowStart + features.size();
+    ensureFeatureCapacity(rowEnd);
+    for (int i = 0; i < features.size(); i++) {
+      setFeature(rowStart + i, features.getIndex(i), features.getValue(i));
+    }
+    this.labels[this.instanceCnt] = label;
+    this.instanceCnt++;
+    this.rowStarts[this.instanceCnt] = rowEnd;
+  }
+
+
+  /**
+   * Adds the given instance of another problem.
+   *
+   * @param otherProblem
+   * @param instance
+   */
+  public void addInstance(CompactProblem otherProblem, int instance) {
+
+    if (this.instanceCnt == this.labels.length) {
+      this.labels = Arrays.copyOf(this.labels, 2 * this.labels.length);
+      this.rowStarts = Arrays.copyOf(this.rowStarts, this.labels.length + 1);
+    }
+    int rowStart = this.rowStarts[this.instanceCnt];
+    int size = otherProblem.getRowEnd(instance) - otherProblem.getRowStart(instance);
+    ensureFeatureCapacity(rowStart + size);
+    copyFeatures(otherProblem, otherProblem.getRowStart(instance), rowStart, size);
+    this.labels[this.instanceCnt] = otherProblem.labels[instance];
+    this.instanceCnt++;
+    this.rowStarts[this.instanceCnt] = rowStart + size;
+  }
+
+
+  /**
+   * Adds all instances of the given problem.
+   *
+   * @param otherProblem
+   */
+  public void addAll(CompactProblem otherProblem) {
+
+    int newInstanceCnt = this.instanceCnt + otherProblem.instanceCnt;
+    if (newInstanceCnt > this.labels.length) {
+      int newCapacity = Math.max(newInstanceCnt, 2 * this.labels.length);
+      this.labels = Arrays.copyOf(this.labels, newCapacity);
+      this.rowStarts = Arrays.copyOf(this.rowStarts, newCapacity + 1);
+    }
+    int start = getFeatureCnt();
+    ensureFeatureCapacity(start + otherProblem.getFeatureCnt());
+    System.arraycopy(otherProblem.labels, 0, this.labels, this.instanceCnt,
+        otherProblem.instanceCnt);
+    for (int i = 1; i <= otherProblem.instanceCnt; i++) {
+      this.rowStarts[this.instanceCnt + i] = start + otherProblem.rowStarts[i];
+    }
+    copyFeatures(otherProblem, 0, start, otherProblem.getFeatureCnt());
+    this.instanceCnt = newInstanceCnt;
+  }
+
+
+  /**
+   * Releases the unused capacity of the arrays, after all instances have been added.
+   */
+  public void trim() {
+
+    this.labels = Arrays.copyOf(this.labels, this.instanceCnt);
+    this.rowStarts = Arrays.copyOf(this.rowStarts, this.instanceCnt + 1);
+    int blockCnt = Math.max(1, (getFeatureCnt() + BLOCK_SIZE - 1) >>> BLOCK_BITS);
+    int lastBlockSize = getFeatureCnt() - ((blockCnt - 1) << BLOCK_BITS);
+    this.indexBlocks = Arrays.copyOf(this.indexBlocks, blockCnt);
+    this.valueBlocks = Arrays.copyOf(this.valueBlocks, blockCnt);
+    this.indexBlocks[blockCnt - 1] = Arrays.copyOf(this.indexBlocks[blockCnt - 1], lastBlockSize);
+    this.valueBlocks[blockCnt - 1] = Arrays.copyOf(this.valueBlocks[blockCnt - 1], lastBlockSize);
+  }
+
+
+  /**
+   * Checks whether the features of each instance are sorted by index in ascending order, as
+   * required by liblinear.
+   */
+  public void checkFeatureOrder() {
+
+    for (int i = 0; i < this.instanceCnt; i++) {
+      int indexBefore = 0;
+      for (int position = getRowStart(i); position < getRowEnd(i); position++) {
+        if (getIndex(position) <= indexBefore) {
+          throw new IllegalArgumentException(
+              " Message from GNT: feature nodes must be sorted by index in ascending order");
+        }
+        indexBefore = getIndex(position);
+      }
+    }
+  }
+
+
+  /**
+   * Writes the given instance with its label as a line of a liblinear input file.
+   *
+   * @param instanceWriter
+   * @param instance
+   * @throws IOException
+   */
+  public void writeInstance(BufferedWriter instanceWriter, int instance)
+      throws IOException {
+
+    StringBuilder output = new StringBuilder();
+    output.append(this.labels[instance]);
+    for (int position = getRowStart(instance); position < getRowEnd(instance); position++) {
+      output.append(' ').append(getIndex(position)).append(':').append(getValue(position));
+    }
+    instanceWriter.write(output.toString());
+    instanceWriter.newLine();
+  }
+
+
+  /**
+   * Creates a liblinear problem with the same instances. The feature nodes of indicator features
+   * are shared between instances, the other feature nodes only if trainer.share.feature.values
+   * is set.
+   *
+   * @param bias
+   *          the bias of the problem
+   * @return the liblinear problem
+   */
+  public Problem toLiblinearProblem(double bias) {
+
+    return toLiblinearProblem(bias, false);
+  }
+
+
+  /**
+   * Creates a liblinear problem with the same instances. The feature nodes of indicator features
+   * are shared between instances, the other feature nodes only if trainer.share.feature.values
+   * is set.
+   *
+   * @param bias
+   *          the bias of the problem
+   * @param release
+   *          if true, each block of features is released as soon as all its features are
+   *          converted, so that the compact form and the liblinear form of the features are not
+   *          kept in memory at the same time; the problem is empty afterwards
+   * @return the liblinear problem
+   */
+  public Problem toLiblinearProblem(double bias, boolean release) {
+
+    Problem problem = new Problem();
+    problem.l = this.instanceCnt;
+    problem.n = this.numberOfFeatures;
+    problem.bias = bias;
+    problem.y = new double[this.instanceCnt];
+    problem.x = new Feature[this.instanceCnt][];
+
+    // the shared node of each indicator feature index, null if not created yet
+    FeatureNode[] indicatorNodes = new FeatureNode[this.numberOfFeatures + 1];
+    int indicatorNodeCnt = 0;
+    // the shared nodes of the other features, null if they are not shared
+    Map<FeatureNode, FeatureNode> valueNodes =
+        GlobalConfig.getBoolean(ConfigKeys.TRAINER_SHARE_FEATURE_VALUES, false)
+        ? new HashMap<>() : null;
+    long ownNodeCnt = 0;
+    int releasedBlockCnt = 0;
+    for (int i = 0; i < this.instanceCnt; i++) {
+      problem.y[i] = this.labels[i];
+      Feature[] featureVector = new Feature[getRowEnd(i) - getRowStart(i)];
+      for (int position = getRowStart(i); position < getRowEnd(i); position++) {
+        int index = getIndex(position);
+        double value = getValue(position);
+        FeatureNode node;
+        if (value == 1.0) {
+          node = indicatorNodes[index];
+          if (null == node) {
+            node = new FeatureNode(index, value);
+            indicatorNodes[index] = node;
+            indicatorNodeCnt++;
+          }
+        } else {
+          node = new FeatureNode(index, value);
+          FeatureNode sharedNode =
+              (null == valueNodes) ? null : valueNodes.putIfAbsent(node, node);
+          if (null == sharedNode) {
+            ownNodeCnt++;
+          } else {
+            node = sharedNode;
+          }
+        }
+        featureVector[position - getRowStart(i)] = node;
+      }
+      problem.x[i] = featureVector;
+      // the blocks before the block of the next feature are completely converted
+      while (release && (releasedBlockCnt < (getRowEnd(i) >>> BLOCK_BITS))) {
+        this.indexBlocks[releasedBlockCnt] = null;
+        this.valueBlocks[releasedBlockCnt] = null;
+        releasedBlockCnt++;
+      }
+    }
+    System.out.println(String.format("Feature nodes: %d indicator nodes, %d other nodes",
+        indicatorNodeCnt, ownNodeCnt));
+    if (release) {
+      this.clear();
+    }
+    return problem;
+  }
+
+
+  // removes all instances and releases the arrays
+  private void clear() {
+
+    this.instanceCnt = 0;
+    this.labels = new int[16];
+    this.rowStarts = new int[this.labels.length + 1];
+    this.indexBlocks = new int[][] { new int[INITIAL_BLOCK_SIZE] };
+    this.valueBlocks = new double[][] { new double[INITIAL_BLOCK_SIZE] };
+  }
+}
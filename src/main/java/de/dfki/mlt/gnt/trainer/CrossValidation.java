@@ -0,0 +1,221 @@
+package de.dfki.mlt.gnt.trainer;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.bwaldvogel.liblinear.Feature;
+import de.bwaldvogel.liblinear.Linear;
+import de.bwaldvogel.liblinear.Model;
+import de.bwaldvogel.liblinear.Parameter;
+import de.bwaldvogel.liblinear.Problem;
+import de.bwaldvogel.liblinear.SolverType;
+import de.dfki.mlt.gnt.config.ConfigKeys;
+import de.dfki.mlt.gnt.config.CorpusConfig;
+import de.dfki.mlt.gnt.config.ModelConfig;
+import de.dfki.mlt.gnt.corpus.ConllEvaluator;
+import de.dfki.mlt.gnt.data.Alphabet;
+import de.dfki.mlt.gnt.data.Data;
+import de.dfki.mlt.gnt.data.Window;
+import de.dfki.mlt.gnt.tagger.GNTagger;
+
+/**
+ * Estimates the accuracy of a model config by k-fold cross-validation on the training files,
+ * without a separate dev file.
+ * <p>
+ * The training sentences are split into k folds of consecutive sentences. For each fold, a model
+ * is trained on the sentences of all other folds and evaluated on the sentences of the fold. The
+ * words of the other folds are the known words when counting the OOV accuracy.
+ * <p>
+ * The feature files and the training problem are created only once for all training sentences.
+ * The problem of each fold is a view of this problem, which only refers to the feature vectors
+ * of the instances of the other folds, so no feature vector is copied. The folds are trained and
+ * evaluated in parallel, but only for the solvers that do not use random numbers (L2R_LR and
+ * L2R_L2LOSS_SVC): the other solvers, e.g., MCSVM_CS, use the random numbers shared by all
+ * liblinear trainings, so their folds are trained one after the other with reset random numbers,
+ * and only the tagging of the folds runs in parallel. Since the features and the label set are
+ * created from all sentences,
+ * the held-out sentences are not completely unseen, so the accuracy can be slightly higher than
+ * on really new data.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class CrossValidation {
+
+  private ModelConfig modelConfig;
+  private CorpusConfig corpusConfig;
+  private int folds;
+  private int threads;
+
+
+  /**
+   * @param modelConfig
+   * @param corpusConfig
+   * @param folds
+   *          the number of folds, at least 2
+   * @param threads
+   *          the number of folds trained at the same time
+   */
+  public CrossValidation(
+      ModelConfig modelConfig, CorpusConfig corpusConfig, int folds, int threads) {
+
+    if (folds < 2) {
+      throw new IllegalArgumentException(
+          " Message from GNT: cross-validation needs at least 2 folds");
+    }
+    this.modelConfig = modelConfig;
+    this.corpusConfig = corpusConfig;
+    this.folds = folds;
+    this.threads = threads;
+  }
+
+
+  /**
+   * Runs the cross-validation and prints the accuracies of each fold and their mean.
+   *
+   * @return the evaluators of the folds
+   * @throws IOException
+   */
+  public List<ConllEvaluator> crossValidate()
+      throws IOException {
+
+    List<String> trainingFileNames =
+        this.corpusConfig.getList(String.class, ConfigKeys.TRAINING_LABELED_DATA);
+    int wordFormIndex = this.corpusConfig.getInt(ConfigKeys.WORD_FORM_INDEX);
+    int tagIndex = this.corpusConfig.getInt(ConfigKeys.TAG_INDEX);
+    int maxExamples = this.modelConfig.getInt(ConfigKeys.NUMBER_OF_SENTENCES);
+    Parameter parameter = new Parameter(
+        SolverType.valueOf(this.modelConfig.getString(ConfigKeys.SOLVER_TYPE)),
+        this.modelConfig.getDouble(ConfigKeys.C),
+        this.modelConfig.getDouble(ConfigKeys.EPS));
+
+    List<List<String[]>> sentences =
+        TrainerInMem.readConllSentences(trainingFileNames, maxExamples);
+    if (sentences.size() < this.folds) {
+      throw new IllegalArgumentException(
+          " Message from GNT: less training sentences than folds: " + sentences.size());
+    }
+
+    GNTrainer gnTrainer = new GNTrainer(this.modelConfig, this.corpusConfig);
+    Alphabet alphabet = gnTrainer.createAndLoadFeatureFiles();
+    Window.setWindowCnt(0);
+    TrainerInMem trainer = new TrainerInMem(gnTrainer.getArchivator(), alphabet, this.modelConfig);
+    Problem problem = trainer.createLiblinearProblem(
+        trainingFileNames, maxExamples, wordFormIndex, tagIndex);
+
+    // the first instance of each sentence, followed by the instance count
+    int[] sentenceStarts = new int[sentences.size() + 1];
+    for (int i = 0; i < sentences.size(); i++) {
+      sentenceStarts[i + 1] = sentenceStarts[i] + sentences.get(i).size();
+    }
+    if (sentenceStarts[sentences.size()] != problem.l) {
+      throw new IllegalStateException(String.format(
+          "training instances %d do not match tokens %d",
+          problem.l, sentenceStarts[sentences.size()]));
+    }
+
+    Linear.disableDebugOutput();
+    System.out.println("Cross-validate folds: " + this.folds + " threads: " + this.threads);
+    if ((this.threads > 1) && !OneVsRestTrainer.isDeterministic(parameter.getSolverType())) {
+      System.out.println("Warning: the folds are trained one after the other with solver "
+          + parameter.getSolverType() + "; only the tagging of the folds runs in parallel");
+    }
+    List<ConllEvaluator> evaluators = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+    try {
+      List<Future<ConllEvaluator>> results = new ArrayList<>();
+      for (int fold = 0; fold < this.folds; fold++) {
+        int firstSentence = fold * sentences.size() / this.folds;
+        int endSentence = (fold + 1) * sentences.size() / this.folds;
+        results.add(executor.submit(() -> trainAndEvalFold(
+            problem, sentences, sentenceStarts, firstSentence, endSentence, parameter,
+            alphabet, trainer.getData(), wordFormIndex, tagIndex)));
+      }
+      for (Future<ConllEvaluator> oneResult : results) {
+        evaluators.add(TrainerInMem.getResult(oneResult));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    printResults(evaluators);
+    return evaluators;
+  }
+
+
+  // Trains on all sentences except the given ones and evaluates on the given ones
+  private ConllEvaluator trainAndEvalFold(Problem problem, List<List<String[]>> sentences,
+      int[] sentenceStarts, int firstSentence, int endSentence, Parameter parameter,
+      Alphabet alphabet, Data data, int wordFormIndex, int tagIndex) {
+
+    // a view of the instances of the other folds
+    int firstInstance = sentenceStarts[firstSentence];
+    int endInstance = sentenceStarts[endSentence];
+    Problem foldProblem = new Problem();
+    foldProblem.l = problem.l - (endInstance - firstInstance);
+    foldProblem.n = problem.n;
+    foldProblem.bias = problem.bias;
+    foldProblem.x = new Feature[foldProblem.l][];
+    foldProblem.y = new double[foldProblem.l];
+    int instance = 0;
+    for (int i = 0; i < problem.l; i++) {
+      if ((i < firstInstance) || (i >= endInstance)) {
+        foldProblem.x[instance] = problem.x[i];
+        foldProblem.y[instance] = problem.y[i];
+        instance++;
+      }
+    }
+    Model model = OneVsRestTrainer.trainWithResetRandom(foldProblem, parameter);
+
+    // the words of the other folds are the known words
+    Set<String> knownWords = new HashSet<>();
+    for (int i = 0; i < sentences.size(); i++) {
+      if ((i < firstSentence) || (i >= endSentence)) {
+        for (String[] oneToken : sentences.get(i)) {
+          knownWords.add(oneToken[wordFormIndex].trim());
+        }
+      }
+    }
+    GNTagger tagger = new GNTagger(this.modelConfig, alphabet, data, model);
+    ConllEvaluator evaluator = new ConllEvaluator(knownWords);
+    tagger.tagAndEvalConllSentences(
+        sentences.subList(firstSentence, endSentence), wordFormIndex, tagIndex, evaluator);
+    evaluator.computeAccuracy();
+    return evaluator;
+  }
+
+
+  private static void printResults(List<ConllEvaluator> evaluators) {
+
+    DecimalFormat formatter = new DecimalFormat("#0.00");
+    double accSum = 0;
+    double accOOVSum = 0;
+    double accInVSum = 0;
+    // the OOV accuracy is not defined for a fold without unknown words
+    int foldsWithOOV = 0;
+    for (int fold = 0; fold < evaluators.size(); fold++) {
+      ConllEvaluator evaluator = evaluators.get(fold);
+      System.out.println("Fold " + (fold + 1)
+          + " Accuracy: " + formatter.format(evaluator.getAcc() * 100) + "%"
+          + " OOV: " + formatter.format(evaluator.getAccOOV() * 100) + "%"
+          + " InV: " + formatter.format(evaluator.getAccInV() * 100) + "%");
+      accSum += evaluator.getAcc();
+      if (!Double.isNaN(evaluator.getAccOOV())) {
+        accOOVSum += evaluator.getAccOOV();
+        foldsWithOOV++;
+      }
+      accInVSum += evaluator.getAccInV();
+    }
+    int folds = evaluators.size();
+    System.out.println("Mean"
+        + " Accuracy: " + formatter.format(accSum / folds * 100) + "%"
+        + " OOV: " + formatter.format(accOOVSum / foldsWithOOV * 100) + "%"
+        + " InV: " + formatter.format(accInVSum / folds * 100) + "%");
+  }
+}
@@ -1,9 +1,16 @@
 package de.dfki.mlt.gnt.trainer;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 
+import org.apache.commons.configuration2.ex.ConfigurationException;
+
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.BinaryModel;
 import de.dfki.mlt.gnt.config.ConfigKeys;
 import de.dfki.mlt.gnt.config.CorpusConfig;
 import de.dfki.mlt.gnt.config.GlobalConfig;
@@ -11,6 +18,7 @@ import de.dfki.mlt.gnt.config.ModelConfig;
 import de.dfki.mlt.gnt.corpus.CorpusProcessor;
 import de.dfki.mlt.gnt.corpus.IndicatorWordsCreator;
 import de.dfki.mlt.gnt.data.Alphabet;
+import de.dfki.mlt.gnt.data.ModelShards;
 import de.dfki.mlt.gnt.data.Window;
 import de.dfki.mlt.gnt.features.WordClusterFeatureFactory;
 import de.dfki.mlt.gnt.features.WordDistributedFeatureFactory;
@@ -122,7 +130,7 @@ public class GNTrainer {
     if (this.alphabet.isWithShapeFeats()) {
       this.createShapeFeatures(trainingFileNames);
     }
-    if (this.alphabet.isWithSuffixFeats()) {
+    if (this.alphabet.isWithSuffixList()) {
       this.createSuffixFeatures(trainingFileNames);
     }
     if (this.alphabet.isWithClusterFeats()) {
@@ -131,6 +139,69 @@ public class GNTrainer {
   }
 
 
+  private void createFeatureFiles(
+      List<String> trainingFileNames, String clusterIdSourceFileName, int dim) {
+
+    // Create feature files
+    IndicatorWordsCreator iwp = new IndicatorWordsCreator();
+    iwp.createIndicatorTaggerNameWords(
+        this.corpusConfig, this.modelConfig.getDouble(ConfigKeys.SUB_SAMPLING_THRESHOLD));
+    this.createTrainingFeatureFiles(trainingFileNames, clusterIdSourceFileName, dim);
+  }
+
+
+  /**
+   * Creates the feature files of the training corpus in the model build folder and loads them,
+   * without training a model. This way, several models can be trained with the same features,
+   * e.g. in a hyperparameter search.
+   * @return the alphabet with the loaded features
+   */
+  public Alphabet createAndLoadFeatureFiles() {
+
+    int dim = this.modelConfig.getInt(ConfigKeys.DIM);
+    this.createFeatureFiles(
+        this.corpusConfig.getList(String.class, ConfigKeys.TRAINING_LABELED_DATA),
+        this.corpusConfig.getString(ConfigKeys.CLUSTER_FILE), dim);
+    this.alphabet.loadFeaturesFromFiles(dim);
+    this.alphabet.clean();
+    return this.alphabet;
+  }
+
+
+  /**
+   * Copies the feature files, the label set and the word set of the given model archive to the
+   * model build folder, so that a model trained further uses the same features as the given
+   * model. The model config and the model files are not copied.
+   * @param modelArchiveName
+   * @throws IOException
+   */
+  private void copyFeatureFilesFromArchive(String modelArchiveName)
+      throws IOException {
+
+    System.out.println("Copy feature files from archive: " + modelArchiveName);
+    try (Archivator modelArchivator = new Archivator(modelArchiveName)) {
+      String modelName;
+      try (InputStream in = modelArchivator.getInputStream(GlobalConfig.MODEL_CONFIG_FILE)) {
+        modelName = ModelConfig.create(in).getModelName();
+      } catch (ConfigurationException e) {
+        throw new IOException(e);
+      }
+      for (String oneEntryName : modelArchivator.getEntryNames()) {
+        if (oneEntryName.equals(GlobalConfig.MODEL_CONFIG_FILE)
+            || oneEntryName.equals(ModelShards.SHARDS_FILE_NAME)
+            || oneEntryName.startsWith(modelName)) {
+          continue;
+        }
+        Path targetPath = GlobalConfig.getModelBuildFolder().resolve(oneEntryName);
+        Files.createDirectories(targetPath.getParent());
+        try (InputStream in = modelArchivator.getInputStream(oneEntryName)) {
+          Files.copy(in, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+    }
+  }
+
+
   private void gntTrainingFromConllFile(
       List<String> trainingFileNames, int dim, int maxExamples)
       throws IOException {
@@ -168,14 +239,17 @@ public class GNTrainer {
 
     System.out.println("Offsets: " + this.getTrainer().getOffSets().toString());
     System.out.println("Sentences: " + this.getTrainer().getData().getSentenceCnt());
-    System.out.println("Feature instances size: " + this.getTrainer().getProblem().n);
+    TrainerInMem trainerInMem = this.getTrainer();
     System.out.println(
-        "Average window vector lenght: " + ProblemInstance.getCumLength() / Window.getWindowCnt());
-    System.out.println("Training instances: " + this.getTrainer().getProblem().l);
-    System.out.println("Approx. GB needed: "
-        + ((ProblemInstance.getCumLength() / Window.getWindowCnt()) * Window.getWindowCnt() * 8
-            + Window.getWindowCnt())
-            / 1000000000.0);
+        "Feature instances size: " + trainerInMem.getOffSets().getWindowVectorSize());
+    // no training problem is constructed for the averaged perceptron
+    if (trainerInMem.getProblemInstanceCnt() > 0) {
+      System.out.println("Average window vector lenght: "
+          + trainerInMem.getProblemFeatureCnt() / trainerInMem.getProblemInstanceCnt());
+      System.out.println("Training instances: " + trainerInMem.getProblemInstanceCnt());
+      System.out.println(
+          "Approx. GB needed: " + trainerInMem.getProblemMemorySize() / 1000000000.0);
+    }
   }
 
 
@@ -191,11 +265,19 @@ public class GNTrainer {
 
     this.time1 = System.currentTimeMillis();
 
-    // Create feature files
-    IndicatorWordsCreator iwp = new IndicatorWordsCreator();
-    iwp.createIndicatorTaggerNameWords(
-        this.corpusConfig, this.modelConfig.getDouble(ConfigKeys.SUB_SAMPLING_THRESHOLD));
-    this.createTrainingFeatureFiles(trainingFileNames, clusterIdSourceFileName, dim);
+    String warmStartModelName = this.modelConfig.getString(ConfigKeys.WARM_START_MODEL, null);
+    if (null != warmStartModelName) {
+      // the feature files of a binary model are converted and can not be copied back
+      if (BinaryModel.isBinaryModel(warmStartModelName)) {
+        throw new IllegalArgumentException(" Message from GNT: the warm start model must be a zip"
+            + " model archive with a liblinear or compressed model, not the binary model "
+            + warmStartModelName);
+      }
+      // the weights of the model only fit to its own feature files
+      this.copyFeatureFilesFromArchive(warmStartModelName);
+    } else {
+      this.createFeatureFiles(trainingFileNames, clusterIdSourceFileName, dim);
+    }
 
     this.time2 = System.currentTimeMillis();
     System.out.println("System time (msec): " + (this.time2 - this.time1));
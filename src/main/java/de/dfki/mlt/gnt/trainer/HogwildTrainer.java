@@ -0,0 +1,144 @@
+package de.dfki.mlt.gnt.trainer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import de.bwaldvogel.liblinear.SolverType;
+import de.dfki.mlt.gnt.config.ConfigKeys;
+import de.dfki.mlt.gnt.config.ModelConfig;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
+
+/**
+ * A multi-class logistic regression that is trained by stochastic gradient descent from several
+ * threads at once, in the style of Hogwild!: all threads update one shared weight matrix without
+ * any locking. It is selected with solver.type = HOGWILD_SGD in the model config.
+ * <p>
+ * A window has only a few hundred active features out of all window features, so the updates of
+ * different threads rarely touch the same weights. An update that is lost or mixed with the one
+ * of another thread only adds a little noise to the gradient, which SGD tolerates. So the
+ * training scales with the number of threads, but the model depends on the scheduling of the
+ * threads; with a single thread, it is always the same.
+ * <p>
+ * The weights are a dense matrix in the same feature-major layout as in liblinear, see
+ * {@link PerceptronTrainer}. The classes are the label indices 1 ... nrClass of the label set.
+ * The trained model is saved as liblinear model file of solver type MCSVM_CS, which decides for
+ * the class with the highest decision value, so it can be loaded by the tagger like any other
+ * model. A model with 2 classes is saved as binary logistic regression model of solver type
+ * L2R_LR, whose single weight per feature is the difference of the weights of both classes.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class HogwildTrainer {
+
+  /** the solver type in the model config that selects the Hogwild SGD trainer */
+  public static final String SOLVER_NAME = "HOGWILD_SGD";
+
+  private int nrFeature;
+  private int nrClass;
+  // shared by all threads, read and written without synchronization
+  private double[] weights;
+
+
+  /**
+   * @param nrFeature
+   *          the highest feature index
+   * @param nrClass
+   *          the number of classes, i.e., of labels in the label set
+   */
+  public HogwildTrainer(int nrFeature, int nrClass) {
+
+    this.nrFeature = nrFeature;
+    this.nrClass = nrClass;
+    this.weights = new double[nrFeature * nrClass];
+  }
+
+
+  /**
+   * @param modelConfig
+   * @return true if the given model config selects the Hogwild SGD trainer
+   */
+  public static boolean isHogwild(ModelConfig modelConfig) {
+
+    return SOLVER_NAME.equals(modelConfig.getString(ConfigKeys.SOLVER_TYPE));
+  }
+
+
+  public int getNrClass() {
+
+    return this.nrClass;
+  }
+
+
+  /**
+   * Makes a gradient step for the logistic loss of the given instance. Can be called from
+   * several threads at once, each with its own buffer.
+   *
+   * @param label
+   *          the correct class of the instance
+   * @param features
+   *          the features of a filled window
+   * @param learningRate
+   * @param probabilities
+   *          buffer of size nrClass for the class probabilities of the instance
+   * @return the loss of the instance before the update
+   */
+  public double update(
+      int label, FeatureBuffer features, double learningRate, double[] probabilities) {
+
+    for (int i = 0; i < this.nrClass; i++) {
+      probabilities[i] = 0;
+    }
+    for (int i = 0; i < features.size(); i++) {
+      int featureIndex = features.getIndex(i);
+      if (featureIndex <= this.nrFeature) {
+        int rowStart = (featureIndex - 1) * this.nrClass;
+        for (int j = 0; j < this.nrClass; j++) {
+          probabilities[j] += this.weights[rowStart + j] * features.getValue(i);
+        }
+      }
+    }
+
+    // softmax, shifted by the highest decision value to avoid an overflow
+    double maxValue = probabilities[0];
+    for (int i = 1; i < this.nrClass; i++) {
+      maxValue = Math.max(maxValue, probabilities[i]);
+    }
+    double sum = 0;
+    for (int i = 0; i < this.nrClass; i++) {
+      probabilities[i] = Math.exp(probabilities[i] - maxValue);
+      sum += probabilities[i];
+    }
+    for (int i = 0; i < this.nrClass; i++) {
+      probabilities[i] /= sum;
+    }
+    double loss = -Math.log(Math.max(probabilities[label - 1], Double.MIN_VALUE));
+
+    // the gradient of class j is (p_j - 1) * x for the correct class, else p_j * x
+    probabilities[label - 1] -= 1;
+    for (int i = 0; i < features.size(); i++) {
+      int featureIndex = features.getIndex(i);
+      if (featureIndex <= this.nrFeature) {
+        int rowStart = (featureIndex - 1) * this.nrClass;
+        double step = learningRate * features.getValue(i);
+        for (int j = 0; j < this.nrClass; j++) {
+          this.weights[rowStart + j] -= step * probabilities[j];
+        }
+      }
+    }
+    return loss;
+  }
+
+
+  /**
+   * Saves the weights as liblinear model file; no update must run at the same time.
+   *
+   * @param modelPath
+   * @throws IOException
+   */
+  public void saveModel(Path modelPath)
+      throws IOException {
+
+    PerceptronTrainer.saveModel(modelPath, this.nrFeature, this.nrClass, i -> this.weights[i],
+        SolverType.L2R_LR);
+  }
+}
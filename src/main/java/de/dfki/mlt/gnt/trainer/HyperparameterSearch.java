@@ -0,0 +1,336 @@
+package de.dfki.mlt.gnt.trainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.io.FileHandler;
+
+import de.bwaldvogel.liblinear.Linear;
+import de.bwaldvogel.liblinear.Model;
+import de.bwaldvogel.liblinear.Parameter;
+import de.bwaldvogel.liblinear.Problem;
+import de.bwaldvogel.liblinear.SolverType;
+import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.config.ConfigKeys;
+import de.dfki.mlt.gnt.config.CorpusConfig;
+import de.dfki.mlt.gnt.config.GlobalConfig;
+import de.dfki.mlt.gnt.config.ModelConfig;
+import de.dfki.mlt.gnt.corpus.ConllEvaluator;
+import de.dfki.mlt.gnt.data.Alphabet;
+import de.dfki.mlt.gnt.data.Data;
+import de.dfki.mlt.gnt.data.Window;
+import de.dfki.mlt.gnt.tagger.GNTagger;
+
+/**
+ * Searches the liblinear parameters solver.type, c and eps and the window size for the model
+ * with the highest accuracy on the dev files of the corpus.
+ * <p>
+ * The values of each parameter are given as comma separated lists in the model config, with the
+ * keys search.solver.type, search.c, search.eps and search.window.size; a parameter without
+ * search key only has its usual value. All combinations of the values are tried, or, if
+ * search.random.samples is greater than 0, as many randomly selected combinations.
+ * <p>
+ * The feature files are created and loaded only once. The training problem is constructed once
+ * for each window size, and all candidates with this window size are trained on it at the same
+ * time on a bounded thread pool. Each trained model is evaluated in memory on the dev files. The
+ * solvers that use the random numbers shared by all liblinear trainings are trained one after
+ * the other with reset random numbers, so all models are the same as the ones of single
+ * trainings.
+ * <p>
+ * The results are written as leaderboard to the model output folder, sorted by accuracy, and the
+ * archive of the best model is created as by a usual training.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class HyperparameterSearch {
+
+  private ModelConfig modelConfig;
+  private CorpusConfig corpusConfig;
+  private int threads;
+  // the best candidate so far, the only one that keeps its model
+  private Candidate best;
+
+
+  /**
+   * @param modelConfig
+   *          the model config with the search keys
+   * @param corpusConfig
+   *          the corpus config with training and dev files
+   * @param threads
+   *          the number of candidates trained at the same time
+   */
+  public HyperparameterSearch(ModelConfig modelConfig, CorpusConfig corpusConfig, int threads) {
+
+    this.modelConfig = modelConfig;
+    this.corpusConfig = corpusConfig;
+    this.threads = threads;
+  }
+
+
+  /**
+   * Runs the search, writes the leaderboard and packs the archive of the best model.
+   *
+   * @throws IOException
+   */
+  public void search()
+      throws IOException {
+
+    List<String> trainingFileNames =
+        this.corpusConfig.getList(String.class, ConfigKeys.TRAINING_LABELED_DATA);
+    List<String> devFileNames = this.corpusConfig.getList(
+        String.class, ConfigKeys.DEV_LABELED_DATA, Collections.emptyList());
+    if (devFileNames.isEmpty()) {
+      throw new IllegalArgumentException(
+          " Message from GNT: the hyperparameter search needs dev files in the corpus config");
+    }
+    int wordFormIndex = this.corpusConfig.getInt(ConfigKeys.WORD_FORM_INDEX);
+    int tagIndex = this.corpusConfig.getInt(ConfigKeys.TAG_INDEX);
+    int maxExamples = this.modelConfig.getInt(ConfigKeys.NUMBER_OF_SENTENCES);
+
+    List<Candidate> candidates = createCandidates();
+    System.out.println("Search candidates: " + candidates.size() + " threads: " + this.threads);
+
+    // the features do not depend on the searched parameters
+    long time1 = System.currentTimeMillis();
+    GNTrainer gnTrainer = new GNTrainer(this.modelConfig, this.corpusConfig);
+    Alphabet alphabet = gnTrainer.createAndLoadFeatureFiles();
+    long time2 = System.currentTimeMillis();
+    System.out.println("System time (msec): " + (time2 - time1));
+
+    Linear.disableDebugOutput();
+    this.best = null;
+    for (int i = 0; i < candidates.size(); i++) {
+      candidates.get(i).index = i;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+    try {
+      int first = 0;
+      while (first < candidates.size()) {
+        int windowSize = candidates.get(first).windowSize;
+        int end = first;
+        while ((end < candidates.size()) && (candidates.get(end).windowSize == windowSize)) {
+          end++;
+        }
+
+        // one problem for all candidates with this window size
+        System.out.println("Construct problem for window size: " + windowSize);
+        Window.setWindowCnt(0);
+        TrainerInMem trainer = new TrainerInMem(
+            gnTrainer.getArchivator(), alphabet, candidates.get(first).modelConfig);
+        Problem problem = trainer.createLiblinearProblem(
+            trainingFileNames, maxExamples, wordFormIndex, tagIndex);
+
+        // the tasks return nothing, so that only the model of the best candidate is kept
+        List<Future<?>> results = new ArrayList<>();
+        for (Candidate oneCandidate : candidates.subList(first, end)) {
+          results.add(executor.submit(() -> {
+            Model model = trainAndEval(oneCandidate, problem, alphabet,
+                trainer.getData(), devFileNames, wordFormIndex, tagIndex);
+            keepIfBest(oneCandidate, model);
+            return null;
+          }));
+        }
+        for (Future<?> oneResult : results) {
+          TrainerInMem.getResult(oneResult);
+        }
+        first = end;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    writeLeaderboard(candidates);
+    packBestModel(this.best);
+  }
+
+
+  // Keeps the model of the given candidate if it is the best so far and drops the model of the
+  // previous best; of candidates with the same accuracy, the first one in the candidate list is
+  // kept, independent of the order in which the trainings finish
+  private synchronized void keepIfBest(Candidate candidate, Model model) {
+
+    if ((null == this.best) || (candidate.acc > this.best.acc)
+        || ((candidate.acc == this.best.acc) && (candidate.index < this.best.index))) {
+      if (null != this.best) {
+        this.best.model = null;
+      }
+      this.best = candidate;
+      this.best.model = model;
+    }
+  }
+
+
+  // Creates the candidates sorted by window size, so the problem of each window size is
+  // constructed once
+  private List<Candidate> createCandidates() {
+
+    List<Candidate> candidates = new ArrayList<>();
+    for (String oneWindowSize : getSearchValues(ConfigKeys.SEARCH_WINDOW_SIZE,
+        ConfigKeys.WINDOW_SIZE)) {
+      for (String oneSolverType : getSearchValues(ConfigKeys.SEARCH_SOLVER_TYPE,
+          ConfigKeys.SOLVER_TYPE)) {
+        for (String oneC : getSearchValues(ConfigKeys.SEARCH_C, ConfigKeys.C)) {
+          for (String oneEps : getSearchValues(ConfigKeys.SEARCH_EPS, ConfigKeys.EPS)) {
+            candidates.add(new Candidate(this.modelConfig, Integer.parseInt(oneWindowSize),
+                SolverType.valueOf(oneSolverType), Double.parseDouble(oneC),
+                Double.parseDouble(oneEps)));
+          }
+        }
+      }
+    }
+    int samples = this.modelConfig.getInt(ConfigKeys.SEARCH_RANDOM_SAMPLES, 0);
+    if ((samples > 0) && (samples < candidates.size())) {
+      // a fixed seed, so the same candidates are selected again
+      Collections.shuffle(candidates, new Random(42));
+      candidates = new ArrayList<>(candidates.subList(0, samples));
+      candidates.sort(Comparator.comparingInt(candidate -> candidate.windowSize));
+    }
+    return candidates;
+  }
+
+
+  private List<String> getSearchValues(String searchKey, String key) {
+
+    List<String> values = this.modelConfig.getList(String.class, searchKey, null);
+    if ((null == values) || values.isEmpty()) {
+      return Collections.singletonList(this.modelConfig.getString(key));
+    }
+    return values;
+  }
+
+
+  // Trains the model of the given candidate and sets its accuracies on the dev files
+  private static Model trainAndEval(Candidate candidate, Problem problem, Alphabet alphabet,
+      Data data, List<String> devFileNames, int wordFormIndex, int tagIndex)
+      throws IOException {
+
+    long time1 = System.currentTimeMillis();
+    Model model = OneVsRestTrainer.trainWithResetRandom(
+        problem, new Parameter(candidate.solverType, candidate.c, candidate.eps));
+    long time2 = System.currentTimeMillis();
+    candidate.trainingTime = time2 - time1;
+
+    GNTagger tagger = new GNTagger(candidate.modelConfig, alphabet, data, model);
+    ConllEvaluator evaluator = new ConllEvaluator(data.getWordSet());
+    for (String oneDevFileName : devFileNames) {
+      tagger.tagAndEvalConllFile(oneDevFileName, wordFormIndex, tagIndex, evaluator);
+    }
+    evaluator.computeAccuracy();
+    candidate.acc = evaluator.getAcc();
+    candidate.accOOV = evaluator.getAccOOV();
+    candidate.accInV = evaluator.getAccInV();
+    System.out.println("Evaluated: " + candidate.toString());
+    return model;
+  }
+
+
+  private void writeLeaderboard(List<Candidate> candidates)
+      throws IOException {
+
+    List<Candidate> ranking = new ArrayList<>(candidates);
+    ranking.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.acc).reversed());
+    Path leaderboardPath = GlobalConfig.getPath(ConfigKeys.MODEL_OUTPUT_FOLDER).resolve(
+        "leaderboard_" + this.modelConfig.getString(ConfigKeys.TAGGER_NAME) + ".txt");
+    System.out.println("Write leaderboard: " + leaderboardPath);
+    try (PrintWriter out = new PrintWriter(
+        Files.newBufferedWriter(leaderboardPath, StandardCharsets.UTF_8))) {
+      out.println("# rank\taccuracy\toov\tinv\tsolver.type\tc\teps\twindow.size\ttraining (msec)");
+      for (int i = 0; i < ranking.size(); i++) {
+        Candidate candidate = ranking.get(i);
+        String line = String.format("%d\t%.4f\t%.4f\t%.4f\t%s\t%s\t%s\t%d\t%d",
+            i + 1, candidate.acc, candidate.accOOV, candidate.accInV, candidate.solverType,
+            candidate.c, candidate.eps, candidate.windowSize, candidate.trainingTime);
+        out.println(line);
+        System.out.println(line);
+      }
+    }
+  }
+
+
+  // Saves the model and the model config of the best candidate in the model build folder,
+  // which also contains the feature files, and packs it
+  private void packBestModel(Candidate best)
+      throws IOException {
+
+    System.out.println("Best: " + best.toString());
+    Path modelConfigPath =
+        GlobalConfig.getModelBuildFolder().resolve(GlobalConfig.MODEL_CONFIG_FILE);
+    try {
+      new FileHandler(best.modelConfig).save(modelConfigPath.toFile());
+    } catch (ConfigurationException e) {
+      throw new IOException(e);
+    }
+    String modelName = best.modelConfig.getModelName().split("\\.conll")[0];
+    best.model.save(new File(
+        GlobalConfig.getModelBuildFolder().resolve(modelName + ".txt").toString()));
+
+    Archivator archivator = new Archivator(best.modelConfig.getModelName() + ".zip");
+    archivator.addFilesToPack(GlobalConfig.getModelBuildFolder());
+    archivator.pack();
+    System.out.println("Pack archive: " + archivator.getArchiveName());
+  }
+
+
+  /**
+   * A combination of parameter values and its evaluation results.
+   */
+  private static class Candidate {
+
+    private ModelConfig modelConfig;
+    // the position in the list of candidates
+    private int index;
+    private int windowSize;
+    private SolverType solverType;
+    private double c;
+    private double eps;
+
+    private double acc;
+    private double accOOV;
+    private double accInV;
+    private long trainingTime;
+    // only set for the best candidate
+    private Model model;
+
+
+    Candidate(
+        ModelConfig baseModelConfig, int windowSize, SolverType solverType, double c, double eps) {
+
+      this.windowSize = windowSize;
+      this.solverType = solverType;
+      this.c = c;
+      this.eps = eps;
+      // the model config of a usual training with these values
+      this.modelConfig = new ModelConfig(baseModelConfig);
+      this.modelConfig.setProperty(ConfigKeys.WINDOW_SIZE, windowSize);
+      this.modelConfig.setProperty(ConfigKeys.SOLVER_TYPE, solverType.name());
+      this.modelConfig.setProperty(ConfigKeys.C, c);
+      this.modelConfig.setProperty(ConfigKeys.EPS, eps);
+      for (String oneSearchKey : new String[] { ConfigKeys.SEARCH_SOLVER_TYPE, ConfigKeys.SEARCH_C,
+          ConfigKeys.SEARCH_EPS, ConfigKeys.SEARCH_WINDOW_SIZE,
+          ConfigKeys.SEARCH_RANDOM_SAMPLES }) {
+        this.modelConfig.clearProperty(oneSearchKey);
+      }
+    }
+
+
+    @Override
+    public String toString() {
+
+      return String.format("solver.type=%s c=%s eps=%s window.size=%d accuracy=%.4f oov=%.4f",
+          this.solverType, this.c, this.eps, this.windowSize, this.acc, this.accOOV);
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package de.dfki.mlt.gnt.trainer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.bwaldvogel.liblinear.Linear;
+import de.bwaldvogel.liblinear.Model;
+import de.bwaldvogel.liblinear.Parameter;
+import de.bwaldvogel.liblinear.Problem;
+import de.bwaldvogel.liblinear.SolverType;
+
+/**
+ * Trains the binary sub-problems of a one-vs-rest liblinear solver in parallel.
+ * <p>
+ * {@link Linear#train(Problem, Parameter)} trains the sub-problem of one class after the other.
+ * Here, each class is trained by a binary {@link Linear#train(Problem, Parameter)} of its own,
+ * where the instances of the class are labeled +1 and all other instances -1. All sub-problems
+ * share the feature vectors of the given problem, which are only read. The weights of all classes
+ * are finally assembled into a standard liblinear model, so it can be saved and used for
+ * tagging as before.
+ * <p>
+ * This is done only for the primal solvers L2R_LR and L2R_L2LOSS_SVC with more than two classes,
+ * which do not use random numbers, so the model is the same for any number of threads. For other
+ * solvers, for two classes, for class specific weights or a single thread,
+ * {@link Linear#train(Problem, Parameter)} is used directly. The instances are visited in a
+ * different order than by liblinear, so the weights may differ from the ones of the sequential
+ * training in the last digits.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class OneVsRestTrainer {
+
+  // guards the random numbers of liblinear
+  private static final Object RANDOM_LOCK = new Object();
+
+  private Parameter parameter;
+  private int threads;
+
+
+  public OneVsRestTrainer(Parameter parameter, int threads) {
+
+    this.parameter = parameter;
+    this.threads = threads;
+  }
+
+
+  /**
+   * @param problem
+   * @return true if the classes of the given problem are trained in parallel
+   */
+  public boolean isParallel(Problem problem) {
+
+    return (this.threads > 1)
+        && isDeterministic(this.parameter.getSolverType())
+        && (this.parameter.getNumWeights() == 0)
+        && (collectLabels(problem).size() > 2);
+  }
+
+
+  /**
+   * @param solverType
+   * @return true if the given solver does not use the random numbers shared by all liblinear
+   *         trainings, so that several trainings can run in parallel with the same result
+   */
+  static boolean isDeterministic(SolverType solverType) {
+
+    return (solverType == SolverType.L2R_LR) || (solverType == SolverType.L2R_L2LOSS_SVC);
+  }
+
+
+  /**
+   * Trains a model for the given problem with {@link Linear#train(Problem, Parameter)}, where
+   * several trainings can run at the same time. The solvers that use the random numbers shared by
+   * all liblinear trainings are trained one after the other, each after the random numbers are
+   * reset, so each model is the same as the one of a single training.
+   *
+   * @param problem
+   * @param parameter
+   * @return the trained model
+   */
+  static Model trainWithResetRandom(Problem problem, Parameter parameter) {
+
+    if (isDeterministic(parameter.getSolverType())) {
+      return Linear.train(problem, parameter);
+    }
+    synchronized (RANDOM_LOCK) {
+      Linear.resetRandom();
+      return Linear.train(problem, parameter);
+    }
+  }
+
+
+  /**
+   * Trains a model for the given problem.
+   *
+   * @param problem
+   *          the problem, which is not changed
+   * @return the trained model
+   * @throws IOException
+   */
+  public Model train(Problem problem)
+      throws IOException {
+
+    if (!isParallel(problem)) {
+      return Linear.train(problem, this.parameter);
+    }
+
+    List<Integer> labels = collectLabels(problem);
+    System.out.println("Train classes: " + labels.size() + " with threads: " + this.threads);
+    double[][] classWeights = new double[labels.size()][];
+    AtomicInteger trainedClassCnt = new AtomicInteger(0);
+    ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+    try {
+      List<Future<double[]>> results = new ArrayList<>();
+      for (int oneLabel : labels) {
+        results.add(executor.submit(() -> {
+          double[] weights = trainClass(problem, oneLabel);
+          int trained = trainedClassCnt.incrementAndGet();
+          if ((trained % 10) == 0) {
+            System.out.println("Classes trained: " + trained);
+          }
+          return weights;
+        }));
+      }
+      for (int i = 0; i < labels.size(); i++) {
+        classWeights[i] = TrainerInMem.getResult(results.get(i));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return Linear.loadModel(
+        new ModelTextReader(this.parameter.getSolverType(), problem, labels, classWeights));
+  }
+
+
+  // Returns the labels in the order of their first occurrence, as used by liblinear
+  private static List<Integer> collectLabels(Problem problem) {
+
+    Map<Integer, Integer> labels = new LinkedHashMap<>();
+    for (int i = 0; i < problem.l; i++) {
+      labels.putIfAbsent((int)problem.y[i], labels.size());
+    }
+    return new ArrayList<>(labels.keySet());
+  }
+
+
+  // Trains the binary sub-problem of the given class and returns its weight vector
+  private double[] trainClass(Problem problem, int label) {
+
+    Problem subProblem = new Problem();
+    subProblem.l = problem.l;
+    subProblem.n = problem.n;
+    subProblem.bias = problem.bias;
+    subProblem.x = problem.x;
+    subProblem.y = new double[problem.l];
+    for (int i = 0; i < problem.l; i++) {
+      subProblem.y[i] = ((int)problem.y[i] == label) ? +1 : -1;
+    }
+    Model binaryModel = Linear.train(subProblem, this.parameter);
+    double[] weights = binaryModel.getFeatureWeights();
+    // the weights of a binary model decide for its first label
+    if (binaryModel.getLabels()[0] != +1) {
+      for (int i = 0; i < weights.length; i++) {
+        weights[i] = -weights[i];
+      }
+    }
+    return weights;
+  }
+
+
+  /**
+   * Creates the text of a liblinear model file from the weights of all classes, as read by
+   * {@link Linear#loadModel(Reader)}. The weight lines are created only when they are read, so the
+   * text of the whole model is never kept in memory.
+   */
+  private static class ModelTextReader extends Reader {
+
+    private double[][] classWeights;
+    private int weightCnt;
+    private int nextWeight = 0;
+    private StringBuilder buffer = new StringBuilder();
+    private int bufferPosition = 0;
+
+
+    ModelTextReader(
+        SolverType solverType, Problem problem, List<Integer> labels, double[][] classWeights) {
+
+      this.classWeights = classWeights;
+      this.weightCnt = classWeights[0].length;
+      this.buffer.append("solver_type ").append(solverType.name()).append('\n');
+      this.buffer.append("nr_class ").append(labels.size()).append('\n');
+      this.buffer.append("label");
+      for (int oneLabel : labels) {
+        this.buffer.append(' ').append(oneLabel);
+      }
+      this.buffer.append('\n');
+      // as in liblinear, problem.n includes the bias feature, which is not counted in nr_feature
+      int nrFeature = (problem.bias >= 0) ? problem.n - 1 : problem.n;
+      this.buffer.append("nr_feature ").append(nrFeature).append('\n');
+      this.buffer.append("bias ").append(problem.bias).append('\n');
+      this.buffer.append("w\n");
+    }
+
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+
+      if (this.bufferPosition == this.buffer.length()) {
+        if (this.nextWeight == this.weightCnt) {
+          return -1;
+        }
+        // the weights of all classes for the next feature
+        this.buffer.setLength(0);
+        this.bufferPosition = 0;
+        for (double[] oneClassWeights : this.classWeights) {
+          this.buffer.append(oneClassWeights[this.nextWeight]).append(' ');
+        }
+        this.buffer.append('\n');
+        this.nextWeight++;
+      }
+      int readCnt = Math.min(len, this.buffer.length() - this.bufferPosition);
+      this.buffer.getChars(this.bufferPosition, this.bufferPosition + readCnt, cbuf, off);
+      this.bufferPosition += readCnt;
+      return readCnt;
+    }
+
+
+    @Override
+    public void close() {
+
+      this.classWeights = null;
+    }
+  }
+}
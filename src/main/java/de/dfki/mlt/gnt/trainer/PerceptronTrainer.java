@@ -0,0 +1,274 @@
+package de.dfki.mlt.gnt.trainer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.IntToDoubleFunction;
+
+import de.bwaldvogel.liblinear.Model;
+import de.bwaldvogel.liblinear.SolverType;
+import de.dfki.mlt.gnt.config.ConfigKeys;
+import de.dfki.mlt.gnt.config.ModelConfig;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
+
+/**
+ * A multi-class averaged perceptron that is trained online, one window after the other, so the
+ * training instances never have to be kept in memory. It is selected with solver.type =
+ * AVERAGED_PERCEPTRON in the model config; perceptron.epochs sets the number of passes over the
+ * training files (default 10).
+ * <p>
+ * The weights are a dense matrix in the same feature-major layout as in liblinear, i.e., the
+ * weights of feature index idx for all classes are found at (idx-1) * nrClass ... (idx-1) *
+ * nrClass + nrClass - 1. The classes are the label indices 1 ... nrClass of the label set.
+ * <p>
+ * The averaged weights are computed without adding up the weights after each instance: each
+ * update is also added to a second matrix, multiplied with the number of instances seen so far;
+ * the average is then the current weights minus the second matrix divided by the number of
+ * instances.
+ * <p>
+ * The weights can be initialized with the weights of an existing model, so that a model can be
+ * trained further on new data: warm.start.model names the archive of the model, whose feature
+ * files and label set are then reused; it is a zip archive with a liblinear or a compressed model,
+ * but not a binary model file (.bin). The trained model is saved as liblinear model file of solver type
+ * MCSVM_CS, which also decides for the class with the highest decision value, so it can be
+ * loaded by the tagger like any other model. A model with 2 classes is saved as binary model
+ * with a single weight per feature, see {@link #saveModel(Path, int, int, IntToDoubleFunction,
+ * SolverType)}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class PerceptronTrainer {
+
+  /** the solver type in the model config that selects the averaged perceptron */
+  public static final String SOLVER_NAME = "AVERAGED_PERCEPTRON";
+
+  private int nrFeature;
+  private int nrClass;
+  private double[] weights;
+  // the sum of all updates, each multiplied with the instance count at the time of the update
+  private double[] weightedUpdates;
+  // the number of instances seen so far, starting with 1
+  private long instanceCnt = 1;
+  // buffer for the decision values of the current instance
+  private double[] decisionValues;
+
+
+  /**
+   * @param nrFeature
+   *          the highest feature index
+   * @param nrClass
+   *          the number of classes, i.e., of labels in the label set
+   */
+  public PerceptronTrainer(int nrFeature, int nrClass) {
+
+    this.nrFeature = nrFeature;
+    this.nrClass = nrClass;
+    this.weights = new double[nrFeature * nrClass];
+    this.weightedUpdates = new double[nrFeature * nrClass];
+    this.decisionValues = new double[nrClass];
+  }
+
+
+  /**
+   * @param modelConfig
+   * @return true if the given model config selects the averaged perceptron
+   */
+  public static boolean isPerceptron(ModelConfig modelConfig) {
+
+    return SOLVER_NAME.equals(modelConfig.getString(ConfigKeys.SOLVER_TYPE));
+  }
+
+
+  /**
+   * Initializes the weights with the weights of the given model, which must have been trained
+   * with the same features and label set.
+   *
+   * @param model
+   *          a liblinear classification model without bias
+   */
+  public void setInitialWeights(Model model) {
+
+    setInitialWeights(
+        model.getLabels(), model.getNrFeature(), model.getBias(), model.getFeatureWeights());
+  }
+
+
+  /**
+   * Initializes the weights with the given model weights, e.g., the expanded weights of a
+   * {@link de.dfki.mlt.gnt.archive.CompressedModel}, which must have been trained with the same
+   * features and label set.
+   *
+   * @param labels
+   *          the labels of the model
+   * @param nrFeature
+   *          the number of features of the model
+   * @param bias
+   *          the bias of the model, which must be negative
+   * @param modelWeights
+   *          the weights in the feature-major layout of liblinear
+   */
+  public void setInitialWeights(int[] labels, int nrFeature, double bias, double[] modelWeights) {
+
+    if ((nrFeature != this.nrFeature) || (bias >= 0)) {
+      throw new IllegalArgumentException(String.format(
+          " Message from GNT: the model with %d features and bias %s does not match %d features",
+          nrFeature, bias, this.nrFeature));
+    }
+    for (int oneLabel : labels) {
+      if ((oneLabel < 1) || (oneLabel > this.nrClass)) {
+        throw new IllegalArgumentException(
+            " Message from GNT: the model has a label not in the label set: " + oneLabel);
+      }
+    }
+    int nrW = modelWeights.length / this.nrFeature;
+    for (int feature = 0; feature < this.nrFeature; feature++) {
+      for (int i = 0; i < nrW; i++) {
+        // a binary model has a single weight, which decides for its first label
+        this.weights[feature * this.nrClass + labels[i] - 1] = modelWeights[feature * nrW + i];
+      }
+    }
+    System.out.println("Initial weights from model with classes: " + labels.length);
+  }
+
+
+  /**
+   * Predicts the class of the given instance.
+   *
+   * @param features
+   *          the features of a filled window
+   * @return the class with the highest decision value
+   */
+  public int predict(FeatureBuffer features) {
+
+    for (int i = 0; i < this.nrClass; i++) {
+      this.decisionValues[i] = 0;
+    }
+    for (int i = 0; i < features.size(); i++) {
+      int featureIndex = features.getIndex(i);
+      if (featureIndex <= this.nrFeature) {
+        int rowStart = (featureIndex - 1) * this.nrClass;
+        for (int j = 0; j < this.nrClass; j++) {
+          this.decisionValues[j] += this.weights[rowStart + j] * features.getValue(i);
+        }
+      }
+    }
+    int maxIndex = 0;
+    for (int i = 1; i < this.nrClass; i++) {
+      if (this.decisionValues[i] > this.decisionValues[maxIndex]) {
+        maxIndex = i;
+      }
+    }
+    return maxIndex + 1;
+  }
+
+
+  /**
+   * Predicts the class of the given instance and updates the weights if the prediction is wrong.
+   *
+   * @param label
+   *          the correct class of the instance
+   * @param features
+   *          the features of a filled window
+   * @return true if the class was predicted correctly
+   */
+  public boolean update(int label, FeatureBuffer features) {
+
+    int prediction = predict(features);
+    if (prediction != label) {
+      for (int i = 0; i < features.size(); i++) {
+        int featureIndex = features.getIndex(i);
+        if (featureIndex <= this.nrFeature) {
+          int rowStart = (featureIndex - 1) * this.nrClass;
+          double value = features.getValue(i);
+          this.weights[rowStart + label - 1] += value;
+          this.weights[rowStart + prediction - 1] -= value;
+          this.weightedUpdates[rowStart + label - 1] += this.instanceCnt * value;
+          this.weightedUpdates[rowStart + prediction - 1] -= this.instanceCnt * value;
+        }
+      }
+    }
+    this.instanceCnt++;
+    return prediction == label;
+  }
+
+
+  /**
+   * Saves the averaged weights as liblinear model file.
+   *
+   * @param modelPath
+   * @throws IOException
+   */
+  public void saveModel(Path modelPath)
+      throws IOException {
+
+    saveModel(modelPath, this.nrFeature, this.nrClass,
+        i -> this.weights[i] - this.weightedUpdates[i] / this.instanceCnt,
+        SolverType.L2R_L2LOSS_SVC);
+  }
+
+
+  /**
+   * Saves a dense weight matrix in feature-major layout as liblinear model file of solver type
+   * MCSVM_CS with the labels 1 ... nrClass and without bias.
+   * <p>
+   * For 2 classes, liblinear and {@link de.dfki.mlt.gnt.tagger.GNPredictor} read MCSVM_CS models
+   * with 2 weights per feature, but decide by the sign of the first decision value only. So a
+   * model with 2 classes is saved with the given binary solver type and a single weight per
+   * feature, the weight of class 2 minus the weight of class 1. The labels are saved in the order
+   * 2 1, so that a positive decision value selects class 2 and a tie selects class 1, just as the
+   * highest decision value of both classes.
+   *
+   * @param modelPath
+   * @param nrFeature
+   * @param nrClass
+   * @param weights
+   *          returns the weight at the given position of the matrix
+   * @param binarySolverType
+   *          the solver type of a model with 2 classes; must not be MCSVM_CS
+   * @throws IOException
+   */
+  static void saveModel(Path modelPath, int nrFeature, int nrClass, IntToDoubleFunction weights,
+      SolverType binarySolverType)
+      throws IOException {
+
+    boolean binary = (nrClass == 2);
+    try (BufferedWriter out = Files.newBufferedWriter(modelPath, StandardCharsets.UTF_8)) {
+      out.write("solver_type " + (binary ? binarySolverType : SolverType.MCSVM_CS).name());
+      out.newLine();
+      out.write("nr_class " + nrClass);
+      out.newLine();
+      StringBuilder labelLine = new StringBuilder("label");
+      if (binary) {
+        labelLine.append(" 2 1");
+      } else {
+        for (int i = 1; i <= nrClass; i++) {
+          labelLine.append(' ').append(i);
+        }
+      }
+      out.write(labelLine.toString());
+      out.newLine();
+      out.write("nr_feature " + nrFeature);
+      out.newLine();
+      out.write("bias -1");
+      out.newLine();
+      out.write("w");
+      out.newLine();
+      StringBuilder row = new StringBuilder();
+      for (int feature = 0; feature < nrFeature; feature++) {
+        row.setLength(0);
+        if (binary) {
+          row.append(weights.applyAsDouble(2 * feature + 1) - weights.applyAsDouble(2 * feature))
+              .append(' ');
+        } else {
+          for (int i = feature * nrClass; i < (feature + 1) * nrClass; i++) {
+            row.append(weights.applyAsDouble(i)).append(' ');
+          }
+        }
+        out.write(row.toString());
+        out.newLine();
+      }
+    }
+  }
+}
@@ -2,11 +2,11 @@ package de.dfki.mlt.gnt.trainer;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.bwaldvogel.liblinear.FeatureNode;
-import de.dfki.mlt.gnt.data.Pair;
 import de.dfki.mlt.gnt.data.Window;
-import de.dfki.mlt.gnt.features.WordFeatures;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
 
 /**
  * If I understand MDP correctly, then first all training instances are collected
@@ -28,7 +28,8 @@ import de.dfki.mlt.gnt.features.WordFeatures;
  */
 public class ProblemInstance {
 
-  private static int cumLength = 0;
+  // shared by all threads that create problem instances
+  private static final AtomicInteger cumLength = new AtomicInteger();
   private FeatureNode[] featureVector;
 
 
@@ -39,7 +40,7 @@ public class ProblemInstance {
 
   public static int getCumLength() {
 
-    return cumLength;
+    return cumLength.get();
   }
 
 
@@ -64,53 +65,28 @@ public class ProblemInstance {
    */
   public void createProblemInstanceFromWindow(Window tokenWindow) {
 
-    // This means that the feature vector has size window length
-    // and window length is the number of non-zero features with relative feature index and value
-    this.setFeatureVector(new FeatureNode[tokenWindow.getWindowLength()]);
-    // Add to cumulative length: only needed for computing average length of window
-    ProblemInstance.cumLength += this.featureVector.length;
+    createProblemInstanceFromWindow(tokenWindow, new FeatureBuffer());
+  }
 
-    int offSet = 0;
 
-    for (WordFeatures wordFeats : tokenWindow.getElements()) {
-      // Add left word embedding length
-      for (int i = 0; i < wordFeats.getLeft().size(); i++) {
-        Pair<Integer, Double> pair = wordFeats.getLeft().get(i);
-        this.featureVector[offSet + i] = new FeatureNode(pair.getLeft(), pair.getRight());
-      }
-      offSet += wordFeats.getLeft().size();
-      // Add right word embedding length
-      for (int i = 0; i < wordFeats.getRight().size(); i++) {
-        Pair<Integer, Double> pair = wordFeats.getRight().get(i);
-        this.featureVector[offSet + i] = new FeatureNode(pair.getLeft(), pair.getRight());
-      }
-      offSet += wordFeats.getRight().size();
-      // Add shape length
-      for (int i = 0; i < wordFeats.getShape().size(); i++) {
-        Pair<Integer, Boolean> pair = wordFeats.getShape().get(i);
-        this.featureVector[offSet + i] = new FeatureNode(pair.getLeft(), 1);
-      }
-      offSet += wordFeats.getShape().size();
-      // Add suffix length
-      for (int i = 0; i < wordFeats.getSuffix().size(); i++) {
-        Pair<Integer, Boolean> pair = wordFeats.getSuffix().get(i);
-        this.featureVector[offSet + i] = new FeatureNode(pair.getLeft(), 1);
-      }
-      offSet += wordFeats.getSuffix().size();
-      // Add cluster length
-      for (int i = 0; i < wordFeats.getCluster().size(); i++) {
-        Pair<Integer, Boolean> pair = wordFeats.getCluster().get(i);
-        this.featureVector[offSet + i] = new FeatureNode(pair.getLeft(), 1);
-      }
+  /**
+   * The same as {@link #createProblemInstanceFromWindow(Window)}, but uses the given buffer for
+   * collecting the features of the window; it can be reused for the next window.
+   * @param tokenWindow
+   * @param windowFeatures
+   */
+  public void createProblemInstanceFromWindow(Window tokenWindow, FeatureBuffer windowFeatures) {
 
-      offSet += wordFeats.getCluster().size();
-      // Add label length
-      for (int i = 0; i < wordFeats.getLabel().size(); i++) {
-        Pair<Integer, Boolean> pair = wordFeats.getLabel().get(i);
-        this.featureVector[offSet + i] = new FeatureNode(pair.getLeft(), 1);
-      }
+    tokenWindow.writeFeatures(windowFeatures);
+    // This means that the feature vector has size window length
+    // and window length is the number of non-zero features with relative feature index and value
+    this.setFeatureVector(new FeatureNode[windowFeatures.size()]);
+    // Add to cumulative length: only needed for computing average length of window
+    ProblemInstance.cumLength.addAndGet(this.featureVector.length);
 
-      offSet += wordFeats.getLabel().size();
+    for (int i = 0; i < windowFeatures.size(); i++) {
+      this.featureVector[i] =
+          new FeatureNode(windowFeatures.getIndex(i), windowFeatures.getValue(i));
     }
 
     //this.normalizeFeatureVectorToUnitLenght();
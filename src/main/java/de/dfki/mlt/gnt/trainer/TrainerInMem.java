@@ -5,32 +5,44 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.configuration2.ex.ConfigurationException;
 
-import de.bwaldvogel.liblinear.Feature;
-import de.bwaldvogel.liblinear.FeatureNode;
 import de.bwaldvogel.liblinear.Linear;
 import de.bwaldvogel.liblinear.Model;
 import de.bwaldvogel.liblinear.Parameter;
 import de.bwaldvogel.liblinear.Problem;
 import de.bwaldvogel.liblinear.SolverType;
 import de.dfki.mlt.gnt.archive.Archivator;
+import de.dfki.mlt.gnt.archive.CompressedModel;
 import de.dfki.mlt.gnt.config.ConfigKeys;
 import de.dfki.mlt.gnt.config.GlobalConfig;
 import de.dfki.mlt.gnt.config.ModelConfig;
 import de.dfki.mlt.gnt.data.Alphabet;
 import de.dfki.mlt.gnt.data.Data;
+import de.dfki.mlt.gnt.data.ModelShards;
 import de.dfki.mlt.gnt.data.OffSets;
 import de.dfki.mlt.gnt.data.Sentence;
 import de.dfki.mlt.gnt.data.Window;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
+import de.dfki.mlt.gnt.features.SentenceFeatures;
 
 /**
  * <pre>
@@ -74,6 +86,9 @@ public class TrainerInMem {
 
   private static boolean debug = false;
 
+  // number of sentences whose feature vectors are constructed by one task
+  private static final int SENTENCE_BATCH_SIZE = 200;
+
   private Archivator archivator;
   private Alphabet alphabet;
   private ModelConfig modelConfig;
@@ -90,7 +105,23 @@ public class TrainerInMem {
 
   private Parameter parameter = new Parameter(SolverType.L2R_LR, 1.0, 0.01);
 
-  private Problem problem;
+  // the feature vectors and labels of the training instances of each shard;
+  // a single store if the model is not sharded
+  private CompactProblem[] problemStores = new CompactProblem[0];
+  // the totals of the problem stores when they were completed; the stores themselves are
+  // released while the liblinear problems are created
+  private int problemInstanceCnt = 0;
+  private long problemFeatureCnt = 0;
+  private long problemMemorySize = 0;
+  // the number of training instances, i.e., of tokens in the training sentences
+  private int instanceCnt = 0;
+  // the number of training instances added to the problem stores so far
+  private int addedInstanceCnt = 0;
+  // the shards of a sharded model, null if a single model is trained
+  private ModelShards modelShards;
+  // the cluster id of the center word of each training instance, only for a sharded model
+  private int[] instanceClusterIds = new int[0];
+  private int clusterIdCnt = 0;
 
   private BufferedWriter modelInputFileWriter;
 
@@ -103,10 +134,13 @@ public class TrainerInMem {
 
     this.setData(new Data());
 
-    this.setParameter(new Parameter(
-        SolverType.valueOf(modelConfig.getString(ConfigKeys.SOLVER_TYPE)),
-        modelConfig.getDouble(ConfigKeys.C),
-        modelConfig.getDouble(ConfigKeys.EPS)));
+    // the averaged perceptron and the Hogwild SGD trainer do not use liblinear
+    if (!PerceptronTrainer.isPerceptron(modelConfig) && !HogwildTrainer.isHogwild(modelConfig)) {
+      this.setParameter(new Parameter(
+          SolverType.valueOf(modelConfig.getString(ConfigKeys.SOLVER_TYPE)),
+          modelConfig.getDouble(ConfigKeys.C),
+          modelConfig.getDouble(ConfigKeys.EPS)));
+    }
 
     if (GlobalConfig.getBoolean(ConfigKeys.CREATE_LIBLINEAR_INPUT_FILE)) {
       try {
@@ -210,9 +244,30 @@ public class TrainerInMem {
   }
 
 
-  public Problem getProblem() {
+  /**
+   * @return the number of training instances in all problem stores
+   */
+  public int getProblemInstanceCnt() {
+
+    return this.problemInstanceCnt;
+  }
+
+
+  /**
+   * @return the number of features of all training instances in all problem stores
+   */
+  public long getProblemFeatureCnt() {
+
+    return this.problemFeatureCnt;
+  }
+
+
+  /**
+   * @return the approximate number of bytes used by all problem stores
+   */
+  public long getProblemMemorySize() {
 
-    return this.problem;
+    return this.problemMemorySize;
   }
 
 
@@ -250,6 +305,8 @@ public class TrainerInMem {
     // for each token t_i of current training sentence do
     // System.out.println("Sentence no: " + data.getSentenceCnt());
     int mod = 100000;
+    // the features of each token are computed once for all windows of the sentence
+    SentenceFeatures sentenceFeatures = new SentenceFeatures(sentence);
     for (int i = 0; i < sentence.getWords().length; i++) {
       int labelIndex = this.data.getLabelSet().getIndex(sentence.getTags()[i]);
       // create local context for tagging t_i of size 2*windowSize+1 centered around t_i
@@ -257,7 +314,7 @@ public class TrainerInMem {
       Window tokenWindow =
           new Window(
               sentence, i, this.modelConfig.getInt(ConfigKeys.WINDOW_SIZE),
-              this.data, this.alphabet);
+              this.data, this.alphabet, sentenceFeatures);
       tokenWindow.setLabelIndex(labelIndex);
 
       this.getData().getInstances().add(tokenWindow);
@@ -290,8 +347,152 @@ public class TrainerInMem {
       List<String> trainingFileNames, int max, int wordFormIndex, int tagIndex)
       throws IOException {
 
+    readConllSentences(trainingFileNames, max, tokens -> {
+      // create internal sentence object and label maps
+      Sentence sentence =
+          this.data.generateSentenceObjectFromConllLabeledSentence(
+              tokens, wordFormIndex, tagIndex);
+
+      // System.out.println("In:  " + this.taggedSentenceToString());
+
+      // create window frames and store in list
+      createWindowFramesFromSentence(sentence);
+      addClusterIds(sentence);
+    });
+    this.instanceCnt = this.data.getInstances().size();
+    this.data.saveLabelSet();
+    this.data.saveWordSet();
+    System.out.println("... done");
+  }
+
+
+  /**
+   * First pass of the streaming construction of the training problem: reads the training
+   * sentences only for creating the label and word sets and for counting the training
+   * instances, and for a sharded model, for collecting the cluster ids of the training
+   * instances. No window frames are created.
+   * @param trainingFileNames
+   * @param max if -1 then infinite else max sentences are processed and then methods stops
+   * @throws IOException
+   */
+  private void collectLabelsFromConllReader(
+      List<String> trainingFileNames, int max, int wordFormIndex, int tagIndex)
+      throws IOException {
+
+    readConllSentences(trainingFileNames, max, tokens -> {
+      Sentence sentence = this.data.generateSentenceObjectFromConllLabeledSentence(
+          tokens, wordFormIndex, tagIndex);
+      this.instanceCnt += tokens.size();
+      addClusterIds(sentence);
+    });
+    this.data.saveLabelSet();
+    this.data.saveWordSet();
+    System.out.println("... done");
+  }
+
+
+  /**
+   * First pass for training an existing model further: the label set of the model is kept, so
+   * that the weights of the model keep their classes. The words of the training sentences are
+   * only added to the word set, and the training instances are counted.
+   * @param trainingFileNames
+   * @param max if -1 then infinite else max sentences are processed and then methods stops
+   * @throws IOException
+   */
+  private void collectWordsFromConllReader(
+      List<String> trainingFileNames, int max, int wordFormIndex)
+      throws IOException {
+
+    this.data.readLabelSet();
+    this.data.readWordSet();
+    readConllSentences(trainingFileNames, max, tokens -> {
+      for (String[] oneToken : tokens) {
+        this.data.getWordSet().add(oneToken[wordFormIndex].trim());
+      }
+      this.data.setSentenceCnt(this.data.getSentenceCnt() + 1);
+      this.instanceCnt += tokens.size();
+    });
+    this.data.saveWordSet();
+    System.out.println("... done");
+  }
+
+
+  // Adds the cluster ids of the words of the given sentence, if the model is sharded
+  private void addClusterIds(Sentence sentence) {
+
+    if (!ModelShards.isSharded(this.modelConfig)) {
+      return;
+    }
+    int newClusterIdCnt = this.clusterIdCnt + sentence.getWords().length;
+    if (newClusterIdCnt > this.instanceClusterIds.length) {
+      this.instanceClusterIds = Arrays.copyOf(
+          this.instanceClusterIds, Math.max(newClusterIdCnt, 2 * this.instanceClusterIds.length));
+    }
+    for (String oneWord : sentence.getWords()) {
+      this.instanceClusterIds[this.clusterIdCnt] =
+          ModelShards.getClusterId(this.alphabet, oneWord);
+      this.clusterIdCnt++;
+    }
+  }
+
+
+  /**
+   * Creates the shards from the cluster ids of the training instances, if the model is sharded.
+   * The shards are saved in the model build folder.
+   */
+  private void initShards() {
+
+    if (!ModelShards.isSharded(this.modelConfig)) {
+      return;
+    }
+    this.modelShards = ModelShards.create(this.instanceClusterIds, this.clusterIdCnt,
+        this.modelConfig.getInt(ConfigKeys.SHARD_MIN_SIZE));
+    this.modelShards.save();
+    System.out.println(this.modelShards.toString());
+  }
+
+
+  // Returns the shard of the given training instance
+  private int getShard(int instance) {
+
+    if (null == this.modelShards) {
+      return 0;
+    }
+    return this.modelShards.getShard(this.instanceClusterIds[instance]);
+  }
+
+
+  /**
+   * Reads the sentences of the given conll files into memory.
+   * @param trainingFileNames
+   * @param max if -1 then infinite else max sentences are read
+   * @return the tokens of each sentence
+   * @throws IOException
+   */
+  public static List<List<String[]>> readConllSentences(List<String> trainingFileNames, int max)
+      throws IOException {
+
+    List<List<String[]>> sentences = new ArrayList<>();
+    readConllSentences(trainingFileNames, max, sentences::add);
+    return sentences;
+  }
+
+
+  /**
+   * Loops through files where each line is conll encoded, collects tokens to a sentence and
+   * passes the tokens of each sentence to the given consumer.
+   * @param trainingFileNames
+   * @param max if -1 then infinite else max sentences are processed and then methods stops
+   * @param sentenceHandler
+   * @throws IOException
+   */
+  private static void readConllSentences(
+      List<String> trainingFileNames, int max, SentenceHandler sentenceHandler)
+      throws IOException {
+
     String line;
     List<String[]> tokens = new ArrayList<String[]>();
+    int sentenceCnt = 0;
 
     for (String oneTrainingFileName : trainingFileNames) {
       try (BufferedReader conllReader = new BufferedReader(
@@ -301,19 +502,12 @@ public class TrainerInMem {
 
         while ((line = conllReader.readLine()) != null) {
           if (line.isEmpty()) {
-            if ((max > 0) && (this.data.getSentenceCnt() > max)) {
+            if ((max > 0) && (sentenceCnt > max)) {
               break;
             }
 
-            // create internal sentence object and label maps
-            Sentence sentence =
-                this.data.generateSentenceObjectFromConllLabeledSentence(
-                    tokens, wordFormIndex, tagIndex);
-
-            // System.out.println("In:  " + this.taggedSentenceToString());
-
-            // create window frames and store in list
-            createWindowFramesFromSentence(sentence);
+            sentenceHandler.handle(tokens);
+            sentenceCnt++;
 
             // reset tokens
             tokens = new ArrayList<String[]>();
@@ -324,30 +518,53 @@ public class TrainerInMem {
         }
       }
     }
-    this.data.saveLabelSet();
-    this.data.saveWordSet();
-    System.out.println("... done");
   }
 
 
   /**
-   * Initialize problem for liblinear using
-   * Window.windowCnt for problem.l (training instance size)
-   * OffSets.windowVectorSize for problem.n (OffSets.tokenVectorSize*windowSize+1)
+   * Initialize the problem store of each shard using
+   * the number of training instances for problem.l (training instance size);
+   * OffSets.windowVectorSize for problem.n (OffSets.tokenVectorSize*windowSize+1) is set when
+   * all instances have been added
    */
   private void initProblem() {
 
-    this.problem = new Problem();
-    this.problem.l = Window.getWindowCnt();
-    //problem.n = OffSets.windowVectorSize;
-    this.problem.x = new FeatureNode[this.problem.l][];
-    this.problem.y = new double[this.problem.l];
-    this.problem.bias = this.getBias();
+    int shardCnt = (null == this.modelShards) ? 1 : this.modelShards.getShardCnt();
+    int[] shardInstanceCnts = new int[shardCnt];
+    for (int i = 0; i < this.instanceCnt; i++) {
+      shardInstanceCnts[getShard(i)]++;
+    }
+    this.problemStores = new CompactProblem[shardCnt];
+    for (int shard = 0; shard < shardCnt; shard++) {
+      this.problemStores[shard] = new CompactProblem(shardInstanceCnts[shard]);
+    }
+    this.addedInstanceCnt = 0;
+
+    System.out.println("problem.l: " + this.instanceCnt);
+  }
 
-    System.out.println("problem.l: " + this.problem.l);
-    System.out.println("problem.n: " + this.problem.n);
-    System.out.println("problem.y.size: " + this.problem.y.length);
-    System.out.println("problem.x.size: " + this.problem.x.length);
+
+  // Sets the number of features, because we know the number of examples now.
+  private void completeProblem() {
+
+    this.problemInstanceCnt = 0;
+    this.problemFeatureCnt = 0;
+    this.problemMemorySize = 0;
+    for (CompactProblem oneProblemStore : this.problemStores) {
+      oneProblemStore.trim();
+      oneProblemStore.setNumberOfFeatures(this.getOffSets().getWindowVectorSize());
+      this.problemInstanceCnt += oneProblemStore.getInstanceCnt();
+      this.problemFeatureCnt += oneProblemStore.getFeatureCnt();
+      this.problemMemorySize += oneProblemStore.getMemorySize();
+    }
+    // the fallback shard 0 can be empty when sharding, so use the first instance of any shard
+    for (CompactProblem oneProblemStore : this.problemStores) {
+      if (oneProblemStore.getInstanceCnt() > 0) {
+        System.out.println("Window lenght: "
+            + (oneProblemStore.getRowEnd(0) - oneProblemStore.getRowStart(0)));
+        break;
+      }
+    }
   }
 
 
@@ -362,43 +579,244 @@ public class TrainerInMem {
    */
   private void constructProblem(boolean train, boolean adjust) {
 
-    int mod = 10000;
-    int problemCnt = 0;
-
     // Initialize problem with potential feature vector size and number of training instances
     // and size of x and y which uses training instance
     // current element has index i
     this.initProblem();
 
+    // reused for collecting the features of each window
+    FeatureBuffer windowFeatures = new FeatureBuffer();
+
     for (int i = 0; i < this.data.getInstances().size(); i++) {
       Window nextWindow = this.data.getInstances().get(i);
-      nextWindow.setOffSets(this.getOffSets());
-      nextWindow.fillWindow(train, adjust);
-      ProblemInstance problemInstance = new ProblemInstance();
-      problemInstance.createProblemInstanceFromWindow(nextWindow);
-      problemCnt++;
+      addProblemInstance(i, nextWindow, windowFeatures, train, adjust);
+    }
 
-      this.problem.y[i] = nextWindow.getLabelIndex();
-      this.problem.x[i] = problemInstance.getFeatureVector();
+    this.completeProblem();
+  }
 
-      if (GlobalConfig.getBoolean(ConfigKeys.CREATE_LIBLINEAR_INPUT_FILE)) {
-        problemInstance.saveProblemInstance(this.modelInputFileWriter, nextWindow.getLabelIndex());
+
+  /**
+   * Second pass of the streaming construction of the training problem: reads the training
+   * sentences again, and for each token, creates a window, fills it and adds its feature vector
+   * directly to the problem. The windows of a sentence are dropped after the sentence is done.
+   * <p>
+   * The windows are created and filled in the same order as by
+   * {@link #createTrainingInstancesFromConllReader(List, int, int, int)} and
+   * {@link #constructProblem(boolean, boolean)}, so the problem is the same.
+   * @param trainingFileNames
+   * @param max
+   * @param wordFormIndex
+   * @param tagIndex
+   * @param train
+   * @param adjust
+   * @throws IOException
+   */
+  private void constructProblemFromConllReader(
+      List<String> trainingFileNames, int max, int wordFormIndex, int tagIndex,
+      boolean train, boolean adjust)
+      throws IOException {
+
+    this.initProblem();
+
+    int threads = GlobalConfig.getInt(ConfigKeys.TRAINER_THREADS, 1);
+    System.out.println("Construct problem with threads: " + threads);
+    ExecutorService executor = (threads > 1) ? Executors.newFixedThreadPool(threads) : null;
+    // the batches in reading order; at most 2 * threads batches are kept in memory
+    Deque<Future<CompactProblem>> pendingBatches = new ArrayDeque<>();
+    List<List<String[]>> sentenceBatch = new ArrayList<>();
+    try {
+      readConllSentences(trainingFileNames, max, tokens -> {
+        sentenceBatch.add(tokens);
+        if (sentenceBatch.size() == SENTENCE_BATCH_SIZE) {
+          submitSentenceBatch(new ArrayList<>(sentenceBatch), executor, pendingBatches,
+              wordFormIndex, tagIndex, train, adjust);
+          sentenceBatch.clear();
+          while (pendingBatches.size() > (2 * threads)) {
+            addProblemBatch(pendingBatches.poll());
+          }
+        }
+      });
+      submitSentenceBatch(sentenceBatch, executor, pendingBatches,
+          wordFormIndex, tagIndex, train, adjust);
+      while (!pendingBatches.isEmpty()) {
+        addProblemBatch(pendingBatches.poll());
+      }
+    } finally {
+      if (null != executor) {
+        executor.shutdownNow();
       }
+    }
+
+    this.completeProblem();
+  }
+
+
+  // Constructs the problem of the given sentences, in the calling thread if no executor is given
+  private void submitSentenceBatch(List<List<String[]>> sentences, ExecutorService executor,
+      Deque<Future<CompactProblem>> pendingBatches, int wordFormIndex, int tagIndex,
+      boolean train, boolean adjust) {
+
+    if (sentences.isEmpty()) {
+      return;
+    }
+    if (null == executor) {
+      pendingBatches.add(CompletableFuture.completedFuture(
+          constructProblemBatch(sentences, wordFormIndex, tagIndex, train, adjust)));
+    } else {
+      pendingBatches.add(executor.submit(
+          () -> constructProblemBatch(sentences, wordFormIndex, tagIndex, train, adjust)));
+    }
+  }
+
+
+  /**
+   * Creates and fills the windows of the given sentences and collects their feature vectors in
+   * a separate problem. Only thread-confined buffers are changed, the alphabet, the offsets and
+   * the label set are only read, so batches can be constructed in parallel.
+   * @param sentences
+   * @param wordFormIndex
+   * @param tagIndex
+   * @param train
+   * @param adjust
+   * @return the problem with the training instances of the sentences
+   */
+  private CompactProblem constructProblemBatch(List<List<String[]>> sentences,
+      int wordFormIndex, int tagIndex, boolean train, boolean adjust) {
 
-      nextWindow.clean();
+    int tokenCnt = 0;
+    for (List<String[]> oneSentence : sentences) {
+      tokenCnt += oneSentence.size();
+    }
+    CompactProblem problemBatch = new CompactProblem(tokenCnt);
+    // reused for all windows and sentences of the batch
+    FeatureBuffer windowFeatures = new FeatureBuffer();
+    SentenceFeatures sentenceFeatures = new SentenceFeatures();
+
+    for (List<String[]> tokens : sentences) {
+      fillSentenceWindows(tokens, wordFormIndex, tagIndex, train, adjust,
+          sentenceFeatures, windowFeatures, problemBatch::addInstance);
+    }
+    return problemBatch;
+  }
 
 
-      // Print how many problems are created so far
-      if ((problemCnt % mod) == 0) {
-        System.out.println("************");
-        System.out.println("Problem instances created: " + problemCnt);
+  /**
+   * Creates and fills the window of each token of the given sentence and passes the label and
+   * the features of each window to the given handler. The label and word sets are complete, so
+   * the sentence is created without changing them.
+   * @param tokens
+   * @param wordFormIndex
+   * @param tagIndex
+   * @param train
+   * @param adjust
+   * @param sentenceFeatures
+   *          the token features, reset for the sentence
+   * @param windowFeatures
+   *          buffer for the features of each window
+   * @param windowHandler
+   */
+  private void fillSentenceWindows(List<String[]> tokens, int wordFormIndex, int tagIndex,
+      boolean train, boolean adjust, SentenceFeatures sentenceFeatures,
+      FeatureBuffer windowFeatures, WindowHandler windowHandler) {
+
+    int windowSize = this.modelConfig.getInt(ConfigKeys.WINDOW_SIZE);
+    Sentence sentence = new Sentence(tokens.size());
+    for (int i = 0; i < tokens.size(); i++) {
+      sentence.addNextToken(
+          i, tokens.get(i)[wordFormIndex].trim(), tokens.get(i)[tagIndex].trim());
+    }
+    sentenceFeatures.reset(sentence);
+    for (int i = 0; i < sentence.getWords().length; i++) {
+      Window tokenWindow =
+          new Window(sentence, i, windowSize, this.data, this.alphabet, sentenceFeatures);
+      tokenWindow.setLabelIndex(this.data.getLabelSet().getIndex(sentence.getTags()[i]));
+      tokenWindow.setOffSets(this.getOffSets());
+      tokenWindow.fillWindow(train, adjust);
+      tokenWindow.writeFeatures(windowFeatures);
+      windowHandler.handle(tokenWindow.getLabelIndex(), windowFeatures);
+      tokenWindow.clean();
+    }
+  }
+
+
+  // Adds the instances of the next batch to the problem store, in reading order
+  private void addProblemBatch(Future<CompactProblem> pendingBatch)
+      throws IOException {
+
+    CompactProblem problemBatch = getResult(pendingBatch);
+    int firstInstance = this.addedInstanceCnt;
+    if (null == this.modelShards) {
+      this.problemStores[0].addAll(problemBatch);
+    } else {
+      for (int i = 0; i < problemBatch.getInstanceCnt(); i++) {
+        this.problemStores[getShard(firstInstance + i)].addInstance(problemBatch, i);
       }
     }
+    this.addedInstanceCnt += problemBatch.getInstanceCnt();
+    printProblemCnt(firstInstance, this.addedInstanceCnt);
+    writeProblemInstances(firstInstance);
+  }
 
-    // Number of feature can be set here, because we know the number of examples now.
-    System.out.println("Window lenght: " + this.problem.x[0].length);
-    this.problem.n = this.getOffSets().getWindowVectorSize();
 
+  // Saves the instances from firstInstance on to the liblinear input file, if requested
+  private void writeProblemInstances(int firstInstance)
+      throws IOException {
+
+    if (GlobalConfig.getBoolean(ConfigKeys.CREATE_LIBLINEAR_INPUT_FILE)) {
+      for (int i = firstInstance; i < this.addedInstanceCnt; i++) {
+        this.problemStores[0].writeInstance(this.modelInputFileWriter, i);
+      }
+    }
+  }
+
+
+  // Print how many problems are created so far
+  private static void printProblemCnt(int problemCntBefore, int problemCnt) {
+
+    int mod = 10000;
+    if ((problemCnt / mod) > (problemCntBefore / mod)) {
+      System.out.println("************");
+      System.out.println("Problem instances created: " + (problemCnt / mod) * mod);
+    }
+  }
+
+
+  /**
+   * Fills the window, adjusts the feature indices and adds the feature vector and the label of
+   * the window as instance i to the problem store of its shard.
+   * @param i
+   * @param nextWindow
+   * @param windowFeatures
+   * @param train
+   * @param adjust
+   */
+  private void addProblemInstance(
+      int i, Window nextWindow, FeatureBuffer windowFeatures, boolean train, boolean adjust) {
+
+    int mod = 10000;
+
+    nextWindow.setOffSets(this.getOffSets());
+    nextWindow.fillWindow(train, adjust);
+    nextWindow.writeFeatures(windowFeatures);
+    this.problemStores[getShard(i)].addInstance(nextWindow.getLabelIndex(), windowFeatures);
+    this.addedInstanceCnt++;
+
+    if (GlobalConfig.getBoolean(ConfigKeys.CREATE_LIBLINEAR_INPUT_FILE)) {
+      try {
+        this.problemStores[0].writeInstance(this.modelInputFileWriter, i);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+
+    nextWindow.clean();
+
+    // Print how many problems are created so far
+    if (((i + 1) % mod) == 0) {
+      System.out.println("************");
+      System.out.println("Problem instances created: " + (i + 1));
+    }
   }
 
 
@@ -408,22 +826,193 @@ public class TrainerInMem {
    */
   private void checkProblem() {
 
-    for (Feature[] nodes : this.problem.x) {
+    for (CompactProblem oneProblemStore : this.problemStores) {
+      oneProblemStore.checkFeatureOrder();
+    }
+  }
+
+
+  /**
+   * Trains an averaged perceptron in epochs over the training files, see
+   * {@link PerceptronTrainer}. Each window is filled and used for an update right away, so no
+   * training problem is constructed. The sentences are visited in the order of the training
+   * files in each epoch.
+   * @param trainingFileNames
+   * @param max
+   * @param wordFormIndex
+   * @param tagIndex
+   * @param warmStartModelName
+   *          the model archive with the initial weights, or null
+   * @throws IOException
+   */
+  private void runPerceptronTrainer(List<String> trainingFileNames, int max,
+      int wordFormIndex, int tagIndex, String warmStartModelName)
+      throws IOException {
+
+    // as when tagging, words unknown to an existing model are handled as unknown words
+    boolean train = (null == warmStartModelName);
+    boolean adjust = true;
+    int epochs = this.modelConfig.getInt(ConfigKeys.PERCEPTRON_EPOCHS, 10);
+    PerceptronTrainer perceptron = new PerceptronTrainer(
+        this.getOffSets().getWindowVectorSize(), this.data.getLabelSet().size());
+    if (null != warmStartModelName) {
+      setInitialWeights(perceptron, warmStartModelName);
+    }
+
+    // reused for all windows and sentences
+    FeatureBuffer windowFeatures = new FeatureBuffer();
+    SentenceFeatures sentenceFeatures = new SentenceFeatures();
+    for (int epoch = 1; epoch <= epochs; epoch++) {
+      long time1 = System.currentTimeMillis();
+      // instances, errors and instances with a label unknown to the model
+      int[] counts = { 0, 0, 0 };
+      readConllSentences(trainingFileNames, max, tokens -> {
+        fillSentenceWindows(tokens, wordFormIndex, tagIndex, train, adjust,
+            sentenceFeatures, windowFeatures, (labelIndex, features) -> {
+              if (labelIndex < 1) {
+                counts[2]++;
+              } else if (!perceptron.update(labelIndex, features)) {
+                counts[1]++;
+              }
+              counts[0]++;
+            });
+      });
+      long time2 = System.currentTimeMillis();
+      System.out.println(String.format(
+          "Epoch %d: instances: %d errors: %d unknown labels: %d System time (msec): %d",
+          epoch, counts[0], counts[1], counts[2], time2 - time1));
+    }
+
+    String modelName = this.modelConfig.getModelName().split("\\.conll")[0];
+    Path modelPath = GlobalConfig.getModelBuildFolder().resolve(modelName + ".txt");
+    System.out.println("Save  model file: " + modelPath);
+    perceptron.saveModel(modelPath);
+  }
+
+
+  /**
+   * Trains a logistic regression by Hogwild SGD, see {@link HogwildTrainer}. The sentences are
+   * read once and shuffled, and each thread trains on its own partition of them in each epoch.
+   * Each window is filled and used for an update right away, so only the tokens of the training
+   * sentences are kept in memory. The learning rate decreases with each epoch.
+   * @param trainingFileNames
+   * @param max
+   * @param wordFormIndex
+   * @param tagIndex
+   * @param train
+   * @param adjust
+   * @throws IOException
+   */
+  private void runHogwildTrainer(List<String> trainingFileNames, int max,
+      int wordFormIndex, int tagIndex, boolean train, boolean adjust)
+      throws IOException {
+
+    int threads = GlobalConfig.getInt(ConfigKeys.TRAINER_SOLVER_THREADS, 1);
+    int epochs = this.modelConfig.getInt(ConfigKeys.SGD_EPOCHS, 10);
+    double learningRate = this.modelConfig.getDouble(ConfigKeys.SGD_LEARNING_RATE, 0.001);
+    HogwildTrainer hogwild = new HogwildTrainer(
+        this.getOffSets().getWindowVectorSize(), this.data.getLabelSet().size());
+
+    List<List<String[]>> sentences = readConllSentences(trainingFileNames, max);
+    // a fixed seed, so the model is always the same with a single thread
+    Collections.shuffle(sentences, new Random(42));
+    List<List<List<String[]>>> partitions = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      partitions.add(sentences.subList(
+          i * sentences.size() / threads, (i + 1) * sentences.size() / threads));
+    }
+
+    System.out.println("Train Hogwild SGD with threads: " + threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (int epoch = 1; epoch <= epochs; epoch++) {
+        long time1 = System.currentTimeMillis();
+        double epochLearningRate = learningRate / epoch;
+        List<Future<double[]>> results = new ArrayList<>();
+        for (List<List<String[]>> onePartition : partitions) {
+          results.add(executor.submit(() -> trainHogwildPartition(hogwild, onePartition,
+              wordFormIndex, tagIndex, train, adjust, epochLearningRate)));
+        }
+        // loss and instances of all partitions
+        double[] totals = new double[2];
+        for (Future<double[]> oneResult : results) {
+          double[] partitionTotals = getResult(oneResult);
+          totals[0] += partitionTotals[0];
+          totals[1] += partitionTotals[1];
+        }
+        long time2 = System.currentTimeMillis();
+        System.out.println(String.format(
+            "Epoch %d: instances: %d average loss: %.4f learning rate: %s System time (msec): %d",
+            epoch, (long)totals[1], totals[0] / Math.max(1, totals[1]), epochLearningRate,
+            time2 - time1));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    String modelName = this.modelConfig.getModelName().split("\\.conll")[0];
+    Path modelPath = GlobalConfig.getModelBuildFolder().resolve(modelName + ".txt");
+    System.out.println("Save  model file: " + modelPath);
+    hogwild.saveModel(modelPath);
+  }
+
 
-      if (nodes == null) {
-        System.out.println("shit!!");
-        continue;
+  // Runs one epoch over the given sentences; returns the summed loss and the instance count
+  private double[] trainHogwildPartition(HogwildTrainer hogwild, List<List<String[]>> sentences,
+      int wordFormIndex, int tagIndex, boolean train, boolean adjust, double learningRate) {
+
+    // thread-confined buffers
+    FeatureBuffer windowFeatures = new FeatureBuffer();
+    SentenceFeatures sentenceFeatures = new SentenceFeatures();
+    double[] probabilities = new double[hogwild.getNrClass()];
+    double[] totals = new double[2];
+    for (List<String[]> tokens : sentences) {
+      fillSentenceWindows(tokens, wordFormIndex, tagIndex, train, adjust,
+          sentenceFeatures, windowFeatures, (labelIndex, features) -> {
+            totals[0] += hogwild.update(labelIndex, features, learningRate, probabilities);
+            totals[1]++;
+          });
+    }
+    return totals;
+  }
+
+
+  // Initializes the perceptron with the weights of the liblinear or compressed model of the given
+  // model archive
+  private static void setInitialWeights(PerceptronTrainer perceptron, String modelArchiveName)
+      throws IOException {
+
+    System.out.println("Read initial model from archive: " + modelArchiveName);
+    try (Archivator modelArchivator = new Archivator(modelArchiveName)) {
+      ModelConfig archiveModelConfig;
+      try (InputStream in = modelArchivator.getInputStream(GlobalConfig.MODEL_CONFIG_FILE)) {
+        archiveModelConfig = ModelConfig.create(in);
+      } catch (ConfigurationException e) {
+        throw new IOException(e);
       }
-      //System.out.println("Next node!" + nodes.toString());
-      int indexBefore = 0;
-      for (Feature n : nodes) {
-        //System.out.println("Index " + n.getIndex() + " Before: " + indexBefore);
-        if (n.getIndex() <= indexBefore) {
-          throw new IllegalArgumentException(
-              " Message from GNT: feature nodes must be sorted by index in ascending order");
-        } else {
-          indexBefore = n.getIndex();
+      if (ModelShards.isSharded(archiveModelConfig)) {
+        throw new IllegalArgumentException(
+            " Message from GNT: a sharded model can not be trained further");
+      }
+      String modelName = archiveModelConfig.getModelName();
+      String compressedFileName = modelName + CompressedModel.FILE_EXTENSION;
+      if (modelArchivator.getEntryNames().contains(compressedFileName)) {
+        // pruned rows are zero and quantized weights are multiplied by their scale
+        CompressedModel compressed;
+        try (InputStream in = modelArchivator.getInputStream(compressedFileName)) {
+          compressed = CompressedModel.read(in);
+        }
+        perceptron.setInitialWeights(compressed.getLabels(), compressed.getNrFeature(),
+            compressed.getBias(), compressed.toDenseWeights());
+      } else if (modelArchivator.getEntryNames().contains(modelName + ".txt")) {
+        try (InputStream in = modelArchivator.getInputStream(modelName + ".txt")) {
+          perceptron.setInitialWeights(
+              Linear.loadModel(new InputStreamReader(in, StandardCharsets.UTF_8)));
         }
+      } else {
+        throw new IllegalArgumentException(String.format(
+            " Message from GNT: the model archive %s has neither %s.txt nor %s",
+            modelArchiveName, modelName, compressedFileName));
       }
     }
   }
@@ -435,66 +1024,122 @@ public class TrainerInMem {
     long time2;
     Linear.disableDebugOutput();
     time1 = System.currentTimeMillis();
-    System.out.println("problem.n: " + this.problem.n);
+    System.out.println("problem.n: " + this.problemStores[0].getNumberOfFeatures());
     System.out.println("Test problem ");
     this.checkProblem();
-    System.out.println("Do training:");
-    Model model = Linear.train(this.problem, this.getParameter());
-    time2 = System.currentTimeMillis();
-    System.out.println("System time (msec): " + (time2 - time1));
+    String modelName = this.modelConfig.getModelName().split("\\.conll")[0];
+    if (null == this.modelShards) {
+      System.out.println("Create liblinear problem:");
+      // the compact store is released while the liblinear problem is created
+      Problem problem = this.problemStores[0].toLiblinearProblem(this.getBias(), true);
+      this.problemStores[0] = null;
+      System.out.println("Do training:");
+      Model model = new OneVsRestTrainer(
+          this.getParameter(), GlobalConfig.getInt(ConfigKeys.TRAINER_SOLVER_THREADS, 1))
+          .train(problem);
+      time2 = System.currentTimeMillis();
+      System.out.println("System time (msec): " + (time2 - time1));
+      saveModel(model, modelName);
+    } else {
+      this.runShardTrainers(modelName);
+      time2 = System.currentTimeMillis();
+      System.out.println("System time (msec): " + (time2 - time1));
+    }
+  }
+
+
+  /**
+   * Trains and saves the model of each shard. The shards are trained in parallel using
+   * trainer.solver.threads threads if the solver does not use random numbers, else one after the
+   * other, so that the models are the same in each run. Only the liblinear problems of the
+   * shards currently trained are kept in memory.
+   * @param modelName
+   * @throws IOException
+   */
+  private void runShardTrainers(String modelName)
+      throws IOException {
+
+    int threads = OneVsRestTrainer.isDeterministic(this.getParameter().getSolverType())
+        ? GlobalConfig.getInt(ConfigKeys.TRAINER_SOLVER_THREADS, 1) : 1;
+    System.out.println(
+        "Train shards: " + this.modelShards.getShardCnt() + " with threads: " + threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      // the tasks return nothing, so that the model of a shard is not kept after it is saved
+      List<Future<?>> results = new ArrayList<>();
+      for (int shard = 0; shard < this.modelShards.getShardCnt(); shard++) {
+        String shardModelName = this.modelShards.getShardModelName(modelName, shard);
+        int shardIndex = shard;
+        results.add(executor.submit(() -> {
+          CompactProblem shardProblemStore = this.problemStores[shardIndex];
+          System.out.println("Train shard " + shardModelName
+              + " with instances: " + shardProblemStore.getInstanceCnt());
+          // the compact store is released while the liblinear problem is created
+          Problem problem = shardProblemStore.toLiblinearProblem(this.getBias(), true);
+          this.problemStores[shardIndex] = null;
+          Model model = Linear.train(problem, this.getParameter());
+          saveModel(model, shardModelName);
+          return null;
+        }));
+      }
+      for (Future<?> oneResult : results) {
+        getResult(oneResult);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
 
-    String modelFileName = GlobalConfig.getModelBuildFolder().resolve(
-        this.modelConfig.getModelName().split("\\.conll")[0] + ".txt").toString();
+  private static void saveModel(Model model, String modelName)
+      throws IOException {
+
+    String modelFileName =
+        GlobalConfig.getModelBuildFolder().resolve(modelName + ".txt").toString();
     System.out.println("Save  model file: " + modelFileName);
-    time1 = System.currentTimeMillis();
+    long time1 = System.currentTimeMillis();
     model.save(new File(modelFileName));
-    time2 = System.currentTimeMillis();
+    long time2 = System.currentTimeMillis();
     System.out.println("System time (msec): " + (time2 - time1));
   }
 
 
   /**
-   * Main pipeline for training a liblinear model from a training file with conll encoded labeled
-   * examples.
-   * @param sourceFileName
-   * @param max
+   * Waits for the result of the given task. A runtime exception of the task is passed on as it
+   * is, any other exception is re-thrown as IOException.
+   *
+   * @param future
+   * @return the result
    * @throws IOException
    */
-  //TODO: currently runs only a single training file
-  public void trainFromConllTrainingFilesInMemory(
-      List<String> trainingFileNames, int max, int wordFormIndex, int tagIndex)
+  static <T> T getResult(Future<T> future)
       throws IOException {
 
-    long time1;
-    long time2;
-
-    boolean train = true;
-    boolean adjust = true;
-    System.out.println("Train?: " + train + " Adjust?: " + adjust);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
 
-    this.createTrainingInstancesFromConllReader(trainingFileNames, max, wordFormIndex, tagIndex);
 
-    this.offSets = new OffSets(
-        this.getAlphabet(), this.getData(), this.modelConfig.getInt(ConfigKeys.WINDOW_SIZE));
-
-    System.out.println("Offsets: " + this.getOffSets().toString());
-    System.out.println("Sentences: " + this.getData().getSentenceCnt());
-    System.out.println("Feature instances size: " + this.getOffSets().getWindowVectorSize());
-    System.out.println("Training instances: " + Window.getWindowCnt());
+  // Constructs the training problem and trains the liblinear model
+  private void constructProblemAndTrain(
+      List<String> trainingFileNames, int max, int wordFormIndex, int tagIndex,
+      boolean streaming, boolean train, boolean adjust)
+      throws IOException {
 
-    // Construct training problem
-    System.out.println("Construct problem:");
-    time1 = System.currentTimeMillis();
-    this.constructProblem(train, adjust);
-    time2 = System.currentTimeMillis();
-    System.out.println("System time (msec): " + (time2 - time1));
+    long time1;
+    long time2;
 
-    System.out.println(
-        "Average window vector lenght: " + ProblemInstance.getCumLength() / Window.getWindowCnt());
-    System.out.println("Approx. GB needed: "
-        + ((ProblemInstance.getCumLength() / Window.getWindowCnt()) * Window.getWindowCnt() * 8
-            + Window.getWindowCnt())
-            / 1000000000.0);
+    this.constructTrainingProblem(
+        trainingFileNames, max, wordFormIndex, tagIndex, streaming, train, adjust);
 
     // Do learning
     /*
@@ -517,26 +1162,195 @@ public class TrainerInMem {
       time2 = System.currentTimeMillis();
       System.out.println("Complete time for training and writing model (msec): " + (time2 - time1));
     }
+  }
 
-    // pack all files in model build folder
-    Files.walkFileTree(GlobalConfig.getModelBuildFolder(), new SimpleFileVisitor<Path>() {
 
-      @Override
-      public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
+  // Constructs the training problem, streaming from the training files or from the windows
+  private void constructTrainingProblem(
+      List<String> trainingFileNames, int max, int wordFormIndex, int tagIndex,
+      boolean streaming, boolean train, boolean adjust)
+      throws IOException {
 
-        if (!attrs.isDirectory()) {
-          System.out.println(" add to archive: " + path);
-          getArchivator().getFilesToPack().add(path);
-        }
-        return FileVisitResult.CONTINUE;
+    // Construct training problem
+    System.out.println("Construct problem:");
+    long time1 = System.currentTimeMillis();
+    if (streaming) {
+      this.constructProblemFromConllReader(
+          trainingFileNames, max, wordFormIndex, tagIndex, train, adjust);
+    } else {
+      this.constructProblem(train, adjust);
+    }
+    long time2 = System.currentTimeMillis();
+    System.out.println("System time (msec): " + (time2 - time1));
+
+    System.out.println("Average window vector lenght: "
+        + this.getProblemFeatureCnt() / this.getProblemInstanceCnt());
+    System.out.println(
+        "Approx. GB needed: " + this.getProblemMemorySize() / 1000000000.0);
+  }
+
+
+  /**
+   * Constructs the training problem from the training files without training a model. This way,
+   * several models can be trained with different parameters on the same problem, e.g. in a
+   * hyperparameter search. The label and word sets are saved in the model build folder, as when
+   * training.
+   * @param trainingFileNames
+   * @param max
+   * @param wordFormIndex
+   * @param tagIndex
+   * @return the liblinear problem
+   * @throws IOException
+   */
+  public Problem createLiblinearProblem(
+      List<String> trainingFileNames, int max, int wordFormIndex, int tagIndex)
+      throws IOException {
+
+    if (ModelShards.isSharded(this.modelConfig)) {
+      throw new IllegalArgumentException(
+          " Message from GNT: no single liblinear problem is created for a sharded model");
+    }
+    boolean streaming = GlobalConfig.getBoolean(ConfigKeys.TRAINER_STREAMING, false);
+    this.collectTrainingData(
+        trainingFileNames, max, wordFormIndex, tagIndex, streaming, false);
+    this.constructTrainingProblem(
+        trainingFileNames, max, wordFormIndex, tagIndex, streaming, true, true);
+    this.checkProblem();
+    // the compact store is released while the liblinear problem is created
+    Problem problem = this.problemStores[0].toLiblinearProblem(this.getBias(), true);
+    this.problemStores[0] = null;
+    return problem;
+  }
+
+
+  /**
+   * First pass over the training files: collects the label and word sets and counts the
+   * training instances, creates the shards and the offsets.
+   * @param trainingFileNames
+   * @param max
+   * @param wordFormIndex
+   * @param tagIndex
+   * @param streaming
+   *          if false, the windows of all training instances are created
+   * @param warmStart
+   *          if true, the label set of the model trained further is kept
+   * @throws IOException
+   */
+  private void collectTrainingData(
+      List<String> trainingFileNames, int max, int wordFormIndex, int tagIndex,
+      boolean streaming, boolean warmStart)
+      throws IOException {
+
+    if (warmStart) {
+      this.collectWordsFromConllReader(trainingFileNames, max, wordFormIndex);
+    } else if (streaming) {
+      this.collectLabelsFromConllReader(trainingFileNames, max, wordFormIndex, tagIndex);
+    } else {
+      this.createTrainingInstancesFromConllReader(
+          trainingFileNames, max, wordFormIndex, tagIndex);
+    }
+    this.initShards();
+
+    this.offSets = new OffSets(
+        this.getAlphabet(), this.getData(), this.modelConfig.getInt(ConfigKeys.WINDOW_SIZE));
+
+    System.out.println("Offsets: " + this.getOffSets().toString());
+    System.out.println("Sentences: " + this.getData().getSentenceCnt());
+    System.out.println("Feature instances size: " + this.getOffSets().getWindowVectorSize());
+    System.out.println("Training instances: " + this.instanceCnt);
+  }
+
+
+  /**
+   * Main pipeline for training a liblinear model from a training file with conll encoded labeled
+   * examples.
+   * @param sourceFileName
+   * @param max
+   * @throws IOException
+   */
+  //TODO: currently runs only a single training file
+  public void trainFromConllTrainingFilesInMemory(
+      List<String> trainingFileNames, int max, int wordFormIndex, int tagIndex)
+      throws IOException {
+
+    long time1;
+    long time2;
+
+    boolean train = true;
+    boolean adjust = true;
+    boolean streaming = GlobalConfig.getBoolean(ConfigKeys.TRAINER_STREAMING, false);
+    boolean perceptron = PerceptronTrainer.isPerceptron(this.modelConfig);
+    boolean hogwild = HogwildTrainer.isHogwild(this.modelConfig);
+    String warmStartModelName = this.modelConfig.getString(ConfigKeys.WARM_START_MODEL, null);
+    System.out.println("Train?: " + train + " Adjust?: " + adjust + " Streaming?: " + streaming);
+    if (perceptron || hogwild) {
+      if (ModelShards.isSharded(this.modelConfig)
+          || GlobalConfig.getBoolean(ConfigKeys.CREATE_LIBLINEAR_INPUT_FILE)) {
+        throw new IllegalArgumentException(" Message from GNT: the online trainers can not"
+            + " train a sharded model or create a liblinear input file");
       }
-    });
+    }
+    if (!perceptron && (null != warmStartModelName)) {
+      throw new IllegalArgumentException(
+          " Message from GNT: only the averaged perceptron can train an existing model further");
+    }
+    if (ModelShards.isSharded(this.modelConfig)) {
+      if (!this.alphabet.isWithClusterFeats()) {
+        throw new IllegalArgumentException(
+            " Message from GNT: a sharded model needs cluster features");
+      }
+      if (GlobalConfig.getBoolean(ConfigKeys.CREATE_LIBLINEAR_INPUT_FILE)) {
+        throw new IllegalArgumentException(
+            " Message from GNT: no liblinear input file can be created for a sharded model");
+      }
+    }
+
+    this.collectTrainingData(trainingFileNames, max, wordFormIndex, tagIndex,
+        streaming || perceptron || hogwild, perceptron && (null != warmStartModelName));
+
+    if (perceptron) {
+      time1 = System.currentTimeMillis();
+      this.runPerceptronTrainer(
+          trainingFileNames, max, wordFormIndex, tagIndex, warmStartModelName);
+      time2 = System.currentTimeMillis();
+      System.out.println("Complete time for training and writing model (msec): " + (time2 - time1));
+    } else if (hogwild) {
+      time1 = System.currentTimeMillis();
+      this.runHogwildTrainer(trainingFileNames, max, wordFormIndex, tagIndex, train, adjust);
+      time2 = System.currentTimeMillis();
+      System.out.println("Complete time for training and writing model (msec): " + (time2 - time1));
+    } else {
+      this.constructProblemAndTrain(
+          trainingFileNames, max, wordFormIndex, tagIndex, streaming, train, adjust);
+    }
+
+    // pack all files in model build folder
+    this.getArchivator().addFilesToPack(GlobalConfig.getModelBuildFolder());
     this.getArchivator().pack();
     System.out.println("Pack archive: " + this.getArchivator().getArchiveName());
     System.out.println("... Done!");
   }
 
 
+  /**
+   * Handles the tokens of a sentence read from a conll file.
+   */
+  private interface SentenceHandler {
+
+    void handle(List<String[]> tokens)
+        throws IOException;
+  }
+
+
+  /**
+   * Handles the label and the features of a filled window.
+   */
+  private interface WindowHandler {
+
+    void handle(int labelIndex, FeatureBuffer windowFeatures);
+  }
+
+
   // Printing helpers
   public String taggedSentenceToString(Sentence sentence) {
 
@@ -92,11 +92,12 @@ public class TestGNT {
   private void testEval()
       throws IOException, ConfigurationException {
 
-    GNTagger tagger = new GNTagger(
+    try (GNTagger tagger = new GNTagger(
         // load model from file system and not classpath
         GlobalConfig.getPath(ConfigKeys.MODEL_OUTPUT_FOLDER)
-            .resolve("model_ENPOS_2_0iw-1sent_FTTTF_MCSVM_CS.zip").toString());
-    tagger.eval("src/test/resources/EnPosTagger.corpus.conf");
+            .resolve("model_ENPOS_2_0iw-1sent_FTTTF_MCSVM_CS.zip").toString())) {
+      tagger.eval("src/test/resources/EnPosTagger.corpus.conf");
+    }
 
     List<Path> evalFiles =
         Utils.getAllFilesFromFolder(GlobalConfig.getPath(ConfigKeys.EVAL_FOLDER), "*");
@@ -116,11 +117,12 @@ public class TestGNT {
   private void testTag()
       throws IOException, ConfigurationException {
 
-    GNTagger tagger = new GNTagger(
+    try (GNTagger tagger = new GNTagger(
         // load model from file system and not classpath
         GlobalConfig.getPath(ConfigKeys.MODEL_OUTPUT_FOLDER)
-            .resolve("model_ENPOS_2_0iw-1sent_FTTTF_MCSVM_CS.zip").toString());
-    tagger.tagFolder("src/test/resources/input", "UTF-8", "UTF-8");
+            .resolve("model_ENPOS_2_0iw-1sent_FTTTF_MCSVM_CS.zip").toString())) {
+      tagger.tagFolder("src/test/resources/input", "UTF-8", "UTF-8");
+    }
 
     List<Path> taggedFiles =
         Utils.getAllFilesFromFolder(Paths.get("src/test/resources/input"), "*.GNT");
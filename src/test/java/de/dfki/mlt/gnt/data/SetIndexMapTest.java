@@ -0,0 +1,112 @@
+package de.dfki.mlt.gnt.data;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for {@link SetIndexMap}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class SetIndexMapTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+
+  @Test
+  public void testAddLabelWithResize() {
+
+    SetIndexMap map = new SetIndexMap();
+    Map<String, Integer> label2index = new HashMap<>();
+    // far more labels than the initial capacity, added twice
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < 5000; i++) {
+        String label = "label" + (i % 2500);
+        Integer expected = label2index.computeIfAbsent(label, k -> label2index.size() + 1);
+        assertThat(map.addLabel(label)).isEqualTo(expected);
+      }
+    }
+
+    assertThat(map.size()).isEqualTo(2500);
+    for (Map.Entry<String, Integer> oneEntry : label2index.entrySet()) {
+      assertThat(map.getIndex(oneEntry.getKey())).isEqualTo(oneEntry.getValue());
+      assertThat(map.getLabel(oneEntry.getValue())).isEqualTo(oneEntry.getKey());
+    }
+    assertThat(map.getIndex("unknown")).isEqualTo(-1);
+    assertThat(map.getLabel(0)).isNull();
+    assertThat(map.getLabel(2501)).isNull();
+  }
+
+
+  @Test
+  public void testNullLabel() {
+
+    SetIndexMap map = new SetIndexMap();
+    assertThat(map.getIndex(null)).isEqualTo(-1);
+    assertThat(map.addLabel("NN")).isEqualTo(1);
+    assertThat(map.addLabel(null)).isEqualTo(2);
+    assertThat(map.addLabel(null)).isEqualTo(2);
+    for (int i = 0; i < 100; i++) {
+      map.addLabel("label" + i);
+    }
+    assertThat(map.getIndex(null)).isEqualTo(2);
+    assertThat(map.getLabel(2)).isNull();
+    assertThat(map.getIndex("NN")).isEqualTo(1);
+    assertThat(map.size()).isEqualTo(102);
+  }
+
+
+  @Test
+  public void testWriteAndRead()
+      throws IOException {
+
+    SetIndexMap map = new SetIndexMap();
+    for (String oneLabel : new String[] { "DT", "NN", "VBZ", "ÄÖÜ" }) {
+      map.addLabel(oneLabel);
+    }
+    Path labelPath = this.tempFolder.getRoot().toPath().resolve("labels").resolve("labelSet.txt");
+    map.write(labelPath);
+    assertThat(Files.readAllLines(labelPath, StandardCharsets.UTF_8))
+        .containsExactly("DT", "NN", "VBZ", "ÄÖÜ");
+
+    SetIndexMap readMap = new SetIndexMap();
+    readMap.readFromPath(labelPath);
+    assertThat(readMap.size()).isEqualTo(4);
+    assertThat(readMap.getIndex("ÄÖÜ")).isEqualTo(4);
+    assertThat(readMap.getLabel(1)).isEqualTo("DT");
+
+    readMap.clean();
+    assertThat(readMap.size()).isEqualTo(0);
+    assertThat(readMap.getIndex("DT")).isEqualTo(-1);
+    assertThat(readMap.addLabel("NN")).isEqualTo(1);
+  }
+
+
+  @Test
+  public void testReadDuplicateLabels()
+      throws IOException {
+
+    // a label read twice gets its last index, but its first index still has the label
+    Path labelPath = this.tempFolder.newFile("labelSet.txt").toPath();
+    Files.write(labelPath, Arrays.asList("a", "b", "a"), StandardCharsets.UTF_8);
+    SetIndexMap map = new SetIndexMap();
+    map.readFromPath(labelPath);
+    assertThat(map.size()).isEqualTo(3);
+    assertThat(map.getIndex("a")).isEqualTo(3);
+    assertThat(map.getIndex("b")).isEqualTo(2);
+    assertThat(map.getLabel(1)).isEqualTo("a");
+    assertThat(map.getLabel(3)).isEqualTo("a");
+  }
+}
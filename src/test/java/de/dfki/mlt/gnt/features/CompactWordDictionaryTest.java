@@ -0,0 +1,84 @@
+package de.dfki.mlt.gnt.features;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link CompactWordDictionary}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class CompactWordDictionaryTest {
+
+  @Test
+  public void testDigitNormalization() {
+
+    String[] words = { "the", "0", "00", "0.0", "A0-0", "year0000", "<RARE>", "٣", "Ab" };
+    Map<String, Integer> word2index = new HashMap<>();
+    CompactWordDictionary dictionary = new CompactWordDictionary();
+    for (int i = 0; i < words.length; i++) {
+      word2index.put(words[i], i + 1);
+      dictionary.put(words[i], i + 1);
+    }
+    dictionary.trimToSize();
+    assertThat(dictionary.size()).isEqualTo(words.length);
+
+    String[] lookups = { "the", "The", "7", "42", "3.5", "A1-9", "year1999", "year199",
+        "٣", "٤", "Ab", "", "<RARE>" };
+    for (String oneLookup : lookups) {
+      Integer expected = word2index.get(oneLookup.replaceAll("\\d", "0"));
+      assertThat(dictionary.get(oneLookup, true))
+          .as(oneLookup)
+          .isEqualTo((null == expected) ? CompactWordDictionary.NO_VALUE : expected);
+    }
+    // without normalization, only the word itself is found
+    assertThat(dictionary.get("7", false)).isEqualTo(CompactWordDictionary.NO_VALUE);
+    assertThat(dictionary.get("0", false)).isEqualTo(2);
+  }
+
+
+  @Test
+  public void testAgainstHashMap() {
+
+    Random random = new Random(42);
+    Map<String, Integer> word2index = new HashMap<>();
+    CompactWordDictionary dictionary = new CompactWordDictionary();
+    for (int i = 0; i < 100000; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = 1 + random.nextInt(8);
+      for (int j = 0; j < length; j++) {
+        word.append((char)('a' + random.nextInt(6)));
+      }
+      // words added again get the new value
+      word2index.put(word.toString(), i);
+      dictionary.put(word.toString(), i);
+    }
+    dictionary.trimToSize();
+
+    assertThat(dictionary.size()).isEqualTo(word2index.size());
+    for (Map.Entry<String, Integer> oneEntry : word2index.entrySet()) {
+      assertThat(dictionary.get(oneEntry.getKey(), false)).isEqualTo(oneEntry.getValue());
+    }
+    assertThat(dictionary.get("z", false)).isEqualTo(CompactWordDictionary.NO_VALUE);
+  }
+
+
+  @Test
+  public void testPutAfterTrimmingEmptyDictionary() {
+
+    CompactWordDictionary dictionary = new CompactWordDictionary();
+    dictionary.trimToSize();
+    assertThat(dictionary.get("word", false)).isEqualTo(CompactWordDictionary.NO_VALUE);
+
+    dictionary.put("word", 1);
+    dictionary.trimToSize();
+    dictionary.put("other", 2);
+    assertThat(dictionary.get("word", false)).isEqualTo(1);
+    assertThat(dictionary.get("other", false)).isEqualTo(2);
+  }
+}
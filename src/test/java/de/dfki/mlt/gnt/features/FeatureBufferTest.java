@@ -0,0 +1,101 @@
+package de.dfki.mlt.gnt.features;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link FeatureBuffer}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class FeatureBufferTest {
+
+  @Test
+  public void testSortAndMergeByIndex() {
+
+    FeatureBuffer features = new FeatureBuffer(4);
+    features.add(7, 1);
+    features.add(Integer.MAX_VALUE, 0.5);
+    features.add(3, 2);
+    features.add(7, -1);
+    features.add(1, 0.25);
+    features.add(7, 3);
+    features.sortAndMergeByIndex();
+
+    assertThat(features.size()).isEqualTo(4);
+    assertThat(getIndices(features)).containsExactly(1, 3, 7, Integer.MAX_VALUE);
+    assertThat(getValues(features)).containsExactly(0.25, 2.0, 3.0, 0.5);
+
+    features.clear();
+    features.sortAndMergeByIndex();
+    assertThat(features.size()).isEqualTo(0);
+  }
+
+
+  @Test
+  public void testSortAndMergeAgainstTreeMap() {
+
+    Random random = new Random(42);
+    // the buffer is reused with growing sizes, as for the windows of a sentence
+    FeatureBuffer features = new FeatureBuffer();
+    for (int round = 0; round < 200; round++) {
+      features.clear();
+      Map<Integer, Double> expected = new TreeMap<>();
+      int size = random.nextInt(5 * round + 1);
+      int maxIndex = 1 + random.nextInt(2 * size + 1);
+      for (int i = 0; i < size; i++) {
+        int index = 1 + random.nextInt(maxIndex);
+        double value = random.nextDouble();
+        features.add(index, value);
+        // the values of an index are added in the order of the features
+        expected.merge(index, value, Double::sum);
+      }
+      features.sortAndMergeByIndex();
+
+      assertThat(getIndices(features)).containsExactlyElementsOf(expected.keySet());
+      assertThat(getValues(features)).containsExactlyElementsOf(expected.values());
+    }
+  }
+
+
+  @Test
+  public void testSortByIndex() {
+
+    FeatureBuffer features = new FeatureBuffer();
+    int[] indices = { 9, 5, 8, 2, 5, 1 };
+    for (int i = 0; i < indices.length; i++) {
+      features.add(indices[i], i);
+    }
+    // only the features 1 ... 4 are sorted, equal indices keep their order
+    features.sortByIndex(1, 5);
+    assertThat(getIndices(features)).containsExactly(9, 2, 5, 5, 8, 1);
+    assertThat(getValues(features)).containsExactly(0.0, 3.0, 1.0, 4.0, 2.0, 5.0);
+  }
+
+
+  private static List<Integer> getIndices(FeatureBuffer features) {
+
+    List<Integer> indices = new ArrayList<>();
+    for (int i = 0; i < features.size(); i++) {
+      indices.add(features.getIndex(i));
+    }
+    return indices;
+  }
+
+
+  private static List<Double> getValues(FeatureBuffer features) {
+
+    List<Double> values = new ArrayList<>();
+    for (int i = 0; i < features.size(); i++) {
+      values.add(features.getValue(i));
+    }
+    return values;
+  }
+}
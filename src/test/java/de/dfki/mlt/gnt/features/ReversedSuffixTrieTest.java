@@ -0,0 +1,107 @@
+package de.dfki.mlt.gnt.features;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link ReversedSuffixTrie}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class ReversedSuffixTrieTest {
+
+  @Test
+  public void testSuffixFeatures() {
+
+    Map<String, Integer> suffix2num = new HashMap<>();
+    suffix2num.put("s", 1);
+    suffix2num.put("es", 3);
+    suffix2num.put("ies", 2);
+    suffix2num.put("ing", 4);
+    ReversedSuffixTrie trie = new ReversedSuffixTrie(suffix2num);
+    // root, g, s, gn, se, gni, sei
+    assertThat(trie.getNodeCnt()).isEqualTo(7);
+
+    FeatureBuffer features = new FeatureBuffer();
+    features.add(1, 0.5);
+    assertThat(trie.addSuffixFeatures("flies", 10, features)).isEqualTo(3);
+    assertThat(getIndices(features)).containsExactly(1, 11, 12, 13);
+    assertThat(features.getValue(1)).isEqualTo(1.0);
+
+    features.clear();
+    assertThat(trie.addSuffixFeatures("ring", 0, features)).isEqualTo(1);
+    assertThat(getIndices(features)).containsExactly(4);
+    assertThat(trie.addSuffixFeatures("ng", 0, features)).isEqualTo(0);
+    assertThat(trie.addSuffixFeatures("", 0, features)).isEqualTo(0);
+    assertThat(getIndices(features)).containsExactly(4);
+  }
+
+
+  @Test
+  public void testEmptyTrie() {
+
+    ReversedSuffixTrie trie = new ReversedSuffixTrie(new HashMap<>());
+    assertThat(trie.getNodeCnt()).isEqualTo(1);
+    FeatureBuffer features = new FeatureBuffer();
+    assertThat(trie.addSuffixFeatures("word", 0, features)).isEqualTo(0);
+    assertThat(features.size()).isEqualTo(0);
+  }
+
+
+  @Test
+  public void testAgainstKnownSubstringsForWord() {
+
+    // includes the two chars of a surrogate pair, which the trie walks char by char
+    String alphabet = "abcé😀";
+    Random random = new Random(42);
+    WordSuffixFeatureFactory factory = new WordSuffixFeatureFactory();
+    Map<String, Integer> suffix2num = new HashMap<>();
+    for (int i = 0; i < 2000; i++) {
+      String suffix = createWord(random, alphabet, 1 + random.nextInt(6));
+      if (!suffix2num.containsKey(suffix)) {
+        suffix2num.put(suffix, suffix2num.size() + 1);
+      }
+    }
+    factory.setSuffix2num(suffix2num);
+    ReversedSuffixTrie trie = new ReversedSuffixTrie(suffix2num);
+
+    FeatureBuffer features = new FeatureBuffer();
+    for (int i = 0; i < 10000; i++) {
+      String word = createWord(random, alphabet, random.nextInt(10));
+      List<Integer> expected = new ArrayList<>();
+      for (int oneIndex : factory.getAllKnownSubstringsForWord(word)) {
+        expected.add(100 + oneIndex);
+      }
+      features.clear();
+      assertThat(trie.addSuffixFeatures(word, 100, features)).isEqualTo(expected.size());
+      assertThat(getIndices(features)).as(word).isEqualTo(expected);
+    }
+  }
+
+
+  private static String createWord(Random random, String alphabet, int length) {
+
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return word.toString();
+  }
+
+
+  private static List<Integer> getIndices(FeatureBuffer features) {
+
+    List<Integer> indices = new ArrayList<>();
+    for (int i = 0; i < features.size(); i++) {
+      indices.add(features.getIndex(i));
+    }
+    return indices;
+  }
+}
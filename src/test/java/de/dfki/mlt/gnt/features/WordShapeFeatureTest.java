@@ -0,0 +1,143 @@
+package de.dfki.mlt.gnt.features;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link WordShapeFeature} and the shape lookup of
+ * {@link WordShapeFeatureFactory}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class WordShapeFeatureTest {
+
+  private static final String[] WORDS = {
+      "the", "The", "THE", "IBM", "McDonald", "!ibmkll", "!IBM", "1980s", "A4", "well-known",
+      "-", "--", "3-4", "Über", "ǅemal", "ǅ", "ß", "١٩٨٠", "٣-A", ".", ",", "'s", "e-Mail", "x1" };
+
+
+  @Test
+  public void testAgainstOldSignature() {
+
+    for (String oneWord : WORDS) {
+      for (int wordIndex = 0; wordIndex < 2; wordIndex++) {
+        assertSameSignature(oneWord, wordIndex);
+      }
+    }
+    Random random = new Random(42);
+    String alphabet = "aZ-1!ǅéÉ٣.";
+    for (int i = 0; i < 10000; i++) {
+      StringBuilder word = new StringBuilder();
+      int length = 1 + random.nextInt(6);
+      for (int j = 0; j < length; j++) {
+        word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      assertSameSignature(word.toString(), random.nextInt(3));
+    }
+  }
+
+
+  @Test
+  public void testToShapeMask() {
+
+    assertThat(WordShapeFeature.toShapeMask("0000000000000000")).isEqualTo(0);
+    assertThat(WordShapeFeature.toShapeMask("1000000000000001")).isEqualTo(0x8001);
+    assertThat(WordShapeFeature.toSignature(0x8001)).isEqualTo("1000000000000001");
+    assertThat(WordShapeFeature.toShapeMask("")).isEqualTo(-1);
+    assertThat(WordShapeFeature.toShapeMask("000000000000000")).isEqualTo(-1);
+    assertThat(WordShapeFeature.toShapeMask("00000000000000000")).isEqualTo(-1);
+    assertThat(WordShapeFeature.toShapeMask("0000000000000002")).isEqualTo(-1);
+  }
+
+
+  @Test
+  public void testShapeFeatureLookup() {
+
+    Map<String, Integer> signature2index = new HashMap<>();
+    signature2index.put(oldSignature("the", 1), 1);
+    signature2index.put(oldSignature("The", 0), 2);
+    signature2index.put(oldSignature("IBM", 1), 3);
+    // not a signature, ignored by the lookup
+    signature2index.put("<UNKNOWN>", 4);
+    WordShapeFeatureFactory factory = new WordShapeFeatureFactory();
+    factory.setSignature2index(signature2index);
+
+    assertThat(factory.getShapeFeature("dog", 3)).isEqualTo(1);
+    assertThat(factory.getShapeFeature("Dog", 0)).isEqualTo(2);
+    assertThat(factory.getShapeFeature("Dog", 3)).isEqualTo(3);
+    assertThat(factory.getShapeFeature("1980s", 3)).isEqualTo(-1);
+
+    signature2index.put(oldSignature("1980s", 1), 0);
+    assertThatThrownBy(() -> factory.setSignature2index(signature2index))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+
+  private static void assertSameSignature(String word, int wordIndex) {
+
+    String expected = oldSignature(word, wordIndex);
+    int shapeMask = WordShapeFeature.computeShapeMask(word, wordIndex);
+    assertThat(WordShapeFeature.toSignature(shapeMask)).as(word).isEqualTo(expected);
+    assertThat(WordShapeFeature.toShapeMask(expected)).as(word).isEqualTo(shapeMask);
+    assertThat(new WordShapeFeature(word, wordIndex).toString()).as(word).isEqualTo(expected);
+  }
+
+
+  // the signature as created by WordShapeFeature before the signature was computed as bit mask,
+  // with the bits in the order of WordShapeFeature.MorphFeature
+  private static String oldSignature(String word, int wordIndex) {
+
+    char[] bits = "0000000000000000".toCharArray();
+    int numCaps = 0;
+    boolean hasDigit = false;
+    boolean hasDash = false;
+    boolean hasLower = false;
+    for (int i = 0; i < word.length(); i++) {
+      char ch = word.charAt(i);
+      if (Character.isDigit(ch)) {
+        hasDigit = true;
+      } else if ((ch == '-')) {
+        hasDash = true;
+      } else if (Character.isLetter(ch)) {
+        if (Character.isLowerCase(ch)) {
+          hasLower = true;
+        } else if (Character.isTitleCase(ch)) {
+          hasLower = true;
+          numCaps++;
+        } else {
+          numCaps++;
+        }
+      }
+    }
+    char ch0 = word.charAt(0);
+    if (Character.isUpperCase(ch0) || Character.isTitleCase(ch0)) {
+      if (wordIndex == 0 && numCaps == 1) {
+        // INIT_CAP
+        bits[3] = '1';
+      } else {
+        // ALL_CAPS
+        bits[0] = '1';
+      }
+    } else if (!Character.isLetter(ch0) && numCaps > 0) {
+      bits[0] = '1';
+    } else if (hasLower) {
+      // LOWER_CASE
+      bits[5] = '1';
+    }
+    if (hasDigit) {
+      // HAS_DIGIT
+      bits[2] = '1';
+    }
+    if (hasDash) {
+      // HAS_DASH
+      bits[1] = '1';
+    }
+    return new String(bits);
+  }
+}
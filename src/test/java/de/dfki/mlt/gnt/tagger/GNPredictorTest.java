@@ -0,0 +1,190 @@
+package de.dfki.mlt.gnt.tagger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.bwaldvogel.liblinear.Feature;
+import de.bwaldvogel.liblinear.FeatureNode;
+import de.bwaldvogel.liblinear.Linear;
+import de.bwaldvogel.liblinear.Model;
+import de.bwaldvogel.liblinear.Parameter;
+import de.bwaldvogel.liblinear.Problem;
+import de.bwaldvogel.liblinear.SolverType;
+import de.dfki.mlt.gnt.archive.CompressedModel;
+import de.dfki.mlt.gnt.features.FeatureBuffer;
+
+/**
+ * Test class for {@link GNPredictor}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class GNPredictorTest {
+
+  private static final int NR_FEATURE = 200;
+
+
+  @BeforeClass
+  public static void setUp() {
+
+    Linear.disableDebugOutput();
+  }
+
+
+  @Test
+  public void testMulticlassModels()
+      throws IOException {
+
+    for (SolverType oneSolverType : new SolverType[] {
+        SolverType.MCSVM_CS, SolverType.L2R_LR, SolverType.L2R_L2LOSS_SVC_DUAL }) {
+      Model model = trainModel(oneSolverType, 4);
+      assertThat(model.getNrClass()).isEqualTo(4);
+      assertSamePredictions(model);
+    }
+  }
+
+
+  @Test
+  public void testBinaryModels()
+      throws IOException {
+
+    // all solvers but MCSVM_CS have a single weight per feature for 2 classes
+    for (SolverType oneSolverType : new SolverType[] {
+        SolverType.MCSVM_CS, SolverType.L2R_LR, SolverType.L2R_L2LOSS_SVC }) {
+      Model model = trainModel(oneSolverType, 2);
+      assertThat(model.getNrClass()).isEqualTo(2);
+      assertThat(new GNPredictor(model).getNrW())
+          .isEqualTo((oneSolverType == SolverType.MCSVM_CS) ? 2 : 1);
+      assertSamePredictions(model);
+    }
+  }
+
+
+  @Test
+  public void testQuantizedModels() {
+
+    Model model = trainModel(SolverType.MCSVM_CS, 4);
+    Random random = new Random(7);
+    for (int bits : new int[] { 8, 16 }) {
+      CompressedModel compressed = CompressedModel.compress(model, bits);
+      GNPredictor predictor = new GNPredictor(compressed);
+      // the same weights, dequantized
+      GNPredictor densePredictor = new GNPredictor(compressed.getLabels(),
+          compressed.getNrFeature(), compressed.getBias(),
+          DoubleBuffer.wrap(compressed.toDenseWeights()));
+      double[] decValues = new double[predictor.getNrW()];
+      double[] denseDecValues = new double[predictor.getNrW()];
+      for (int i = 0; i < 500; i++) {
+        FeatureBuffer features = createInstance(random, NR_FEATURE + 10);
+        int label = predictor.predict(features, decValues);
+        int denseLabel = densePredictor.predict(features, denseDecValues);
+        for (int j = 0; j < decValues.length; j++) {
+          assertThat(decValues[j]).isCloseTo(denseDecValues[j], within(1e-9));
+        }
+        if (getTopTwoGap(denseDecValues) > 1e-6) {
+          assertThat(label).isEqualTo(denseLabel);
+        }
+      }
+    }
+  }
+
+
+  // compares the dense and the compressed predictor, unquantized and written and read again,
+  // with Linear.predict(); the test instances also have features not seen in training
+  private static void assertSamePredictions(Model model)
+      throws IOException {
+
+    GNPredictor densePredictor = new GNPredictor(model);
+    CompressedModel compressed = CompressedModel.compress(model, 0);
+    GNPredictor compressedPredictor = new GNPredictor(compressed);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    compressed.write(out);
+    GNPredictor readPredictor =
+        new GNPredictor(CompressedModel.read(new ByteArrayInputStream(out.toByteArray())));
+
+    Random random = new Random(11);
+    double[] decValues = new double[densePredictor.getNrW()];
+    for (int i = 0; i < 1000; i++) {
+      FeatureBuffer features = createInstance(random, NR_FEATURE + 10);
+      int expected = (int)Linear.predict(model, toFeatureNodes(features));
+      assertThat(densePredictor.predict(features, decValues)).isEqualTo(expected);
+      assertThat(compressedPredictor.predict(features, decValues)).isEqualTo(expected);
+      assertThat(readPredictor.predict(features, decValues)).isEqualTo(expected);
+    }
+  }
+
+
+  // trains a model on random instances whose label depends on a few of their features
+  private static Model trainModel(SolverType solverType, int nrClass) {
+
+    Random random = new Random(42);
+    Problem problem = new Problem();
+    problem.l = 400;
+    problem.n = NR_FEATURE;
+    problem.bias = -1;
+    problem.x = new Feature[problem.l][];
+    problem.y = new double[problem.l];
+    for (int i = 0; i < problem.l; i++) {
+      FeatureBuffer features = createInstance(random, NR_FEATURE);
+      problem.x[i] = toFeatureNodes(features);
+      int label = 1 + (features.getIndex(0) % nrClass);
+      // some noise, so that not all weights are the same
+      if (random.nextInt(10) == 0) {
+        label = 1 + random.nextInt(nrClass);
+      }
+      problem.y[i] = label;
+    }
+    return Linear.train(problem, new Parameter(solverType, 1.0, 0.01));
+  }
+
+
+  // an instance with 5 to 15 different features in ascending order of their index
+  private static FeatureBuffer createInstance(Random random, int maxFeatureIndex) {
+
+    TreeSet<Integer> indices = new TreeSet<>();
+    int size = 5 + random.nextInt(11);
+    while (indices.size() < size) {
+      indices.add(1 + random.nextInt(maxFeatureIndex));
+    }
+    FeatureBuffer features = new FeatureBuffer();
+    for (int oneIndex : indices) {
+      features.add(oneIndex, random.nextBoolean() ? 1.0 : random.nextDouble());
+    }
+    return features;
+  }
+
+
+  private static Feature[] toFeatureNodes(FeatureBuffer features) {
+
+    Feature[] nodes = new Feature[features.size()];
+    for (int i = 0; i < features.size(); i++) {
+      nodes[i] = new FeatureNode(features.getIndex(i), features.getValue(i));
+    }
+    return nodes;
+  }
+
+
+  private static double getTopTwoGap(double[] decValues) {
+
+    double first = Double.NEGATIVE_INFINITY;
+    double second = Double.NEGATIVE_INFINITY;
+    for (double oneValue : decValues) {
+      if (oneValue > first) {
+        second = first;
+        first = oneValue;
+      } else if (oneValue > second) {
+        second = oneValue;
+      }
+    }
+    return first - second;
+  }
+}
@@ -0,0 +1,134 @@
+package de.dfki.mlt.gnt.trainer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.bwaldvogel.liblinear.Feature;
+import de.bwaldvogel.liblinear.FeatureNode;
+import de.bwaldvogel.liblinear.Linear;
+import de.bwaldvogel.liblinear.Model;
+import de.bwaldvogel.liblinear.Parameter;
+import de.bwaldvogel.liblinear.Problem;
+import de.bwaldvogel.liblinear.SolverType;
+
+/**
+ * Test class for {@link OneVsRestTrainer}.
+ *
+ * @author Günter Neumann, DFKI
+ */
+public class OneVsRestTrainerTest {
+
+  private static final int NR_FEATURE = 100;
+
+
+  @BeforeClass
+  public static void setUp() {
+
+    Linear.disableDebugOutput();
+  }
+
+
+  @Test
+  public void testWithoutBias()
+      throws IOException {
+
+    for (SolverType oneSolverType : new SolverType[] {
+        SolverType.L2R_LR, SolverType.L2R_L2LOSS_SVC }) {
+      assertSameModel(createProblem(-1), oneSolverType);
+    }
+  }
+
+
+  @Test
+  public void testWithBias()
+      throws IOException {
+
+    for (SolverType oneSolverType : new SolverType[] {
+        SolverType.L2R_LR, SolverType.L2R_L2LOSS_SVC }) {
+      assertSameModel(createProblem(1), oneSolverType);
+    }
+  }
+
+
+  @Test
+  public void testSequentialCases() {
+
+    Parameter parameter = new Parameter(SolverType.L2R_LR, 1.0, 0.01);
+    assertThat(new OneVsRestTrainer(parameter, 1).isParallel(createProblem(-1))).isFalse();
+    assertThat(new OneVsRestTrainer(new Parameter(SolverType.MCSVM_CS, 1.0, 0.01), 2)
+        .isParallel(createProblem(-1))).isFalse();
+    Problem binaryProblem = createProblem(-1);
+    for (int i = 0; i < binaryProblem.l; i++) {
+      binaryProblem.y[i] = (binaryProblem.y[i] == 1) ? 1 : 2;
+    }
+    assertThat(new OneVsRestTrainer(parameter, 2).isParallel(binaryProblem)).isFalse();
+  }
+
+
+  // compares the model trained in parallel with the one of Linear.train()
+  private static void assertSameModel(Problem problem, SolverType solverType)
+      throws IOException {
+
+    Parameter parameter = new Parameter(solverType, 1.0, 0.01);
+    OneVsRestTrainer trainer = new OneVsRestTrainer(parameter, 3);
+    assertThat(trainer.isParallel(problem)).isTrue();
+    Model parallelModel = trainer.train(problem);
+    Model expectedModel = Linear.train(problem, parameter);
+
+    assertThat(parallelModel.getLabels()).containsExactly(expectedModel.getLabels());
+    assertThat(parallelModel.getNrFeature()).isEqualTo(expectedModel.getNrFeature());
+    assertThat(parallelModel.getBias()).isEqualTo(expectedModel.getBias());
+    double[] parallelWeights = parallelModel.getFeatureWeights();
+    double[] expectedWeights = expectedModel.getFeatureWeights();
+    assertThat(parallelWeights).hasSameSizeAs(expectedWeights);
+    for (int i = 0; i < expectedWeights.length; i++) {
+      assertThat(parallelWeights[i]).isCloseTo(expectedWeights[i], within(1e-6));
+    }
+    for (int i = 0; i < problem.l; i++) {
+      assertThat(Linear.predict(parallelModel, problem.x[i]))
+          .isEqualTo(Linear.predict(expectedModel, problem.x[i]));
+    }
+  }
+
+
+  // a problem with 4 classes, whose label depends on the lowest feature index of each instance;
+  // with a bias >= 0, the bias feature is added as last feature, as expected by liblinear
+  private static Problem createProblem(double bias) {
+
+    Random random = new Random(42);
+    Problem problem = new Problem();
+    problem.l = 300;
+    problem.n = (bias >= 0) ? NR_FEATURE + 1 : NR_FEATURE;
+    problem.bias = bias;
+    problem.x = new Feature[problem.l][];
+    problem.y = new double[problem.l];
+    for (int i = 0; i < problem.l; i++) {
+      TreeSet<Integer> indices = new TreeSet<>();
+      int size = 3 + random.nextInt(8);
+      while (indices.size() < size) {
+        indices.add(1 + random.nextInt(NR_FEATURE));
+      }
+      Feature[] features = new Feature[(bias >= 0) ? size + 1 : size];
+      int position = 0;
+      for (int oneIndex : indices) {
+        features[position++] = new FeatureNode(oneIndex, random.nextBoolean() ? 1.0 : 0.5);
+      }
+      if (bias >= 0) {
+        features[position] = new FeatureNode(NR_FEATURE + 1, bias);
+      }
+      problem.x[i] = features;
+      problem.y[i] = 1 + (indices.first() % 4);
+      if (random.nextInt(10) == 0) {
+        problem.y[i] = 1 + random.nextInt(4);
+      }
+    }
+    return problem;
+  }
+}